@@ -5,14 +5,17 @@
 package com.microsoft.azure.gateway.core;
 
 import com.microsoft.azure.gateway.messaging.Message;
+import com.microsoft.azure.gateway.remote.RemoteModuleHost;
 
 import java.io.IOException;
 
 public class Broker {
 
-    //Loads the native library
+    //Loads the native library, unless the module runs in a RemoteModuleHost
     static {
-        System.loadLibrary("java_module_host");
+        if (!Boolean.getBoolean(RemoteModuleHost.REMOTE_HOST_PROPERTY)) {
+            System.loadLibrary("java_module_host");
+        }
     }
 
     //Private Native Methods
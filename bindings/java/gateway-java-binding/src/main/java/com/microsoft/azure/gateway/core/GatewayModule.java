@@ -4,9 +4,16 @@
  */
 package com.microsoft.azure.gateway.core;
 
+import com.microsoft.azure.gateway.filter.DeadBandFilter;
 import com.microsoft.azure.gateway.messaging.Message;
+import com.microsoft.azure.gateway.tracing.MessageTracer;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Map;
 
 /**
  * The Abstract {@link GatewayModule} class to be extended by the module-creator when creating any modules.
@@ -25,6 +32,23 @@ public abstract class GatewayModule implements IGatewayModule{
     /** The module-specific configuration object. */
     private String configuration;
 
+    /**
+     * The thread running {@link #warmup(Message, int)}, or null. Only calls on this thread are part of the warmup, so
+     * real messages received or published on other threads meanwhile are handled as usual.
+     */
+    private volatile Thread warmupThread;
+
+    /** The name of this module in message latency traces and JMX MBean names. */
+    private String name;
+
+    /** The priority lanes of received and published messages, or null while messages are not sorted into lanes. */
+    private volatile LaneDispatcher<Message> receiveLanes;
+    private volatile LaneDispatcher<byte[]> publishLanes;
+
+    /** The filter suppressing published readings within their dead band, or null, and its JMX name. */
+    private volatile DeadBandFilter deadBandFilter;
+    private ObjectName deadBandFilterName;
+
     /**
      * Constructs a {@link GatewayModule} from the provided address and {@link Broker}. A {@link GatewayModule} should always call this super
      * constructor before any module-specific constructor code.
@@ -47,14 +71,42 @@ public abstract class GatewayModule implements IGatewayModule{
 
     public void create(long moduleAddr, Broker broker, String configuration){
         this._addr = moduleAddr;
+        this.name = (getClass().getSimpleName().length() > 0 ? getClass().getSimpleName() : getClass().getName())
+                + "@" + Long.toHexString(moduleAddr);
         this.broker = broker;
         this.configuration = configuration;
     }
 
+    /**
+     * The warmup method is called when the native Gateway has created all modules, immediately before {@link #start()}.
+     *
+     * This method is optional. A module may override it to feed synthetic messages through its receive path with
+     * {@link #warmup(Message, int)} so that the JVM loads and compiles the hot code before real traffic arrives. It is
+     * not part of {@link IGatewayModule}, so modules implementing that interface directly need not provide it.
+     */
+    public void warmup(){}
+
     public void start(){}
 
     public void receive(byte[] serializedMessage){
-        this.receive(new Message(serializedMessage));
+        Message message = new Message(serializedMessage);
+
+        /*Codes_SRS_JAVA_GATEWAY_MODULE_14_008: [ Unless called on the thread running warmup(Message, int), if priority lanes are set the function shall queue the message in its lane and return, leaving receive(Message) to the lane dispatcher thread. ]*/
+        LaneDispatcher<Message> lanes = this.receiveLanes;
+        if(lanes != null && !isWarmingUp() && lanes.offer(lanes.getConfiguration().laneOf(message), message)){
+            return;
+        }
+
+        this.dispatchReceived(message);
+    }
+
+    private void dispatchReceived(Message message){
+        /*Codes_SRS_JAVA_GATEWAY_MODULE_14_006: [ Unless called on the thread running warmup(Message, int), the function shall record the latency of a traced message with the default MessageTracer before calling receive(Message). ]*/
+        if(!isWarmingUp()){
+            MessageTracer.getDefault().onReceive(message, this.name);
+        }
+
+        this.receive(message);
     }
 
     /**
@@ -65,11 +117,230 @@ public abstract class GatewayModule implements IGatewayModule{
      * @throws IOException If the {@link Message} cannot be serialized.
      */
     public int publish(Message message) throws IOException {
+        /*Codes_SRS_JAVA_GATEWAY_MODULE_14_005: [ On the thread running warmup(Message, int), the function shall serialize the message and return 0 without publishing it to the Broker. ]*/
+        if(isWarmingUp()){
+            message.toByteArray();
+            return 0;
+        }
+
+        /*Codes_SRS_JAVA_GATEWAY_MODULE_14_012: [ If a dead-band filter is attached and suppresses the message, the function shall return 0 without publishing it to the Broker. ]*/
+        DeadBandFilter filter = this.deadBandFilter;
+        if(filter != null && !filter.accept(message)){
+            return 0;
+        }
+
+        /*Codes_SRS_JAVA_GATEWAY_MODULE_14_007: [ The function shall let the default MessageTracer trace the message before publishing it to the Broker. ]*/
+        message = MessageTracer.getDefault().onPublish(message, this.name);
+
+        LaneDispatcher<byte[]> lanes = this.publishLanes;
+        if(lanes != null){
+            int lane = lanes.getConfiguration().laneOf(message);
+            if(lane == 0){
+                /*Codes_SRS_JAVA_GATEWAY_MODULE_14_010: [ If priority lanes are set, a message of the highest priority lane shall be published to the Broker immediately, bypassing the queued messages. ]*/
+                lanes.getLanes()[0].bypassed();
+            }
+            else if(lanes.offer(lane, message.toByteArray())){
+                /*Codes_SRS_JAVA_GATEWAY_MODULE_14_009: [ If priority lanes are set, any other message shall be serialized, queued in its lane and published to the Broker by the lane dispatcher thread, and the function shall return 0. ]*/
+                return 0;
+            }
+        }
+
         return this.broker.publishMessage(message, this._addr);
     }
 
+    /**
+     * Publishes a {@link Message} whose content is read from {@code content} straight into the serialized message, so
+     * that large content is never held on the heap twice.
+     *
+     * @param content The channel positioned at the first content byte, such as a {@link java.nio.channels.FileChannel}.
+     * @param contentLength The number of bytes to read from {@code content}.
+     * @param properties The properties of the {@link Message}. May be null.
+     * @return 0 on success, non-zero otherwise. See <a href="https://github.com/Azure/azure-iot-gateway-sdk/blob/master/core/devdoc/message_broker_requirements.md" target="_top">Message broker documentation</a>.
+     * @throws IOException If the content cannot be read or the {@link Message} cannot be serialized.
+     */
+    public int publish(ReadableByteChannel content, int contentLength, Map<String, String> properties) throws IOException {
+        return this.publish(new Message(content, contentLength, properties));
+    }
+
+    /**
+     * Feeds the {@code sample} {@link Message} through the decode and {@link #receive(Message)} paths of this module
+     * {@code iterations} times so that the JVM loads and compiles them before real traffic arrives. Intended to be called
+     * from an overridden {@link #warmup()}.
+     *
+     * Any {@link Message} published from this thread while this method runs is serialized but not delivered to the
+     * {@link Broker}. Messages received or published on other threads meanwhile, such as those of modules that have
+     * already started or of a thread started by this module, are handled as usual.
+     *
+     * @param sample A {@link Message} representative of the traffic this module receives.
+     * @param iterations The number of times {@code sample} is received.
+     * @throws IOException If {@code sample} cannot be serialized.
+     */
+    protected final void warmup(Message sample, int iterations) throws IOException {
+        /*Codes_SRS_JAVA_GATEWAY_MODULE_14_003: [ If sample is null or iterations is negative the function shall throw an IllegalArgumentException. ]*/
+        if(sample == null || iterations < 0){
+            throw new IllegalArgumentException("Sample message is null or iterations is negative.");
+        }
+
+        byte[] serializedMessage = sample.toByteArray();
+
+        /*Codes_SRS_JAVA_GATEWAY_MODULE_14_004: [ The function shall call receive(byte[]) with the serialized sample iterations times. ]*/
+        this.warmupThread = Thread.currentThread();
+        try {
+            for (int iteration = 0; iteration < iterations; iteration++) {
+                this.receive(serializedMessage);
+            }
+        } finally {
+            this.warmupThread = null;
+        }
+    }
+
+    private boolean isWarmingUp(){
+        return this.warmupThread == Thread.currentThread();
+    }
+
+    /**
+     * Sorts the messages this module receives and publishes into priority lanes, so that an urgent message does not wait
+     * behind a backlog of routine ones. Received messages are queued in their lane and passed to
+     * {@link #receive(Message)} from a dedicated thread, highest priority lanes first. Published messages of the highest
+     * priority lane go to the {@link Broker} at once; those of the other lanes are queued and published from another
+     * dedicated thread, so {@link #publish(Message)} returns 0 for them without knowing whether the {@link Broker}
+     * accepted them. When a lane is full, receiving or publishing a message of that lane waits until it has room or
+     * drops a message, as set by {@link PriorityLanes.Overflow}. Waiting holds up the native broker thread delivering
+     * the message, and with it the delivery to every other module.
+     *
+     * While lanes are set, {@link #receive(Message)} is called on the receive dispatcher thread rather than on the
+     * thread delivering the message. Messages still queued when {@link #destroy()} calls this with null are delivered then, so
+     * {@link #receive(Message)} may also run while {@link #destroy()} is in progress. A module relying on
+     * {@link IGatewayModule#destroy()} and {@link IGatewayModule#receive(byte[])} never overlapping must set null before
+     * releasing what {@link #receive(Message)} uses.
+     *
+     * Call this from the constructor or {@link #start()}, and with null from {@link #destroy()}, which delivers every
+     * queued message and stops both threads. The lanes are registered as JMX MBeans named
+     * {@code com.microsoft.azure.gateway:type=PriorityLane,module=<name>,direction=<receive|publish>,lane=<lane>}, where
+     * {@code <name>} is {@link #getName()}.
+     *
+     * @param lanes The lanes, or null to stop sorting messages into lanes.
+     */
+    public final void setPriorityLanes(PriorityLanes lanes){
+        LaneDispatcher<Message> newReceiveLanes = null;
+        LaneDispatcher<byte[]> newPublishLanes = null;
+        if(lanes != null){
+            newReceiveLanes = new LaneDispatcher<Message>(lanes, this.name, "receive") {
+                @Override
+                void dispatch(PriorityLane lane, Message message){
+                    dispatchReceived(message);
+                }
+            };
+            newPublishLanes = new LaneDispatcher<byte[]>(lanes, this.name, "publish") {
+                @Override
+                void dispatch(PriorityLane lane, byte[] message){
+                    try {
+                        if(broker.publishMessage(new Message(message), _addr) != 0){
+                            lane.failed();
+                        }
+                    } catch (IOException e) {
+                        lane.failed();
+                    }
+                }
+            };
+        }
+
+        // Only the swap is done under the lock: the dispatcher threads being joined below may need it to finish.
+        LaneDispatcher<Message> oldReceiveLanes;
+        LaneDispatcher<byte[]> oldPublishLanes;
+        synchronized (this){
+            oldReceiveLanes = this.receiveLanes;
+            oldPublishLanes = this.publishLanes;
+            this.receiveLanes = newReceiveLanes;
+            this.publishLanes = newPublishLanes;
+        }
+
+        /*Codes_SRS_JAVA_GATEWAY_MODULE_14_011: [ The function shall deliver every message queued in the previous lanes before replacing them. ]*/
+        if(oldReceiveLanes != null){
+            oldReceiveLanes.close();
+        }
+        if(oldPublishLanes != null){
+            oldPublishLanes.close();
+        }
+        if(newReceiveLanes != null){
+            newReceiveLanes.start();
+            newPublishLanes.start();
+        }
+    }
+
+    /**
+     * Gets the lanes received messages are queued in.
+     *
+     * @return The lanes, highest priority first, or an empty array if no priority lanes are set.
+     */
+    public final PriorityLane[] getReceiveLanes(){
+        LaneDispatcher<Message> lanes = this.receiveLanes;
+        return lanes != null ? lanes.getLanes().clone() : new PriorityLane[0];
+    }
+
+    /**
+     * Gets the lanes published messages are queued in. Messages of the first lane are counted but never queued.
+     *
+     * @return The lanes, highest priority first, or an empty array if no priority lanes are set.
+     */
+    public final PriorityLane[] getPublishLanes(){
+        LaneDispatcher<byte[]> lanes = this.publishLanes;
+        return lanes != null ? lanes.getLanes().clone() : new PriorityLane[0];
+    }
+
+    /**
+     * Attaches a {@link DeadBandFilter} to {@link #publish(Message)}, so that published readings within the dead band of
+     * their channel are dropped before they are serialized or reach the {@link Broker}. A suppressed publish returns 0.
+     * The filter is registered as the JMX MBean
+     * {@code com.microsoft.azure.gateway:type=DeadBandFilter,module=<name>} while attached, where {@code <name>} is
+     * {@link #getName()}.
+     *
+     * @param filter The filter, or null to publish every message.
+     */
+    public final synchronized void setDeadBandFilter(DeadBandFilter filter){
+        if(this.deadBandFilterName != null){
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(this.deadBandFilterName);
+            } catch (JMException e) {
+                //Already gone
+            }
+            this.deadBandFilterName = null;
+        }
+
+        this.deadBandFilter = filter;
+
+        if(filter != null){
+            try {
+                ObjectName name = new ObjectName("com.microsoft.azure.gateway:type=DeadBandFilter,module="
+                        + ObjectName.quote(this.name));
+                ManagementFactory.getPlatformMBeanServer().registerMBean(filter, name);
+                this.deadBandFilterName = name;
+            } catch (JMException e) {
+                //The filter is still available through getDeadBandFilter()
+            }
+        }
+    }
+
+    /**
+     * Gets the {@link DeadBandFilter} attached to {@link #publish(Message)}.
+     *
+     * @return The filter, or null if none is attached.
+     */
+    public final DeadBandFilter getDeadBandFilter(){
+        return this.deadBandFilter;
+    }
+
     //Public getter methods
 
+    /**
+     * Gets the name identifying this {@link GatewayModule} in message latency traces and JMX MBean names: the simple
+     * class name followed by {@code @} and the hexadecimal module address, which is unique within the gateway.
+     * @return The name of this {@link GatewayModule}
+     */
+    final public String getName(){
+        return name;
+    }
+
     final public Broker getBroker(){
         return broker;
     }
@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.gateway.core;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Queues messages in {@link PriorityLane}s and dispatches them one at a time from a dedicated thread, choosing the next
+ * lane as described by {@link PriorityLanes}.
+ *
+ * @param <T> The type of the queued messages.
+ */
+abstract class LaneDispatcher<T> implements Runnable {
+
+    private static final String JMX_DOMAIN = "com.microsoft.azure.gateway";
+
+    private final PriorityLanes configuration;
+    private final PriorityLane[] lanes;
+    private final ObjectName[] names;
+    private final String module;
+    private final String direction;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = this.lock.newCondition();
+    private final Condition[] notFull;
+    private final Thread thread;
+
+    private int queued;
+    private boolean started;
+    private boolean closed;
+
+    /** The lane whose turn it is when lanes are served by weight, and how many more messages it may dispatch. */
+    private int current;
+    private int credit;
+
+    /**
+     * @param configuration The lanes.
+     * @param module The name of the owning module, used for the thread and JMX names.
+     * @param direction {@code receive} or {@code publish}.
+     */
+    LaneDispatcher(PriorityLanes configuration, String module, String direction){
+        int count = configuration.getLaneCount();
+        this.configuration = configuration;
+        this.module = module;
+        this.direction = direction;
+        this.lanes = new PriorityLane[count];
+        this.names = new ObjectName[count];
+        this.notFull = new Condition[count];
+        for(int lane = 0; lane < count; lane++){
+            this.lanes[lane] = new PriorityLane(configuration.getLaneName(lane), configuration.getCapacity());
+            this.notFull[lane] = this.lock.newCondition();
+        }
+        this.credit = configuration.getWeight(0);
+
+        this.thread = new Thread(this, module + "-" + direction + "-lanes");
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Registers the lanes with JMX and starts the dispatcher thread, unless already started. Messages may be queued
+     * before, and are dispatched once started.
+     */
+    void start(){
+        this.lock.lock();
+        try {
+            if(this.started){
+                return;
+            }
+            this.started = true;
+            for(int lane = 0; lane < this.lanes.length; lane++){
+                this.names[lane] = register(this.lanes[lane], this.module, this.direction);
+            }
+            this.thread.start();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    PriorityLane[] getLanes(){
+        return this.lanes;
+    }
+
+    PriorityLanes getConfiguration(){
+        return this.configuration;
+    }
+
+    /**
+     * Dispatches one message taken from {@code lane}. Called from the dispatcher thread only.
+     */
+    abstract void dispatch(PriorityLane lane, T message);
+
+    /**
+     * Queues {@code message} in {@code lane}. If the lane is full, waits or drops a message as the
+     * {@link PriorityLanes.Overflow} policy of the lanes says.
+     *
+     * @return True if the message was queued or dropped, false if the dispatcher was closed before it could be queued.
+     */
+    boolean offer(int lane, T message){
+        PriorityLane target = this.lanes[lane];
+        this.lock.lock();
+        try {
+            if(target.isFull() && !this.closed){
+                switch(this.configuration.getOverflow()){
+                    case DROP_OLDEST:
+                        /*Codes_SRS_JAVA_PRIORITY_LANES_14_009: [ If the overflow policy is DROP_OLDEST, queuing a message in a full lane shall drop the oldest message of the lane and count it as dropped. ]*/
+                        target.dropOldest();
+                        this.queued--;
+                        break;
+                    case DROP_NEWEST:
+                        /*Codes_SRS_JAVA_PRIORITY_LANES_14_010: [ If the overflow policy is DROP_NEWEST, a message arriving at a full lane shall be dropped and counted as dropped. ]*/
+                        target.dropped();
+                        return true;
+                    default:
+                        /*Codes_SRS_JAVA_PRIORITY_LANES_14_004: [ If the overflow policy is WAIT, queuing a message in a full lane shall wait until the lane has room or the lanes are closed. ]*/
+                        while(target.isFull() && !this.closed){
+                            this.notFull[lane].awaitUninterruptibly();
+                        }
+                }
+            }
+            if(this.closed){
+                return false;
+            }
+            target.add(message, System.nanoTime());
+            this.queued++;
+            this.notEmpty.signal();
+            return true;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Stops queuing, waits until every queued message has been dispatched and unregisters the lanes from JMX. Does not
+     * wait when called from the dispatcher thread itself. A dispatcher closed before it was started is started, so
+     * that the messages queued meanwhile are still dispatched.
+     */
+    void close(){
+        start();
+        this.lock.lock();
+        try {
+            this.closed = true;
+            this.notEmpty.signalAll();
+            for(Condition condition : this.notFull){
+                condition.signalAll();
+            }
+        } finally {
+            this.lock.unlock();
+        }
+
+        if(Thread.currentThread() != this.thread){
+            try {
+                this.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for(ObjectName name : this.names){
+            try {
+                if(name != null){
+                    server.unregisterMBean(name);
+                }
+            } catch (JMException e) {
+                //Already gone
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public void run(){
+        while(true){
+            PriorityLane lane;
+            T message;
+            this.lock.lock();
+            try {
+                while(this.queued == 0 && !this.closed){
+                    this.notEmpty.awaitUninterruptibly();
+                }
+                /*Codes_SRS_JAVA_PRIORITY_LANES_14_008: [ Once closed, the dispatcher thread shall dispatch every queued message and then end. ]*/
+                if(this.queued == 0){
+                    return;
+                }
+
+                int next = nextLane();
+                lane = this.lanes[next];
+                message = (T) lane.remove(System.nanoTime());
+                this.queued--;
+                this.notFull[next].signal();
+            } finally {
+                this.lock.unlock();
+            }
+
+            try {
+                dispatch(lane, message);
+            } catch (RuntimeException e) {
+                lane.failed();
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Chooses the lane to take the next message from. Must be called with the lock held and at least one message queued.
+     */
+    private int nextLane(){
+        if(this.configuration.isStrict()){
+            /*Codes_SRS_JAVA_PRIORITY_LANES_14_005: [ Lanes served strictly shall always dispatch from the highest priority lane holding a message. ]*/
+            int lane = 0;
+            while(this.lanes[lane].isEmpty()){
+                lane++;
+            }
+            return lane;
+        }
+
+        /*Codes_SRS_JAVA_PRIORITY_LANES_14_006: [ Lanes served by weight shall each dispatch up to their weight in messages in turn, skipping empty lanes. ]*/
+        while(this.credit == 0 || this.lanes[this.current].isEmpty()){
+            this.current = (this.current + 1) % this.lanes.length;
+            this.credit = this.configuration.getWeight(this.current);
+        }
+        this.credit--;
+        return this.current;
+    }
+
+    private static ObjectName register(PriorityLane lane, String module, String direction){
+        /*Codes_SRS_JAVA_PRIORITY_LANES_14_007: [ Every lane shall be registered as a JMX MBean for as long as it is in use. ]*/
+        try {
+            ObjectName name = new ObjectName(JMX_DOMAIN + ":type=PriorityLane,module=" + ObjectName.quote(module)
+                    + ",direction=" + direction + ",lane=" + ObjectName.quote(lane.getName()));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(lane, name);
+            return name;
+        } catch (JMException e) {
+            //The lane is still available through GatewayModule
+            return null;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.gateway.core;
+
+import com.microsoft.azure.gateway.tracing.LatencyHistogram;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The bounded queue of one priority lane of a {@link GatewayModule}, and its metrics.
+ *
+ * The queue holds received {@link com.microsoft.azure.gateway.messaging.Message}s or serialized published messages,
+ * and is guarded by the lock of the dispatcher owning the lane; the metrics may be read from any thread.
+ */
+public class PriorityLane implements PriorityLaneMBean {
+
+    private final String name;
+    private final Object[] messages;
+    private final long[] enqueueTimes;
+    private int head;
+    private volatile int depth;
+    private volatile int maxDepth;
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong dispatched = new AtomicLong();
+    private final AtomicLong bypassed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final LatencyHistogram waitTime = new LatencyHistogram();
+
+    PriorityLane(String name, int capacity){
+        this.name = name;
+        this.messages = new Object[capacity];
+        this.enqueueTimes = new long[capacity];
+    }
+
+    public String getName(){
+        return this.name;
+    }
+
+    public int getCapacity(){
+        return this.messages.length;
+    }
+
+    /** The number of messages currently queued. */
+    public int getDepth(){
+        return this.depth;
+    }
+
+    /** The largest number of messages queued at once since the last {@link #reset()}. */
+    public int getMaxDepth(){
+        return this.maxDepth;
+    }
+
+    /** The number of messages queued. */
+    public long getEnqueued(){
+        return this.enqueued.get();
+    }
+
+    /** The number of queued messages taken from the queue and dispatched. */
+    public long getDispatched(){
+        return this.dispatched.get();
+    }
+
+    /** The number of messages of this lane published directly, without being queued. */
+    public long getBypassed(){
+        return this.bypassed.get();
+    }
+
+    /** The number of queued messages whose dispatch failed. */
+    public long getFailed(){
+        return this.failed.get();
+    }
+
+    /** The number of messages dropped because the lane was full. See {@link PriorityLanes.Overflow}. */
+    public long getDropped(){
+        return this.dropped.get();
+    }
+
+    public double getWaitMean(){
+        return this.waitTime.getMean();
+    }
+
+    public long getWaitP50(){
+        return this.waitTime.getP50();
+    }
+
+    public long getWaitP99(){
+        return this.waitTime.getP99();
+    }
+
+    public long getWaitMax(){
+        return this.waitTime.getMax();
+    }
+
+    /**
+     * Gets the histogram of the time messages spent queued in this lane, in microseconds.
+     *
+     * @return The wait time histogram.
+     */
+    public LatencyHistogram getWaitTime(){
+        return this.waitTime;
+    }
+
+    /**
+     * Clears the wait time histogram and sets the maximum depth to the current depth. Counters are not cleared.
+     */
+    public void reset(){
+        this.waitTime.reset();
+        this.maxDepth = this.depth;
+    }
+
+    boolean isEmpty(){
+        return this.depth == 0;
+    }
+
+    boolean isFull(){
+        return this.depth == this.messages.length;
+    }
+
+    void add(Object message, long now){
+        int tail = (this.head + this.depth) % this.messages.length;
+        this.messages[tail] = message;
+        this.enqueueTimes[tail] = now;
+        int newDepth = this.depth + 1;
+        this.depth = newDepth;
+        if(newDepth > this.maxDepth){
+            this.maxDepth = newDepth;
+        }
+        this.enqueued.incrementAndGet();
+    }
+
+    /**
+     * Drops the oldest queued message without dispatching it.
+     */
+    void dropOldest(){
+        this.messages[this.head] = null;
+        this.head = (this.head + 1) % this.messages.length;
+        this.depth--;
+        this.dropped.incrementAndGet();
+    }
+
+    Object remove(long now){
+        Object message = this.messages[this.head];
+        this.messages[this.head] = null;
+        this.waitTime.record((now - this.enqueueTimes[this.head]) / 1000);
+        this.head = (this.head + 1) % this.messages.length;
+        this.depth--;
+        this.dispatched.incrementAndGet();
+        return message;
+    }
+
+    void bypassed(){
+        this.bypassed.incrementAndGet();
+    }
+
+    void failed(){
+        this.failed.incrementAndGet();
+    }
+
+    void dropped(){
+        this.dropped.incrementAndGet();
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.gateway.core;
+
+/**
+ * The JMX management interface of a {@link PriorityLane}. Wait times are in microseconds.
+ */
+public interface PriorityLaneMBean {
+
+    String getName();
+
+    int getCapacity();
+
+    int getDepth();
+
+    int getMaxDepth();
+
+    long getEnqueued();
+
+    long getDispatched();
+
+    long getBypassed();
+
+    long getFailed();
+
+    long getDropped();
+
+    double getWaitMean();
+
+    long getWaitP50();
+
+    long getWaitP99();
+
+    long getWaitMax();
+
+    void reset();
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.gateway.core;
+
+import com.microsoft.azure.gateway.messaging.Message;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Describes how a {@link GatewayModule} sorts the messages it receives and publishes into priority lanes.
+ *
+ * A message goes to the lane named by the value of its {@link #getProperty()} property, or numbered by it, where lane 0
+ * has the highest priority. Messages without the property, or with an unknown value, go to the last lane. Every lane
+ * has its own bounded queue, and an {@link Overflow} policy decides what happens to a message arriving at a full lane.
+ * Lanes are served either strictly, always the highest priority lane with queued messages first, or by weight, where
+ * each lane in turn may dispatch up to its weight in messages before the next one.
+ *
+ * @see GatewayModule#setPriorityLanes(PriorityLanes)
+ */
+public final class PriorityLanes {
+
+    /** The property usually holding the lane of a message. */
+    public static final String DEFAULT_PROPERTY = "priority";
+
+    /**
+     * What happens to a message arriving at a full lane. Dropped messages are counted by {@link PriorityLane#getDropped()}.
+     */
+    public enum Overflow {
+
+        /**
+         * The caller waits until the lane has room. No message is lost, but a received message is queued on the
+         * thread of the native broker, so a module whose {@link GatewayModule#receive(Message)} falls behind holds up
+         * the delivery of messages to every module.
+         */
+        WAIT,
+
+        /** The oldest message queued in the lane is dropped to make room, so the lane always holds the latest messages. */
+        DROP_OLDEST,
+
+        /** The arriving message is dropped. */
+        DROP_NEWEST
+    }
+
+    private final String property;
+    private final String[] names;
+    private final int capacity;
+    private final int[] weights;
+    private final Overflow overflow;
+    private final Map<String, Integer> lanes = new HashMap<String, Integer>();
+
+    /**
+     * Creates lanes served strictly by priority, where callers wait while a lane is full.
+     *
+     * @param property The message property selecting the lane.
+     * @param names The lane names, highest priority first.
+     * @param capacity The number of messages each lane queues before callers have to wait.
+     * @throws IllegalArgumentException If the lanes cannot be created. See {@link #PriorityLanes(String, String[], int, int[], Overflow)}.
+     */
+    public PriorityLanes(String property, String[] names, int capacity){
+        this(property, names, capacity, null);
+    }
+
+    /**
+     * Creates lanes served by weight, or strictly by priority if {@code weights} is null, where callers wait while a
+     * lane is full.
+     *
+     * @param property The message property selecting the lane.
+     * @param names The lane names, highest priority first.
+     * @param capacity The number of messages each lane queues before callers have to wait.
+     * @param weights The number of messages each lane may dispatch before the next lane's turn. May be null.
+     * @throws IllegalArgumentException If the lanes cannot be created. See {@link #PriorityLanes(String, String[], int, int[], Overflow)}.
+     */
+    public PriorityLanes(String property, String[] names, int capacity, int[] weights){
+        this(property, names, capacity, weights, Overflow.WAIT);
+    }
+
+    /**
+     * Creates lanes served by weight, or strictly by priority if {@code weights} is null.
+     *
+     * @param property The message property selecting the lane.
+     * @param names The lane names, highest priority first.
+     * @param capacity The number of messages each lane queues.
+     * @param weights The number of messages each lane may dispatch before the next lane's turn. May be null.
+     * @param overflow What happens to a message arriving at a full lane.
+     * @throws IllegalArgumentException If {@code property} is null or empty, {@code names} is null, empty or holds a
+     * null or repeated name, {@code capacity} is less than 1, {@code weights} does not hold one positive weight per
+     * lane, or {@code overflow} is null.
+     */
+    public PriorityLanes(String property, String[] names, int capacity, int[] weights, Overflow overflow){
+        /*Codes_SRS_JAVA_PRIORITY_LANES_14_001: [ If property is null or empty, names is null, empty or holds a null or repeated name, capacity is less than 1, weights is not null and does not hold one positive weight per lane, or overflow is null, the constructor shall throw an IllegalArgumentException. ]*/
+        if(property == null || property.length() == 0 || names == null || names.length == 0 || capacity < 1){
+            throw new IllegalArgumentException("Property is null or empty, there are no lanes or capacity is less than 1.");
+        }
+        if(overflow == null){
+            throw new IllegalArgumentException("Overflow cannot be null.");
+        }
+        for(int lane = 0; lane < names.length; lane++){
+            if(names[lane] == null || this.lanes.put(names[lane], lane) != null){
+                throw new IllegalArgumentException("Lane names cannot be null or repeated.");
+            }
+        }
+        if(weights != null){
+            if(weights.length != names.length){
+                throw new IllegalArgumentException("There must be one weight per lane.");
+            }
+            for(int weight : weights){
+                if(weight < 1){
+                    throw new IllegalArgumentException("Weights must be positive.");
+                }
+            }
+        }
+
+        this.property = property;
+        this.names = names.clone();
+        this.capacity = capacity;
+        this.weights = weights != null ? weights.clone() : null;
+        this.overflow = overflow;
+    }
+
+    public String getProperty(){
+        return this.property;
+    }
+
+    public int getLaneCount(){
+        return this.names.length;
+    }
+
+    public String getLaneName(int lane){
+        return this.names[lane];
+    }
+
+    public int getCapacity(){
+        return this.capacity;
+    }
+
+    public Overflow getOverflow(){
+        return this.overflow;
+    }
+
+    /**
+     * Whether lanes are served strictly by priority rather than by weight.
+     *
+     * @return True if no weights were given.
+     */
+    public boolean isStrict(){
+        return this.weights == null;
+    }
+
+    /**
+     * Gets the number of messages {@code lane} may dispatch in a row.
+     *
+     * @param lane The lane number.
+     * @return The weight of the lane, or 1 if lanes are served strictly by priority.
+     */
+    public int getWeight(int lane){
+        return this.weights != null ? this.weights[lane] : 1;
+    }
+
+    /**
+     * Finds the lane of {@code message} without decoding any other property.
+     *
+     * @param message The message.
+     * @return The lane number, 0 being the highest priority.
+     */
+    public int laneOf(Message message){
+        String value = message.getProperty(this.property);
+        if(value == null){
+            /*Codes_SRS_JAVA_PRIORITY_LANES_14_003: [ A message without the property or with any other value shall go to the last lane. ]*/
+            return this.names.length - 1;
+        }
+
+        /*Codes_SRS_JAVA_PRIORITY_LANES_14_002: [ A message whose property holds a lane name or lane number shall go to that lane. ]*/
+        Integer lane = this.lanes.get(value);
+        if(lane != null){
+            return lane;
+        }
+        try {
+            int number = Integer.parseInt(value);
+            if(number >= 0 && number < this.names.length){
+                return number;
+            }
+        } catch (NumberFormatException e) {
+            //Not a lane number either
+        }
+        return this.names.length - 1;
+    }
+}
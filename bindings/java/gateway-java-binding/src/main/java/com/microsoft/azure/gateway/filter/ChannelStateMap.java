@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.gateway.filter;
+
+import java.util.Arrays;
+
+/**
+ * An open-addressing hash map from a {@code long} channel key to the last value sent on the channel and when it was
+ * sent. Keys, values and times are held in parallel primitive arrays, so looking up or updating a channel allocates
+ * nothing. Not thread-safe.
+ *
+ * The map holds at most a maximum number of channels. Adding a channel to a full map first evicts the half of the
+ * channels that sent least recently, so a stream of ever new keys costs an eviction pass once every so many new
+ * channels rather than unbounded memory.
+ */
+class ChannelStateMap {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private long[] keys;
+    private double[] values;
+    private long[] sentTimes;
+    private boolean[] used;
+    private int size;
+    private int maxSize;
+
+    /**
+     * @param maxSize The largest number of channels held. Must be positive.
+     */
+    ChannelStateMap(int maxSize){
+        this.maxSize = maxSize;
+        allocate(INITIAL_CAPACITY);
+    }
+
+    int size(){
+        return this.size;
+    }
+
+    int maxSize(){
+        return this.maxSize;
+    }
+
+    /**
+     * Sets the largest number of channels held, evicting the channels that sent least recently if there are more.
+     *
+     * @param maxSize The largest number of channels held. Must be positive.
+     * @return The number of channels evicted.
+     */
+    int setMaxSize(int maxSize){
+        this.maxSize = maxSize;
+        int evicted = 0;
+        while(this.size > maxSize){
+            evicted += evict(this.size - maxSize);
+        }
+        return evicted;
+    }
+
+    /**
+     * Finds the slot of {@code key}.
+     *
+     * @return The slot index, or a negative value if the key is not in the map.
+     */
+    int find(long key){
+        int mask = this.keys.length - 1;
+        for(int slot = hash(key) & mask; this.used[slot]; slot = (slot + 1) & mask){
+            if(this.keys[slot] == key){
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    double value(int slot){
+        return this.values[slot];
+    }
+
+    long sentTime(int slot){
+        return this.sentTimes[slot];
+    }
+
+    /**
+     * Sets the last value sent on channel {@code key} and when it was sent, adding the channel if needed.
+     *
+     * @return The number of channels evicted to make room for a new channel.
+     */
+    int put(long key, double value, long sentTime){
+        int evicted = 0;
+        if(this.size >= this.maxSize && find(key) < 0){
+            evicted = evict(Math.max(this.size / 2, 1));
+        }
+        insert(key, value, sentTime);
+        return evicted;
+    }
+
+    private void insert(long key, double value, long sentTime){
+        if(2 * (this.size + 1) > this.keys.length){
+            grow();
+        }
+
+        int mask = this.keys.length - 1;
+        int slot = hash(key) & mask;
+        while(this.used[slot] && this.keys[slot] != key){
+            slot = (slot + 1) & mask;
+        }
+        if(!this.used[slot]){
+            this.used[slot] = true;
+            this.keys[slot] = key;
+            this.size++;
+        }
+        this.values[slot] = value;
+        this.sentTimes[slot] = sentTime;
+    }
+
+    /**
+     * Removes the {@code count} channels that sent least recently.
+     *
+     * @return {@code count}.
+     */
+    private int evict(int count){
+        long[] times = new long[this.size];
+        int index = 0;
+        for(int slot = 0; slot < this.keys.length; slot++){
+            if(this.used[slot]){
+                times[index++] = this.sentTimes[slot];
+            }
+        }
+        Arrays.sort(times);
+        long cutoff = times[count - 1];
+        // Channels that sent at the cutoff time itself are evicted only as far as needed to reach count.
+        rebuild(this.keys.length, cutoff, count - lowerBound(times, cutoff));
+        return count;
+    }
+
+    /**
+     * Finds the first index of {@code value} in the sorted {@code values}, which holds it.
+     */
+    private static int lowerBound(long[] values, long value){
+        int index = Arrays.binarySearch(values, value);
+        while(index > 0 && values[index - 1] == value){
+            index--;
+        }
+        return index;
+    }
+
+    private void grow(){
+        rebuild(this.keys.length * 2, Long.MIN_VALUE, 0);
+    }
+
+    /**
+     * Moves the channels into new arrays of {@code capacity} slots, leaving out those that last sent before
+     * {@code cutoff} and the first {@code atCutoff} that last sent at {@code cutoff}.
+     */
+    private void rebuild(int capacity, long cutoff, int atCutoff){
+        long[] oldKeys = this.keys;
+        double[] oldValues = this.values;
+        long[] oldSentTimes = this.sentTimes;
+        boolean[] oldUsed = this.used;
+
+        allocate(capacity);
+        this.size = 0;
+        for(int slot = 0; slot < oldKeys.length; slot++){
+            if(!oldUsed[slot] || oldSentTimes[slot] < cutoff){
+                continue;
+            }
+            if(oldSentTimes[slot] == cutoff && atCutoff > 0){
+                atCutoff--;
+                continue;
+            }
+            insert(oldKeys[slot], oldValues[slot], oldSentTimes[slot]);
+        }
+    }
+
+    private void allocate(int capacity){
+        this.keys = new long[capacity];
+        this.values = new double[capacity];
+        this.sentTimes = new long[capacity];
+        this.used = new boolean[capacity];
+    }
+
+    private static int hash(long key){
+        long mixed = key * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32));
+    }
+}
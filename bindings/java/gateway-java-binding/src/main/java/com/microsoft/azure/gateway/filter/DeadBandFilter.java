@@ -0,0 +1,369 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.gateway.filter;
+
+import com.microsoft.azure.gateway.messaging.Message;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Suppresses readings that differ from the last reading sent on the same channel by no more than a dead band, so that
+ * a slowly changing signal costs a message only when it actually changes.
+ *
+ * A channel is identified by the values of a source property and a channel property of the message, and a reading is
+ * taken from a value property or, if none is set, from the message content as decimal text. A reading is sent if it
+ * is the first of its channel, or if it differs from the last reading sent on its channel by more than the band: the
+ * larger of the absolute band and the percent band applied to the last reading sent. Within the band it is still sent
+ * once the channel has sent nothing for the heartbeat interval, so that subscribers can tell a steady signal from a
+ * dead source, or, if it differs at all from the last reading sent, for the maximum silence interval, so that small
+ * drifts are not hidden forever. Both intervals are checked only when a reading arrives. Messages without a numeric
+ * reading or without the source property are always sent.
+ *
+ * The last reading sent on each channel is kept in a map keyed by a primitive {@code long}; producers that number their
+ * channels themselves can call {@link #accept(long, double, long)} directly. The map holds up to
+ * {@link #getMaxChannels()} channels; a new channel beyond that evicts the half of the channels that sent least
+ * recently, whose next reading is then sent as if it were their first. A {@link DeadBandFilter} is attached to
+ * the publish path of a module with {@link com.microsoft.azure.gateway.core.GatewayModule#setDeadBandFilter(DeadBandFilter)},
+ * or deployed in front of other modules as a {@link DeadBandModule}. All methods are thread-safe.
+ */
+public class DeadBandFilter implements DeadBandFilterMBean {
+
+    /** The property identifying the source of a reading unless set otherwise, as set by the Sensor sample module. */
+    public static final String DEFAULT_SOURCE_PROPERTY = "Source";
+
+    /** The property identifying the channel of a reading within its source unless set otherwise. */
+    public static final String DEFAULT_CHANNEL_PROPERTY = "channel";
+
+    /** The largest number of channels whose last reading is kept unless set otherwise. */
+    public static final int DEFAULT_MAX_CHANNELS = 65536;
+
+    /** Content longer than this is not parsed as a reading. */
+    private static final int MAX_READING_LENGTH = 64;
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    private final double absoluteBand;
+    private final double percentBand;
+    private volatile long heartbeatNanos;
+    private volatile long maxSilenceNanos;
+    private volatile String sourceProperty = DEFAULT_SOURCE_PROPERTY;
+    private volatile String channelProperty = DEFAULT_CHANNEL_PROPERTY;
+    private volatile String valueProperty;
+
+    /** Guarded by this. */
+    private final ChannelStateMap channels = new ChannelStateMap(DEFAULT_MAX_CHANNELS);
+
+    private volatile long evaluated;
+    private volatile long published;
+    private volatile long suppressed;
+    private volatile long forced;
+    private volatile long unfiltered;
+    private volatile long evicted;
+
+    /**
+     * Creates a filter without heartbeat or maximum silence interval.
+     *
+     * @param absoluteBand The largest change, in units of the reading, that is suppressed.
+     * @param percentBand The largest change, in percent of the last reading sent, that is suppressed.
+     * @throws IllegalArgumentException If either band is negative or not a number.
+     */
+    public DeadBandFilter(double absoluteBand, double percentBand){
+        /*Codes_SRS_JAVA_DEAD_BAND_FILTER_14_001: [ If absoluteBand or percentBand is negative or not a number, the constructor shall throw an IllegalArgumentException. ]*/
+        if(!(absoluteBand >= 0) || !(percentBand >= 0)){
+            throw new IllegalArgumentException("Bands cannot be negative or not a number.");
+        }
+        this.absoluteBand = absoluteBand;
+        this.percentBand = percentBand;
+    }
+
+    public double getAbsoluteBand(){
+        return this.absoluteBand;
+    }
+
+    public double getPercentBand(){
+        return this.percentBand;
+    }
+
+    public long getHeartbeatMillis(){
+        return this.heartbeatNanos / NANOS_PER_MILLI;
+    }
+
+    /**
+     * Sets how long a channel may go without sending before a reading within the band is sent anyway.
+     *
+     * @param millis The heartbeat interval in milliseconds. 0 turns heartbeats off.
+     * @throws IllegalArgumentException If {@code millis} is negative.
+     */
+    public void setHeartbeatMillis(long millis){
+        /*Codes_SRS_JAVA_DEAD_BAND_FILTER_14_002: [ If an interval is negative, the function shall throw an IllegalArgumentException. ]*/
+        if(millis < 0){
+            throw new IllegalArgumentException("Heartbeat interval is negative.");
+        }
+        this.heartbeatNanos = millis * NANOS_PER_MILLI;
+    }
+
+    public long getMaxSilenceMillis(){
+        return this.maxSilenceNanos / NANOS_PER_MILLI;
+    }
+
+    /**
+     * Sets how long a channel may go without sending before a reading within the band, but different from the last
+     * reading sent, is sent anyway.
+     *
+     * @param millis The maximum silence interval in milliseconds. 0 turns it off.
+     * @throws IllegalArgumentException If {@code millis} is negative.
+     */
+    public void setMaxSilenceMillis(long millis){
+        /*Codes_SRS_JAVA_DEAD_BAND_FILTER_14_002: [ If an interval is negative, the function shall throw an IllegalArgumentException. ]*/
+        if(millis < 0){
+            throw new IllegalArgumentException("Maximum silence interval is negative.");
+        }
+        this.maxSilenceNanos = millis * NANOS_PER_MILLI;
+    }
+
+    public synchronized int getMaxChannels(){
+        return this.channels.maxSize();
+    }
+
+    /**
+     * Sets the largest number of channels whose last reading is kept, evicting the channels that sent least recently
+     * if there are more.
+     *
+     * @param maxChannels The largest number of channels.
+     * @throws IllegalArgumentException If {@code maxChannels} is less than 1.
+     */
+    public synchronized void setMaxChannels(int maxChannels){
+        /*Codes_SRS_JAVA_DEAD_BAND_FILTER_14_010: [ If maxChannels is less than 1, the function shall throw an IllegalArgumentException. ]*/
+        if(maxChannels < 1){
+            throw new IllegalArgumentException("Maximum number of channels is less than 1.");
+        }
+        this.evicted += this.channels.setMaxSize(maxChannels);
+    }
+
+    /**
+     * Sets the properties identifying the channel of a message.
+     *
+     * @param sourceProperty The property naming the source. Must not be null.
+     * @param channelProperty The property naming the channel within the source, or null if each source has one channel.
+     */
+    public void setChannelProperties(String sourceProperty, String channelProperty){
+        if(sourceProperty == null){
+            throw new IllegalArgumentException("Source property is null.");
+        }
+        this.sourceProperty = sourceProperty;
+        this.channelProperty = channelProperty;
+    }
+
+    /**
+     * Sets the property holding the reading of a message.
+     *
+     * @param valueProperty The property, or null to read the reading from the message content.
+     */
+    public void setValueProperty(String valueProperty){
+        this.valueProperty = valueProperty;
+    }
+
+    /**
+     * Decides whether {@code message} should be sent, and if so records its reading as the last one sent on its channel.
+     *
+     * @param message The message about to be published.
+     * @return True if the message should be sent, false if it should be suppressed.
+     */
+    public boolean accept(Message message){
+        /*Codes_SRS_JAVA_DEAD_BAND_FILTER_14_008: [ A message without the source property shall be sent without being compared with the readings of any channel. ]*/
+        String source = message.getProperty(this.sourceProperty);
+        if(source == null){
+            synchronized (this){
+                this.unfiltered++;
+            }
+            return true;
+        }
+
+        String reading = reading(message);
+        double value;
+        try {
+            value = reading != null ? Double.parseDouble(reading.trim()) : Double.NaN;
+        } catch (NumberFormatException e) {
+            value = Double.NaN;
+        }
+
+        /*Codes_SRS_JAVA_DEAD_BAND_FILTER_14_003: [ A message without a numeric reading shall be sent. ]*/
+        if(Double.isNaN(value)){
+            synchronized (this){
+                this.unfiltered++;
+            }
+            return true;
+        }
+
+        String channel = this.channelProperty;
+        return accept(channelKey(source, channel != null ? message.getProperty(channel) : null), value, System.nanoTime());
+    }
+
+    /**
+     * Decides whether {@code value} should be sent on {@code channel}, and if so records it as the last value sent.
+     *
+     * @param channel The channel key, such as one returned by {@link #channelKey(String, String)}.
+     * @param value The reading.
+     * @param nanoTime The current {@link System#nanoTime()}.
+     * @return True if the reading should be sent, false if it should be suppressed.
+     */
+    public synchronized boolean accept(long channel, double value, long nanoTime){
+        this.evaluated++;
+
+        boolean send;
+        int slot = this.channels.find(channel);
+        if(slot < 0){
+            /*Codes_SRS_JAVA_DEAD_BAND_FILTER_14_004: [ The first reading of a channel shall be sent. ]*/
+            send = true;
+        }
+        else {
+            double last = this.channels.value(slot);
+            double change = Math.abs(value - last);
+            long silence = nanoTime - this.channels.sentTime(slot);
+
+            /*Codes_SRS_JAVA_DEAD_BAND_FILTER_14_005: [ A reading shall be sent if it differs from the last reading sent on its channel by more than the absolute band or the percent band of the last reading sent, whichever is larger. ]*/
+            if(!(change <= Math.max(this.absoluteBand, Math.abs(last) * this.percentBand / 100))){
+                send = true;
+            }
+            /*Codes_SRS_JAVA_DEAD_BAND_FILTER_14_006: [ A reading within the band shall be sent if the channel has not sent for the heartbeat interval. ]*/
+            /*Codes_SRS_JAVA_DEAD_BAND_FILTER_14_007: [ A reading within the band that differs from the last reading sent shall be sent if the channel has not sent for the maximum silence interval. ]*/
+            else if((this.heartbeatNanos > 0 && silence >= this.heartbeatNanos)
+                    || (this.maxSilenceNanos > 0 && change != 0 && silence >= this.maxSilenceNanos)){
+                send = true;
+                this.forced++;
+            }
+            else {
+                send = false;
+            }
+        }
+
+        if(send){
+            /*Codes_SRS_JAVA_DEAD_BAND_FILTER_14_009: [ Recording the reading of a new channel when the maximum number of channels is reached shall first evict the half of the channels that sent least recently. ]*/
+            this.evicted += this.channels.put(channel, value, nanoTime);
+            this.published++;
+        }
+        else {
+            this.suppressed++;
+        }
+        return send;
+    }
+
+    /**
+     * Combines a source and channel name into a channel key. Different names are assumed to have different keys, which
+     * a 64-bit hash makes practically certain.
+     *
+     * @param source The source name. May be null.
+     * @param channel The channel name. May be null.
+     * @return The channel key.
+     */
+    public static long channelKey(String source, String channel){
+        long hash = 0xCBF29CE484222325L;
+        hash = fnv(hash, source);
+        hash = (hash ^ 0xFFFF) * 0x100000001B3L;
+        return fnv(hash, channel);
+    }
+
+    public synchronized int getChannels(){
+        return this.channels.size();
+    }
+
+    /** The number of readings compared with the last reading sent on their channel. */
+    public long getEvaluated(){
+        return this.evaluated;
+    }
+
+    /** The number of readings sent. */
+    public long getPublished(){
+        return this.published;
+    }
+
+    /** The number of readings suppressed. */
+    public long getSuppressed(){
+        return this.suppressed;
+    }
+
+    /** The number of readings within the band sent because of the heartbeat or maximum silence interval. */
+    public long getForced(){
+        return this.forced;
+    }
+
+    /** The number of messages sent without a numeric reading or without the source property. */
+    public long getUnfiltered(){
+        return this.unfiltered;
+    }
+
+    /** The number of channels evicted to keep the number of channels within {@link #getMaxChannels()}. */
+    public long getEvicted(){
+        return this.evicted;
+    }
+
+    /**
+     * Gets the share of readings suppressed.
+     *
+     * @return The suppressed readings divided by the evaluated readings, or 0 if none were evaluated.
+     */
+    public synchronized double getSuppressionRatio(){
+        return this.evaluated == 0 ? 0 : (double) this.suppressed / this.evaluated;
+    }
+
+    /**
+     * Clears all counters. The last reading sent on each channel is kept.
+     */
+    public synchronized void reset(){
+        this.evaluated = 0;
+        this.published = 0;
+        this.suppressed = 0;
+        this.forced = 0;
+        this.unfiltered = 0;
+        this.evicted = 0;
+    }
+
+    @Override
+    public synchronized String toString(){
+        return String.format("Dead-band filter: %d readings on %d channels, %d suppressed (%.1f%%), %d sent (%d forced), %d messages without reading or source",
+                this.evaluated, this.channels.size(), this.suppressed, 100 * getSuppressionRatio(), this.published, this.forced, this.unfiltered);
+    }
+
+    private String reading(Message message){
+        String property = this.valueProperty;
+        if(property != null){
+            return message.getProperty(property);
+        }
+
+        int length = message.getContentLength();
+        if(length == 0 || length > MAX_READING_LENGTH){
+            return null;
+        }
+        // Read through a stream: getContent() would copy the content out of the serialized message, so that a forwarded
+        // message could no longer reuse its serialized bytes.
+        byte[] bytes = new byte[length];
+        try {
+            InputStream content = message.getContentStream();
+            int read = 0;
+            while(read < length){
+                int count = content.read(bytes, read, length - read);
+                if(count < 0){
+                    return null;
+                }
+                read += count;
+            }
+            return new String(bytes, "UTF-8");
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static long fnv(long hash, String text){
+        if(text != null){
+            for(int index = 0; index < text.length(); index++){
+                char character = text.charAt(index);
+                hash = (hash ^ (character & 0xFF)) * 0x100000001B3L;
+                hash = (hash ^ (character >>> 8)) * 0x100000001B3L;
+            }
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.gateway.filter;
+
+/**
+ * The JMX management interface of a {@link DeadBandFilter}.
+ */
+public interface DeadBandFilterMBean {
+
+    double getAbsoluteBand();
+
+    double getPercentBand();
+
+    long getHeartbeatMillis();
+
+    long getMaxSilenceMillis();
+
+    int getChannels();
+
+    int getMaxChannels();
+
+    long getEvaluated();
+
+    long getPublished();
+
+    long getSuppressed();
+
+    long getForced();
+
+    long getUnfiltered();
+
+    long getEvicted();
+
+    double getSuppressionRatio();
+
+    void reset();
+}
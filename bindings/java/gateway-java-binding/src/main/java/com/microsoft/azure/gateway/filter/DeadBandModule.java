@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.gateway.filter;
+
+import com.microsoft.azure.gateway.core.Broker;
+import com.microsoft.azure.gateway.core.GatewayModule;
+import com.microsoft.azure.gateway.messaging.Message;
+
+import java.io.IOException;
+
+/**
+ * A module that forwards every message it receives unless a {@link DeadBandFilter} suppresses it. Link it between
+ * telemetry producers and their subscribers to cut the number of messages slowly changing signals cost downstream.
+ * Forwarded messages are published unmodified, so their serialized form is reused.
+ *
+ * The configuration is a JSON object, or null; every field is optional:
+ * <pre>
+ * {
+ *   "absolute.band": 0.5,         largest suppressed change in units of the reading (default 0)
+ *   "percent.band": 1,            largest suppressed change in percent of the last reading sent (default 0)
+ *   "heartbeat.millis": 60000,    send a reading within the band after this long without sending (default 0, off)
+ *   "max.silence.millis": 10000,  send a changed reading within the band after this long without sending (default 0, off)
+ *   "max.channels": 65536,        largest number of channels whose last reading is kept (default 65536)
+ *   "source.property": "Source",  property naming the source of a reading
+ *   "channel.property": "channel", property naming the channel within the source, null if sources have one channel
+ *   "value.property": "value"     property holding the reading, the message content if not set
+ * }
+ * </pre>
+ *
+ * The filter and its counters are available as a JMX MBean until the module is destroyed.
+ */
+public class DeadBandModule extends GatewayModule {
+
+    private final DeadBandFilter filter;
+
+    /**
+     * @param address The address of the native module pointer.
+     * @param broker The {@link Broker} to which this module belongs.
+     * @param configuration The JSON configuration described above.
+     * @throws IllegalArgumentException If the configuration is not a JSON object, or holds a field of the wrong type,
+     * a negative band or interval, or a maximum number of channels less than 1.
+     */
+    public DeadBandModule(long address, Broker broker, String configuration){
+        super(address, broker, configuration);
+
+        /*Codes_SRS_JAVA_DEAD_BAND_MODULE_14_001: [ The constructor shall attach a DeadBandFilter configured from the JSON configuration to the publish path of the module. ]*/
+        /*Codes_SRS_JAVA_DEAD_BAND_MODULE_14_004: [ If the configuration is not valid JSON, is not an object or null, or holds a field of the wrong type, the constructor shall throw an IllegalArgumentException. ]*/
+        ModuleConfiguration fields = new ModuleConfiguration(configuration);
+        this.filter = new DeadBandFilter(fields.getNumber("absolute.band", 0), fields.getNumber("percent.band", 0));
+        this.filter.setHeartbeatMillis((long) fields.getNumber("heartbeat.millis", 0));
+        this.filter.setMaxSilenceMillis((long) fields.getNumber("max.silence.millis", 0));
+        this.filter.setMaxChannels((int) fields.getNumber("max.channels", DeadBandFilter.DEFAULT_MAX_CHANNELS));
+        this.filter.setChannelProperties(fields.getString("source.property", DeadBandFilter.DEFAULT_SOURCE_PROPERTY),
+                fields.getString("channel.property", DeadBandFilter.DEFAULT_CHANNEL_PROPERTY));
+        this.filter.setValueProperty(fields.getString("value.property", null));
+        this.setDeadBandFilter(this.filter);
+    }
+
+    public DeadBandFilter getFilter(){
+        return this.filter;
+    }
+
+    @Override
+    public void receive(Message message){
+        /*Codes_SRS_JAVA_DEAD_BAND_MODULE_14_002: [ The function shall publish message unmodified, leaving it to the filter to suppress it. ]*/
+        try {
+            this.publish(message);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public void destroy(){
+        /*Codes_SRS_JAVA_DEAD_BAND_MODULE_14_003: [ The function shall detach the filter. ]*/
+        this.setDeadBandFilter(null);
+    }
+}
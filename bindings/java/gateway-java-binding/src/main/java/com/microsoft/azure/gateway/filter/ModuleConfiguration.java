@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.gateway.filter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The top-level fields of the JSON configuration of a {@link DeadBandModule}, which reads a few numbers and strings
+ * and does not make the binding depend on a JSON library.
+ *
+ * The whole configuration must be valid JSON (RFC 8259): bare words, {@code NaN}, {@code Infinity}, leading zeros and
+ * unknown escapes are rejected. Nested objects and arrays are checked and then skipped, so a field of a nested object
+ * is never taken for a top-level field.
+ */
+final class ModuleConfiguration {
+
+    /** The value of a field that holds {@code null}. */
+    private static final Object NULL = new Object();
+
+    /** The value of a field that holds an object or an array. */
+    private static final Object NESTED = new Object();
+
+    private final Map<String, Object> fields = new HashMap<String, Object>();
+
+    private final String text;
+    private int position;
+
+    /**
+     * Parses a module configuration.
+     *
+     * @param configuration The configuration. Null, empty or the JSON literal {@code null} has no fields.
+     * @throws IllegalArgumentException If {@code configuration} is not a JSON object.
+     */
+    ModuleConfiguration(String configuration){
+        this.text = configuration == null ? "" : configuration;
+
+        String trimmed = this.text.trim();
+        if(trimmed.length() == 0 || trimmed.equals("null")){
+            return;
+        }
+
+        skipWhitespace();
+        if(peek() != '{'){
+            throw invalid("expected an object");
+        }
+        readObject(true);
+        skipWhitespace();
+        if(this.position != this.text.length()){
+            throw invalid("unexpected text after the object");
+        }
+    }
+
+    /**
+     * Gets a number field.
+     *
+     * @param name The name of a top-level field.
+     * @param defaultValue The value returned if the field is missing or null.
+     * @return The value of the field, or {@code defaultValue}.
+     * @throws IllegalArgumentException If the field holds anything but a number or null.
+     */
+    double getNumber(String name, double defaultValue){
+        Object value = this.fields.get(name);
+        if(value == null || value == NULL){
+            return defaultValue;
+        }
+        if(!(value instanceof Double)){
+            throw new IllegalArgumentException("\"" + name + "\" is not a number.");
+        }
+        return (Double) value;
+    }
+
+    /**
+     * Gets a string field.
+     *
+     * @param name The name of a top-level field.
+     * @param defaultValue The value returned if the field is missing.
+     * @return The unescaped value of the field, null if it is null, or {@code defaultValue} if it is missing.
+     * @throws IllegalArgumentException If the field holds anything but a string or null.
+     */
+    String getString(String name, String defaultValue){
+        Object value = this.fields.get(name);
+        if(value == null){
+            return defaultValue;
+        }
+        if(value == NULL){
+            return null;
+        }
+        if(!(value instanceof String)){
+            throw new IllegalArgumentException("\"" + name + "\" is not a string.");
+        }
+        return (String) value;
+    }
+
+    private Object readValue(){
+        char character = peek();
+        if(character == '"'){
+            return readString();
+        }
+        if(character == '{'){
+            readObject(false);
+            return NESTED;
+        }
+        if(character == '['){
+            readArray();
+            return NESTED;
+        }
+        if(character == '-' || (character >= '0' && character <= '9')){
+            return readNumber();
+        }
+        if(consumeWord("true")){
+            return Boolean.TRUE;
+        }
+        if(consumeWord("false")){
+            return Boolean.FALSE;
+        }
+        if(consumeWord("null")){
+            return NULL;
+        }
+        throw invalid("invalid value");
+    }
+
+    private void readObject(boolean topLevel){
+        expect('{');
+        skipWhitespace();
+        if(consume('}')){
+            return;
+        }
+        do {
+            skipWhitespace();
+            String name = readString();
+            skipWhitespace();
+            expect(':');
+            skipWhitespace();
+            Object value = readValue();
+            if(topLevel){
+                this.fields.put(name, value);
+            }
+            skipWhitespace();
+        } while(consume(','));
+        expect('}');
+    }
+
+    private void readArray(){
+        expect('[');
+        skipWhitespace();
+        if(consume(']')){
+            return;
+        }
+        do {
+            skipWhitespace();
+            readValue();
+            skipWhitespace();
+        } while(consume(','));
+        expect(']');
+    }
+
+    private Double readNumber(){
+        int start = this.position;
+        consume('-');
+        if(!consume('0')){
+            if(readDigits() == 0){
+                throw invalid("invalid number");
+            }
+        }
+        if(consume('.') && readDigits() == 0){
+            throw invalid("invalid number");
+        }
+        if(consume('e') || consume('E')){
+            if(!consume('+')){
+                consume('-');
+            }
+            if(readDigits() == 0){
+                throw invalid("invalid number");
+            }
+        }
+        return Double.valueOf(this.text.substring(start, this.position));
+    }
+
+    private int readDigits(){
+        int start = this.position;
+        while(this.position < this.text.length() && this.text.charAt(this.position) >= '0' && this.text.charAt(this.position) <= '9'){
+            this.position++;
+        }
+        return this.position - start;
+    }
+
+    private String readString(){
+        expect('"');
+        StringBuilder value = new StringBuilder();
+        while(true){
+            char character = next();
+            if(character == '"'){
+                return value.toString();
+            }
+            if(character < 0x20){
+                throw invalid("control character in a string");
+            }
+            if(character != '\\'){
+                value.append(character);
+                continue;
+            }
+
+            char escaped = next();
+            switch(escaped){
+                case '"': value.append('"'); break;
+                case '\\': value.append('\\'); break;
+                case '/': value.append('/'); break;
+                case 'b': value.append('\b'); break;
+                case 'f': value.append('\f'); break;
+                case 'n': value.append('\n'); break;
+                case 'r': value.append('\r'); break;
+                case 't': value.append('\t'); break;
+                case 'u':
+                    int code = 0;
+                    for(int digit = 0; digit < 4; digit++){
+                        int hex = Character.digit(next(), 16);
+                        if(hex < 0){
+                            throw invalid("invalid escape");
+                        }
+                        code = code * 16 + hex;
+                    }
+                    value.append((char) code);
+                    break;
+                default:
+                    throw invalid("invalid escape");
+            }
+        }
+    }
+
+    private boolean consumeWord(String word){
+        if(this.text.startsWith(word, this.position)){
+            this.position += word.length();
+            return true;
+        }
+        return false;
+    }
+
+    private void skipWhitespace(){
+        while(this.position < this.text.length() && " \t\n\r".indexOf(this.text.charAt(this.position)) >= 0){
+            this.position++;
+        }
+    }
+
+    private boolean consume(char expected){
+        if(this.position < this.text.length() && this.text.charAt(this.position) == expected){
+            this.position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(char expected){
+        if(!consume(expected)){
+            throw invalid("expected '" + expected + "'");
+        }
+    }
+
+    private char peek(){
+        if(this.position == this.text.length()){
+            throw invalid("unexpected end");
+        }
+        return this.text.charAt(this.position);
+    }
+
+    private char next(){
+        char character = peek();
+        this.position++;
+        return character;
+    }
+
+    private IllegalArgumentException invalid(String reason){
+        return new IllegalArgumentException("The configuration is not a JSON object, " + reason + " at " + this.position + ": " + this.text);
+    }
+}
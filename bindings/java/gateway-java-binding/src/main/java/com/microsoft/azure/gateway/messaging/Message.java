@@ -5,16 +5,63 @@
 package com.microsoft.azure.gateway.messaging;
 
 import java.io.*;
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
 
+/**
+ * A message as it travels through the gateway.
+ *
+ * A {@link Message} decodes its properties and copies or reads its content lazily. That lazy state is guarded by the
+ * {@link Message}'s own monitor, so a {@link Message} may be read from several threads at once. The {@link Map}
+ * returned by {@link Message#getProperties()} is not synchronized, however, and a {@link Message} must not be modified
+ * while another thread reads or serializes it.
+ */
 public final class Message {
 
+    /** The size of a serialized message with no properties and no content. */
+    private static final int MINIMUM_SERIALIZED_SIZE = 14;
+
+    /** The index of the property count in a serialized message. */
+    private static final int PROPERTIES_OFFSET = 6;
+
+    /** The properties, or null while they are still only in {@link Message#serialized}. */
     private Map<String, String> properties;
 
+    /** The serialized form this message was created from or last serialized to, or null if there is none. */
+    private byte[] serialized;
+
+    /** The index of the content size in {@link Message#serialized}, i.e. the end of the property block. */
+    private int propertiesEnd;
+
+    /** The array holding the content. For a de-serialized message this is the serialized message itself. */
     private byte[] content;
 
+    /** The index of the first content byte in {@link Message#content}. */
+    private int contentOffset;
+
+    /** The number of content bytes. */
+    private int contentLength;
+
+    /** The channel the content is still to be read from, or null once the content is in {@link Message#content}. */
+    private ReadableByteChannel contentChannel;
+
+    /** The error reading {@link Message#contentChannel} failed with, or null if it has not failed. */
+    private IOException contentFailure;
+
+    /**
+     * The copy of the content region handed out by {@link Message#getContent()}, or null if none was handed out. The
+     * caller may modify it, so it is compared with the region before the region is reused.
+     */
+    private byte[] contentCopy;
+
     /**
      * Constructor for a {@link Message} with {@code content} {@link byte[]} and {@link Map} {@code properties}.
      *
@@ -26,12 +73,45 @@ public final class Message {
     public Message(byte[] content, Map<String, String> properties){
         /*Codes_SRS_JAVA_MESSAGE_14_003: [ The constructor shall save the message content and properties map. ]*/
         this.content = content != null ? content : new byte[0];
+        this.contentOffset = 0;
+        this.contentLength = this.content.length;
+        this.properties = properties != null ? properties : new HashMap<String, String>();
+    }
+
+    /**
+     * Constructor for a {@link Message} whose content is read from a {@link ReadableByteChannel} of known length.
+     *
+     * The content is not read until the {@link Message} is serialized, at which point it is read directly into the
+     * serialized {@link byte[]}. Use this constructor to publish large content, such as a region of a file opened as a
+     * {@link java.nio.channels.FileChannel}, without holding an extra copy of it on the heap. The channel must be
+     * blocking and is not closed by this {@link Message}. If reading the channel fails, the channel is not read again
+     * and every later attempt to serialize the {@link Message} or read its content fails as well.
+     *
+     * @param content The channel positioned at the first content byte.
+     * @param contentLength The number of bytes to read from {@code content}.
+     * @param properties The string to string map of properties for this message. Null creates an empty {@link Map}
+     *
+     * @throws IllegalArgumentException If {@code content} is null or {@code contentLength} is negative.
+     */
+    public Message(ReadableByteChannel content, int contentLength, Map<String, String> properties){
+        /*Codes_SRS_JAVA_MESSAGE_14_007: [ If content is null or contentLength is negative, the constructor shall throw an IllegalArgumentException. ]*/
+        if(content == null || contentLength < 0){
+            throw new IllegalArgumentException("Content channel is null or content length is negative.");
+        }
+
+        /*Codes_SRS_JAVA_MESSAGE_14_006: [ The constructor shall save the content channel, content length and properties map without reading the channel. ]*/
+        this.contentChannel = content;
+        this.contentLength = contentLength;
         this.properties = properties != null ? properties : new HashMap<String, String>();
     }
 
     /**
      * Construcor for a {@link Message} created from a fully and properly serialized message {@link byte[]}.
      *
+     * Neither the content nor the properties are copied out of {@code serializedMessage}, which must therefore not be
+     * modified afterwards. The properties are decoded the first time {@link Message#getProperties()} is called, and if
+     * the {@link Message} is left unchanged {@link Message#toByteArray()} returns {@code serializedMessage} itself.
+     *
      * @see <a href="https://github.com/Azure/azure-iot-gateway-sdk/blob/master/core/devdoc/message_requirements.md" target="_top">Message Documentation</a>
      *
      * @param serializedMessage The fully serialized message.
@@ -51,101 +131,340 @@ public final class Message {
     /**
      * Serializes the {@link Message} to a {@link byte[]}.
      *
+     * A {@link Message} created from a serialized message is only re-encoded as far as it has changed: if neither its
+     * properties nor its content were modified the original array is returned, and otherwise the unchanged property
+     * block or content is copied from the original array rather than encoded again. The returned array must not be
+     * modified.
+     *
      * @see <a href="https://github.com/Azure/azure-iot-gateway-sdk/blob/master/core/devdoc/message_requirements.md" target="_top">Message Documentation</a>
      *
      * @return The serialized {@link byte[]}.
      * @throws IOException If this {@link Message} cannot be serialized.
      */
-    public byte[] toByteArray() throws IOException {
+    public synchronized byte[] toByteArray() throws IOException {
         /*Codes_SRS_JAVA_MESSAGE_14_004: [ The function shall serialize the Message content and properties according to the specification in message.h ]*/
         /*Codes_SRS_JAVA_MESSAGE_14_005: [ The function shall return throw an IOException if the Message could not be serialized. ]*/
-        ByteArrayOutputStream _bos = new ByteArrayOutputStream();
-        DataOutputStream _dos = new DataOutputStream(_bos);
-
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
-        DataOutputStream dos = new DataOutputStream(bos);
+        /*Codes_SRS_JAVA_MESSAGE_14_019: [ The function shall treat the content as modified only if the array returned by getContent() no longer holds the content it was copied from. ]*/
+        if(this.contentCopy != null && !regionMatches(this.content, this.contentOffset, this.contentCopy)){
+            this.content = this.contentCopy;
+            this.contentOffset = 0;
+            this.contentCopy = null;
+        }
 
-        //Write Properties Count
-        _dos.writeInt(this.properties.size());
+        boolean reuseProperties = this.serialized != null && !propertiesModified();
+        boolean contentSerialized = this.serialized != null && this.content == this.serialized;
 
-        //Write Properties
-        Object[] keys = this.properties.keySet().toArray();
-        for(int index = 0; index < keys.length; index++){
-            byte[] key = ((String)keys[index]).getBytes("UTF-8");
-            _dos.write(key);
-            _dos.writeByte('\0');
-            byte[] value = this.properties.get(keys[index]).getBytes("UTF-8");
-            _dos.write(value);
-            _dos.writeByte('\0');
+        /*Codes_SRS_JAVA_MESSAGE_14_012: [ If neither the properties nor the content have been modified since the Message was created from or serialized to a byte array, the function shall return that byte array. ]*/
+        if(reuseProperties && contentSerialized && this.contentOffset + this.contentLength == this.serialized.length){
+            return this.serialized;
         }
 
-        //Write message content size
-        _dos.writeInt(this.content.length);
+        byte[][] encodedProperties = null;
+        int size = MINIMUM_SERIALIZED_SIZE + this.contentLength;
 
-        //Write message content
-        _dos.write(this.content);
+        if(reuseProperties){
+            size += this.propertiesEnd - PROPERTIES_OFFSET - 4;
+        }
+        else {
+            encodedProperties = new byte[this.properties.size() * 2][];
+            int index = 0;
+            for(Map.Entry<String, String> property : this.properties.entrySet()){
+                encodedProperties[index] = property.getKey().getBytes("UTF-8");
+                encodedProperties[index + 1] = property.getValue().getBytes("UTF-8");
+                size += encodedProperties[index].length + encodedProperties[index + 1].length + 2;
+                index += 2;
+            }
+        }
 
-        byte[] _result = _bos.toByteArray();
+        SerializedMessageOutputStream bos = new SerializedMessageOutputStream(size);
+        DataOutputStream dos = new DataOutputStream(bos);
 
         //Write Header
         dos.writeByte(0xA1);
         dos.writeByte(0x60);
 
         //Write ArraySize
-        dos.writeInt(_result.length + 6);
-        dos.write(_result);
+        dos.writeInt(size);
+
+        /*Codes_SRS_JAVA_MESSAGE_14_013: [ If the properties have not been modified, the function shall copy the property count and properties from the original byte array. ]*/
+        if(reuseProperties){
+            dos.write(this.serialized, PROPERTIES_OFFSET, this.propertiesEnd - PROPERTIES_OFFSET);
+        }
+        else {
+            //Write Properties Count
+            dos.writeInt(this.properties.size());
+
+            //Write Properties
+            for(int index = 0; index < encodedProperties.length; index++){
+                dos.write(encodedProperties[index]);
+                dos.writeByte('\0');
+            }
+        }
+
+        //Write message content size
+        dos.writeInt(this.contentLength);
+
+        //Write message content
+        /*Codes_SRS_JAVA_MESSAGE_14_014: [ If the content has not been modified, the function shall copy it from the original byte array. ]*/
+        /*Codes_SRS_JAVA_MESSAGE_14_008: [ The function shall read a content channel directly into the serialized byte array and keep the content from there. ]*/
+        int serializedContentOffset = bos.size();
+        if(this.contentChannel != null){
+            readContentChannel(bos);
+        }
+        else {
+            dos.write(this.content, this.contentOffset, this.contentLength);
+        }
+
         byte[] result = bos.toByteArray();
 
+        if(this.contentChannel != null || contentSerialized){
+            this.content = result;
+            this.contentOffset = serializedContentOffset;
+            this.contentChannel = null;
+        }
+
+        /*Codes_SRS_JAVA_MESSAGE_14_015: [ The function shall keep the result so that it can be returned again while the Message is not modified. ]*/
+        if(this.properties == null || this.properties instanceof PropertyMap){
+            if(this.properties != null){
+                ((PropertyMap) this.properties).modified = false;
+            }
+            this.serialized = result;
+            this.propertiesEnd = serializedContentOffset - 4;
+        }
+
         return result;
     }
 
-    public Map<String, String> getProperties(){
-        return properties;
+    /**
+     * Gets the properties of this {@link Message}. For a {@link Message} created from a serialized message they are
+     * decoded on the first call. Modifying the returned {@link Map} causes the property block to be encoded again the
+     * next time the {@link Message} is serialized.
+     *
+     * @return The message properties.
+     */
+    public synchronized Map<String, String> getProperties(){
+        /*Codes_SRS_JAVA_MESSAGE_14_016: [ The function shall decode the properties from the serialized message the first time it is called. ]*/
+        if(this.properties == null){
+            this.properties = readProperties();
+        }
+        return this.properties;
+    }
+
+    /**
+     * Gets the value of a single property. For a {@link Message} created from a serialized message whose properties
+     * have not been decoded yet, the property block is searched without decoding the other properties.
+     *
+     * @param key The property name.
+     * @return The property value, or null if this {@link Message} has no such property.
+     */
+    public synchronized String getProperty(String key){
+        if(this.properties != null || key == null){
+            return getProperties().get(key);
+        }
+
+        /*Codes_SRS_JAVA_MESSAGE_14_017: [ If the properties have not been decoded, the function shall search the serialized property block for key without decoding the other properties. ]*/
+        try {
+            byte[] encodedKey = key.getBytes("UTF-8");
+            ByteBuffer buffer = ByteBuffer.wrap(this.serialized, 0, this.propertiesEnd);
+            buffer.position(PROPERTIES_OFFSET);
+            int propCount = buffer.getInt();
+
+            for (int count = 0; count < propCount; count++) {
+                int start = buffer.position();
+                int keyLength = skipNullTerminatedString(buffer) - 1 - start;
+                if (keyLength == encodedKey.length && regionMatches(this.serialized, start, encodedKey)) {
+                    return readNullTerminatedString(buffer);
+                }
+                skipNullTerminatedString(buffer);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read message properties: " + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Gets the content of this {@link Message}. If the content is a region of a larger array, such as the serialized
+     * message this {@link Message} was created from, it is copied into its own array the first time this is called.
+     * The region itself is kept, and it is only replaced by the copy when the {@link Message} is serialized after the
+     * copy was modified. Prefer {@link Message#getContentStream()} or {@link Message#getContentChannel()} for large
+     * content.
+     *
+     * @return The message content.
+     */
+    public synchronized byte[] getContent(){
+        readContentChannel();
+
+        /*Codes_SRS_JAVA_MESSAGE_14_009: [ The function shall return an array holding exactly the content. ]*/
+        if(this.contentOffset == 0 && this.contentLength == this.content.length){
+            return this.content;
+        }
+
+        /*Codes_SRS_JAVA_MESSAGE_14_018: [ The function shall copy the content region under the lock of the Message and return the same copy on every call. ]*/
+        if(this.contentCopy == null){
+            this.contentCopy = Arrays.copyOfRange(this.content, this.contentOffset, this.contentOffset + this.contentLength);
+        }
+        return this.contentCopy;
+    }
+
+    /**
+     * Gets the number of content bytes in this {@link Message}.
+     *
+     * @return The content length.
+     */
+    public int getContentLength(){
+        return this.contentLength;
+    }
+
+    /**
+     * Gets an {@link InputStream} over the content of this {@link Message}. The content is not copied.
+     *
+     * @return A new {@link InputStream} positioned at the first content byte.
+     */
+    public synchronized InputStream getContentStream(){
+        readContentChannel();
+
+        /*Codes_SRS_JAVA_MESSAGE_14_010: [ The function shall return a stream over the content without copying it. ]*/
+        if(this.contentCopy != null){
+            return new ByteArrayInputStream(this.contentCopy);
+        }
+        return new ByteArrayInputStream(this.content, this.contentOffset, this.contentLength);
+    }
+
+    /**
+     * Gets a {@link ReadableByteChannel} over the content of this {@link Message}. The content is not copied.
+     *
+     * @return A new {@link ReadableByteChannel} positioned at the first content byte.
+     */
+    public synchronized ReadableByteChannel getContentChannel(){
+        readContentChannel();
+
+        /*Codes_SRS_JAVA_MESSAGE_14_011: [ The function shall return a channel over the content without copying it. ]*/
+        if(this.contentCopy != null){
+            return new ContentChannel(this.contentCopy, 0, this.contentLength);
+        }
+        return new ContentChannel(this.content, this.contentOffset, this.contentLength);
+    }
+
+    public synchronized String toString(){
+        readContentChannel();
+        String content = this.contentCopy != null ? new String(this.contentCopy) : new String(this.content, this.contentOffset, this.contentLength);
+        return "Content: " + content + "\nProperties: " + getProperties().toString();
+    }
+
+    /**
+     * Reads the content channel, if there is one, into {@link Message#content}. This is only needed when the content
+     * of a {@link Message} constructed from a channel is accessed before the {@link Message} is serialized. Callers
+     * must hold the lock of this {@link Message}.
+     *
+     * @throws IllegalStateException If the channel cannot be read.
+     */
+    private void readContentChannel(){
+        if(this.contentChannel != null){
+            SerializedMessageOutputStream bos = new SerializedMessageOutputStream(this.contentLength);
+            try {
+                readContentChannel(bos);
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not read message content: " + e.getMessage());
+            }
+            this.content = bos.toByteArray();
+            this.contentOffset = 0;
+            this.contentChannel = null;
+        }
+    }
+
+    /**
+     * Reads the content channel into {@code bos}. A failed read leaves the channel partly consumed, so the failure is
+     * kept and thrown again instead of reading the channel a second time. Callers must hold the lock of this
+     * {@link Message}.
+     *
+     * @param bos The stream to read the content into.
+     * @throws IOException If the channel cannot be read, now or on an earlier attempt.
+     */
+    private void readContentChannel(SerializedMessageOutputStream bos) throws IOException {
+        /*Codes_SRS_JAVA_MESSAGE_14_020: [ If the content channel could not be read, the function shall fail without reading the channel again. ]*/
+        if(this.contentFailure != null){
+            throw new IOException("Content channel failed earlier: " + this.contentFailure.getMessage(), this.contentFailure);
+        }
+
+        try {
+            bos.readFrom(this.contentChannel, this.contentLength);
+        } catch (IOException e) {
+            this.contentFailure = e;
+            throw e;
+        }
     }
 
-    public byte[] getContent(){
-        return content;
+    /**
+     * Whether the properties may differ from the property block of {@link Message#serialized}. Properties supplied by
+     * the caller are not tracked and are always considered modified.
+     */
+    private boolean propertiesModified(){
+        return this.properties != null && (!(this.properties instanceof PropertyMap) || ((PropertyMap) this.properties).modified);
     }
 
-    public String toString(){
-        return "Content: " + new String(this.content) + "\nProperties: " + this.properties.toString();
+    /**
+     * Decodes the property block of {@link Message#serialized}, which has already been validated by
+     * {@link Message#fromByteArray(byte[])}.
+     *
+     * @return The decoded properties.
+     */
+    private PropertyMap readProperties(){
+        ByteBuffer buffer = ByteBuffer.wrap(this.serialized, 0, this.propertiesEnd);
+        buffer.position(PROPERTIES_OFFSET);
+        int propCount = buffer.getInt();
+        PropertyMap _properties = new PropertyMap(Math.max(propCount, 0));
+
+        try {
+            for (int count = 0; count < propCount; count++) {
+                String key = readNullTerminatedString(buffer);
+                String value = readNullTerminatedString(buffer);
+                _properties.properties.put(key, value);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read message properties: " + e.getMessage());
+        }
+        return _properties;
     }
 
     /**
-     * Deserializes a byte array and sets the {@link Message#content} and {@link Message#properties}.
+     * Validates a serialized message and sets {@link Message#serialized} and the content region. Neither the content
+     * nor the properties are copied out of {@code serializedMessage}; the properties are decoded on demand by
+     * {@link Message#getProperties()}.
      *
      * @param serializedMessage The message to be deserialized.
      * @throws IOException if the byte array in malformed.
      */
     private void fromByteArray(byte[] serializedMessage) throws IOException {
         try {
-            ByteArrayInputStream bis = new ByteArrayInputStream(serializedMessage);
-            DataInputStream dis = new DataInputStream(bis);
+            ByteBuffer buffer = ByteBuffer.wrap(serializedMessage);
 
             //Get Header
-            byte header1 = dis.readByte();
-            byte header2 = dis.readByte();
+            byte header1 = buffer.get();
+            byte header2 = buffer.get();
             if (header1 == (byte) 0xA1 && header2 == (byte) 0x60) {
-                int arraySize = dis.readInt();
-                if (arraySize >= 14) {
-                    Map<String, String> _properties = new HashMap<String, String>();
-                    int propCount = dis.readInt();
-
-                    if (propCount > 0) {
-                        for (int count = 0; count < propCount; count++) {
-                            byte[] key = readNullTerminatedString(bis);
-                            byte[] value = readNullTerminatedString(bis);
-                            _properties.put(new String(key), new String(value));
-                        }
+                int arraySize = buffer.getInt();
+                if (arraySize >= MINIMUM_SERIALIZED_SIZE) {
+                    int propCount = buffer.getInt();
+
+                    for (int count = 0; count < propCount; count++) {
+                        skipNullTerminatedString(buffer);
+                        skipNullTerminatedString(buffer);
                     }
 
-                    int contentLength = dis.readInt();
-                    byte[] content = new byte[contentLength];
-                    dis.readFully(content);
+                    int _propertiesEnd = buffer.position();
+                    int contentLength = buffer.getInt();
+                    if (contentLength < 0 || contentLength > buffer.remaining()) {
+                        throw new IOException("Invalid content size.");
+                    }
 
                     //At this point it should be safe to set both properties and content
-                    this.properties = _properties;
-                    this.content = content;
+                    this.properties = null;
+                    this.serialized = serializedMessage;
+                    this.propertiesEnd = _propertiesEnd;
+                    this.content = serializedMessage;
+                    this.contentOffset = buffer.position();
+                    this.contentLength = contentLength;
                 } else {
                     throw new IOException("Invalid byte array size.");
                 }
@@ -158,33 +477,218 @@ public final class Message {
     }
 
     /**
-     * Returns the first null-terminated ('\0') sub-array.
+     * Reads the null-terminated ('\0') UTF-8 string starting at the current position of the {@link ByteBuffer} and
+     * moves the position past the terminator.
      *
-     * @param bis The {@link ByteArrayInputStream} object from which to read the string.
-     * @return The null-terminated string in a byte array.
+     * @param buffer The {@link ByteBuffer} from which to read the string.
+     * @return The decoded string.
      * @throws IOException if the null-terminated string could not be read.
      */
-    private byte[] readNullTerminatedString(ByteArrayInputStream bis) throws IOException {
-        ArrayList<Byte> byteArray = new ArrayList<Byte>();
-        byte b = (byte) bis.read();
+    private String readNullTerminatedString(ByteBuffer buffer) throws IOException {
+        int start = buffer.position();
+        int end = skipNullTerminatedString(buffer) - 1;
+        return new String(buffer.array(), start, end - start, "UTF-8");
+    }
 
-        while(b != '\0' && b != -1){
-            byteArray.add(b);
-            b = (byte)bis.read();
+    /**
+     * Whether {@code array} holds all of {@code expected} starting at {@code offset}.
+     */
+    private static boolean regionMatches(byte[] array, int offset, byte[] expected){
+        for(int index = 0; index < expected.length; index++){
+            if(array[offset + index] != expected[index]){
+                return false;
+            }
         }
+        return true;
+    }
 
-        byte[] result;
+    /**
+     * Moves the position of the {@link ByteBuffer} past the null-terminated ('\0') string starting at its current
+     * position without decoding it.
+     *
+     * @param buffer The {@link ByteBuffer} positioned at the start of the string.
+     * @return The new position of the {@link ByteBuffer}.
+     * @throws IOException if the null-terminated string could not be read.
+     */
+    private int skipNullTerminatedString(ByteBuffer buffer) throws IOException {
+        byte[] array = buffer.array();
+        int end = buffer.position();
 
-        if(b != -1) {
+        while(end < buffer.limit() && array[end] != '\0'){
+            end++;
+        }
 
-            result = new byte[byteArray.size()];
-            for (int index = 0; index < result.length; index++) {
-                result[index] = byteArray.get(index);
-            }
-        } else {
+        if(end == buffer.limit()) {
             throw new IOException("Could not read null-terminated string.");
         }
 
-        return result;
+        buffer.position(end + 1);
+        return end + 1;
+    }
+
+    /**
+     * A {@link ByteArrayOutputStream} sized for exactly one serialized message, so that {@link #toByteArray()} hands
+     * out the backing array instead of copying it.
+     */
+    private static final class SerializedMessageOutputStream extends ByteArrayOutputStream {
+
+        SerializedMessageOutputStream(int size){
+            super(size);
+        }
+
+        /**
+         * Reads exactly {@code length} bytes from the channel straight into the backing array.
+         *
+         * @param channel The channel to read from.
+         * @param length The number of bytes to read.
+         * @throws IOException If the channel ends before {@code length} bytes are read.
+         */
+        void readFrom(ReadableByteChannel channel, int length) throws IOException {
+            if(this.buf.length - this.count < length){
+                this.buf = Arrays.copyOf(this.buf, this.count + length);
+            }
+
+            ByteBuffer target = ByteBuffer.wrap(this.buf, this.count, length);
+            while(target.hasRemaining()){
+                if(channel.read(target) < 0){
+                    throw new IOException("Content channel ended after " + (length - target.remaining()) + " of " + length + " bytes.");
+                }
+            }
+            this.count += length;
+        }
+
+        @Override
+        public byte[] toByteArray(){
+            return this.count == this.buf.length ? this.buf : Arrays.copyOf(this.buf, this.count);
+        }
+    }
+
+    /**
+     * The properties of a {@link Message} created from a serialized message. Every change made through the {@link Map}
+     * or its views sets {@link PropertyMap#modified}, so that an unchanged property block can be copied instead of
+     * encoded again.
+     */
+    private static final class PropertyMap extends AbstractMap<String, String> {
+
+        private final HashMap<String, String> properties;
+        private boolean modified;
+
+        PropertyMap(int size){
+            this.properties = new HashMap<String, String>(Math.max((int) (size / .75f) + 1, 16));
+        }
+
+        @Override
+        public int size(){
+            return this.properties.size();
+        }
+
+        @Override
+        public boolean containsKey(Object key){
+            return this.properties.containsKey(key);
+        }
+
+        @Override
+        public String get(Object key){
+            return this.properties.get(key);
+        }
+
+        @Override
+        public String put(String key, String value){
+            this.modified = true;
+            return this.properties.put(key, value);
+        }
+
+        @Override
+        public String remove(Object key){
+            if(!this.properties.containsKey(key)){
+                return null;
+            }
+            this.modified = true;
+            return this.properties.remove(key);
+        }
+
+        @Override
+        public void clear(){
+            if(!this.properties.isEmpty()){
+                this.modified = true;
+                this.properties.clear();
+            }
+        }
+
+        @Override
+        public Set<Map.Entry<String, String>> entrySet(){
+            return new AbstractSet<Map.Entry<String, String>>() {
+                @Override
+                public int size(){
+                    return properties.size();
+                }
+
+                @Override
+                public Iterator<Map.Entry<String, String>> iterator(){
+                    final Iterator<Map.Entry<String, String>> entries = properties.entrySet().iterator();
+                    return new Iterator<Map.Entry<String, String>>() {
+                        public boolean hasNext(){
+                            return entries.hasNext();
+                        }
+
+                        public Map.Entry<String, String> next(){
+                            final Map.Entry<String, String> entry = entries.next();
+                            return new SimpleEntry<String, String>(entry) {
+                                @Override
+                                public String setValue(String value){
+                                    modified = true;
+                                    super.setValue(value);
+                                    return entry.setValue(value);
+                                }
+                            };
+                        }
+
+                        public void remove(){
+                            modified = true;
+                            entries.remove();
+                        }
+                    };
+                }
+            };
+        }
+    }
+
+    /**
+     * A {@link ReadableByteChannel} over a region of an array.
+     */
+    private static final class ContentChannel implements ReadableByteChannel {
+
+        private final byte[] array;
+        private int position;
+        private final int end;
+        private boolean open = true;
+
+        ContentChannel(byte[] array, int offset, int length){
+            this.array = array;
+            this.position = offset;
+            this.end = offset + length;
+        }
+
+        public int read(ByteBuffer dst) throws IOException {
+            if(!this.open){
+                throw new ClosedChannelException();
+            }
+            if(this.position == this.end){
+                return -1;
+            }
+
+            int length = Math.min(dst.remaining(), this.end - this.position);
+            dst.put(this.array, this.position, length);
+            this.position += length;
+            return length;
+        }
+
+        public boolean isOpen(){
+            return this.open;
+        }
+
+        public void close(){
+            this.open = false;
+        }
     }
 }
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.gateway.remote;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.Arrays;
+import java.util.LinkedList;
+
+/**
+ * Writes serialized messages to a channel from a dedicated thread. Callers of {@link #write(byte[])} only queue the
+ * frame, and the writer thread writes every frame queued since its last write with a single gathering write, so a burst
+ * of messages costs one system call instead of one per message. Like the gateway side of the connection, the writer
+ * holds at most {@link #MAX_QUEUED_BYTES} and drops frames beyond that, so a stalled gateway cannot exhaust the heap.
+ */
+class FrameWriter implements Runnable {
+
+    /** The most frames written with one gathering write. */
+    private static final int MAX_BATCH = 64;
+
+    /** The most bytes queued and not yet taken by the writer thread. */
+    static final long MAX_QUEUED_BYTES = 64 * 1024 * 1024;
+
+    private final GatheringByteChannel out;
+    private final LinkedList<byte[]> queue = new LinkedList<byte[]>();
+    private long queuedBytes;
+    private boolean closed;
+    private IOException failure;
+
+    FrameWriter(GatheringByteChannel out){
+        this.out = out;
+    }
+
+    /**
+     * Queues a frame to be written.
+     *
+     * @param frame A serialized message.
+     * @throws IOException If the writer is closed, a previous write failed, or the frame does not fit in the queue.
+     */
+    synchronized void write(byte[] frame) throws IOException {
+        /*Codes_SRS_JAVA_REMOTE_MODULE_HOST_14_010: [ Publishing shall fail with an IOException once the connection is closed or a previous write failed. ]*/
+        if(this.failure != null){
+            throw new IOException("Connection to the gateway was lost.", this.failure);
+        }
+        if(this.closed){
+            throw new IOException("Connection to the gateway is closed.");
+        }
+        /*Codes_SRS_JAVA_REMOTE_MODULE_HOST_14_015: [ Publishing shall drop the message and fail with an IOException if it would take the queued messages beyond 64 MB. ]*/
+        if(this.queuedBytes + frame.length > MAX_QUEUED_BYTES){
+            throw new IOException("The gateway is not keeping up, message dropped.");
+        }
+        this.queue.addLast(frame);
+        this.queuedBytes += frame.length;
+        this.notifyAll();
+    }
+
+    /**
+     * Stops the writer thread once every queued frame has been written.
+     */
+    synchronized void close(){
+        this.closed = true;
+        this.notifyAll();
+    }
+
+    public void run(){
+        ByteBuffer[] buffers = new ByteBuffer[MAX_BATCH];
+        while(true){
+            int count = 0;
+            synchronized (this){
+                while(this.queue.isEmpty() && !this.closed){
+                    try {
+                        this.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                if(this.queue.isEmpty()){
+                    return;
+                }
+
+                /*Codes_SRS_JAVA_REMOTE_MODULE_HOST_14_011: [ The writer thread shall write all queued frames, up to 64 at a time, with one gathering write. ]*/
+                while(!this.queue.isEmpty() && count < MAX_BATCH){
+                    byte[] frame = this.queue.removeFirst();
+                    this.queuedBytes -= frame.length;
+                    buffers[count++] = ByteBuffer.wrap(frame);
+                }
+            }
+
+            try {
+                while(buffers[count - 1].hasRemaining()){
+                    this.out.write(buffers, 0, count);
+                }
+            } catch (IOException e) {
+                synchronized (this){
+                    this.failure = e;
+                    this.queue.clear();
+                    this.queuedBytes = 0;
+                }
+                return;
+            }
+            Arrays.fill(buffers, 0, count, null);
+        }
+    }
+}
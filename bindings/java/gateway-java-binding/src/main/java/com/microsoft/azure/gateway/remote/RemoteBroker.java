@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.gateway.remote;
+
+import com.microsoft.azure.gateway.core.Broker;
+import com.microsoft.azure.gateway.messaging.Message;
+
+import java.io.IOException;
+
+/**
+ * The {@link Broker} handed to a module hosted by {@link RemoteModuleHost}. Published messages are sent back over the
+ * module's connection and published to the native broker by the gateway process.
+ */
+class RemoteBroker extends Broker {
+
+    private final FrameWriter writer;
+
+    RemoteBroker(FrameWriter writer){
+        super(0);
+        this.writer = writer;
+    }
+
+    @Override
+    public int publishMessage(Message message, long moduleAddr) throws IOException {
+        /*Codes_SRS_JAVA_REMOTE_MODULE_HOST_14_009: [ Messages published by the module shall be serialized and queued on the connection without waiting for the socket. ]*/
+        this.writer.write(message.toByteArray());
+        return 0;
+    }
+}
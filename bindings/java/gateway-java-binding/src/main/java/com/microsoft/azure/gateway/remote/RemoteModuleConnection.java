@@ -0,0 +1,282 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.gateway.remote;
+
+import com.microsoft.azure.gateway.core.Broker;
+import com.microsoft.azure.gateway.core.GatewayModule;
+import com.microsoft.azure.gateway.core.IGatewayModule;
+import com.microsoft.azure.gateway.messaging.Message;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Hosts one module for one connection from the gateway process.
+ *
+ * Every frame on the connection starts with {@code 0xA1}, a frame type and the big-endian size of the whole frame.
+ * A {@link #MESSAGE_FRAME} is a serialized {@link Message} and is passed to {@link IGatewayModule#receive(byte[])}
+ * without being interpreted. A {@link #CONTROL_FRAME} holds one control code that creates, starts or destroys the
+ * module; a message can never be taken for one, whatever its properties. The create request is answered with a
+ * {@link #CONTROL_CREATED} or {@link #CONTROL_ERROR} frame, the only control frames sent to the gateway. Messages
+ * published by the module are written back on the same connection as message frames.
+ */
+public class RemoteModuleConnection implements Runnable {
+
+    /** The first byte of every frame. */
+    public static final byte FRAME_MAGIC = (byte) 0xA1;
+
+    /** The frame type of a serialized {@link Message}, which is the second byte of the serialized form. */
+    public static final byte MESSAGE_FRAME = 0x60;
+
+    /** The frame type of a control frame, which holds a control code after the header. */
+    public static final byte CONTROL_FRAME = 0x61;
+
+    /**
+     * Asks for an instance of a module class, configured with a JSON string. The control code is followed by the class
+     * name, a {@code '\0'} and the configuration, all in UTF-8; an empty configuration stands for null.
+     */
+    public static final byte CONTROL_CREATE = 1;
+
+    /** Asks for {@link GatewayModule#warmup()}, if the module has it, and {@link IGatewayModule#start()} to be called. */
+    public static final byte CONTROL_START = 2;
+
+    /** Asks for {@link IGatewayModule#destroy()} to be called and the connection to be closed. */
+    public static final byte CONTROL_DESTROY = 3;
+
+    /** Answers a {@link #CONTROL_CREATE} frame once the module is created. */
+    public static final byte CONTROL_CREATED = 4;
+
+    /**
+     * Answers a {@link #CONTROL_CREATE} frame that could not be handled, before the connection is closed. The control
+     * code is followed by a description of the error in UTF-8.
+     */
+    public static final byte CONTROL_ERROR = 5;
+
+    private static final int HEADER_SIZE = 6;
+    private static final int MINIMUM_MESSAGE_FRAME_SIZE = 14;
+    private static final int MINIMUM_CONTROL_FRAME_SIZE = HEADER_SIZE + 1;
+    private static final int MAXIMUM_FRAME_SIZE = 64 * 1024 * 1024;
+
+    private final ReadableByteChannel in;
+    private final GatheringByteChannel out;
+    private final FrameWriter writer;
+    private final long address;
+    private IGatewayModule module;
+
+    /**
+     * @param in The channel frames from the gateway are read from.
+     * @param out The channel frames published by the module are written to.
+     * @param address The non-zero address the module is created with. It only identifies the module within this process.
+     */
+    public RemoteModuleConnection(ReadableByteChannel in, GatheringByteChannel out, long address){
+        /*Codes_SRS_JAVA_REMOTE_MODULE_HOST_14_001: [ If in or out is null or address is 0 the constructor shall throw an IllegalArgumentException. ]*/
+        if(in == null || out == null || address == 0){
+            throw new IllegalArgumentException("Channels cannot be null and address cannot be 0.");
+        }
+
+        this.in = in;
+        this.out = out;
+        this.writer = new FrameWriter(out);
+        this.address = address;
+    }
+
+    /**
+     * Reads and handles frames until the gateway destroys the module or closes the connection.
+     */
+    public void run(){
+        Thread writerThread = new Thread(this.writer, "remote-module-writer-" + this.address);
+        writerThread.setDaemon(true);
+        writerThread.start();
+
+        boolean destroyed = false;
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while(!destroyed){
+                header.clear();
+                readFully(header);
+                byte[] frame = new byte[readFrameSize(header)];
+                System.arraycopy(header.array(), 0, frame, 0, HEADER_SIZE);
+                readFully(ByteBuffer.wrap(frame, HEADER_SIZE, frame.length - HEADER_SIZE));
+                destroyed = handle(frame);
+            }
+        } catch (EOFException e) {
+            // The gateway closed the connection.
+        } catch (IOException e) {
+            System.err.println("Connection to the gateway failed: " + e);
+        } finally {
+            /*Codes_SRS_JAVA_REMOTE_MODULE_HOST_14_008: [ If the connection is lost before a destroy frame arrives, the module shall be destroyed. ]*/
+            if(!destroyed && this.module != null){
+                destroyModule();
+            }
+
+            /*Codes_SRS_JAVA_REMOTE_MODULE_HOST_14_012: [ Before returning, the function shall write all frames already published and close both channels. ]*/
+            this.writer.close();
+            try {
+                writerThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            closeQuietly(this.in);
+            closeQuietly(this.out);
+        }
+    }
+
+    private boolean handle(byte[] frame) throws IOException {
+        /*Codes_SRS_JAVA_REMOTE_MODULE_HOST_14_003: [ A message frame shall be passed to receive(byte[]) of the module without interpreting its properties. ]*/
+        if(frame[1] == MESSAGE_FRAME){
+            if(this.module == null){
+                throw new IOException("Message received before the module was created.");
+            }
+            try {
+                this.module.receive(frame);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+            return false;
+        }
+
+        byte control = frame[HEADER_SIZE];
+        if(control == CONTROL_CREATE){
+            /*Codes_SRS_JAVA_REMOTE_MODULE_HOST_14_004: [ A create frame shall instantiate the class it names, configured with the configuration it holds, and fail the connection if that is not possible. ]*/
+            /*Codes_SRS_JAVA_REMOTE_MODULE_HOST_14_017: [ A create frame shall be answered with a created frame, or with an error frame before the connection fails. ]*/
+            try {
+                this.module = createModule(frame);
+            } catch (IOException e) {
+                this.writer.write(controlFrame(CONTROL_ERROR, e.getCause() == null ? e.getMessage() : e.getMessage() + " " + e.getCause()));
+                throw e;
+            }
+            this.writer.write(controlFrame(CONTROL_CREATED, null));
+            return false;
+        }
+        else if(control == CONTROL_START){
+            /*Codes_SRS_JAVA_REMOTE_MODULE_HOST_14_005: [ A start frame shall call warmup() on a GatewayModule and then start() on the module, calling start() even if warmup() throws. ]*/
+            if(this.module != null){
+                if(this.module instanceof GatewayModule){
+                    try {
+                        ((GatewayModule) this.module).warmup();
+                    } catch (RuntimeException e) {
+                        e.printStackTrace();
+                    } catch (LinkageError e) {
+                        // A module compiled against another binding version; warming up is optional.
+                    }
+                }
+                try {
+                    this.module.start();
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+            }
+            return false;
+        }
+        else if(control == CONTROL_DESTROY){
+            /*Codes_SRS_JAVA_REMOTE_MODULE_HOST_14_006: [ A destroy frame shall call destroy() on the module and end the connection. ]*/
+            if(this.module != null){
+                destroyModule();
+            }
+            return true;
+        }
+        else {
+            /*Codes_SRS_JAVA_REMOTE_MODULE_HOST_14_007: [ A control frame with an unknown control code shall be ignored. ]*/
+            System.err.println("Ignoring unknown control frame: " + control);
+            return false;
+        }
+    }
+
+    private IGatewayModule createModule(byte[] frame) throws IOException {
+        if(this.module != null){
+            throw new IOException("The module was already created.");
+        }
+        int classNameEnd = MINIMUM_CONTROL_FRAME_SIZE;
+        while(classNameEnd < frame.length && frame[classNameEnd] != 0){
+            classNameEnd++;
+        }
+        if(classNameEnd == frame.length || classNameEnd == MINIMUM_CONTROL_FRAME_SIZE){
+            throw new IOException("Create frame without a class name.");
+        }
+        String className = new String(frame, MINIMUM_CONTROL_FRAME_SIZE, classNameEnd - MINIMUM_CONTROL_FRAME_SIZE, "UTF-8");
+        int configurationLength = frame.length - classNameEnd - 1;
+        return createModule(className, configurationLength == 0 ? null : new String(frame, classNameEnd + 1, configurationLength, "UTF-8"));
+    }
+
+    private IGatewayModule createModule(String className, String configuration) throws IOException {
+        Broker broker = new RemoteBroker(this.writer);
+        try {
+            Class<?> moduleClass = Class.forName(className);
+            try {
+                Constructor<?> constructor = moduleClass.getConstructor(long.class, Broker.class, String.class);
+                return (IGatewayModule) constructor.newInstance(this.address, broker, configuration);
+            } catch (NoSuchMethodException e) {
+                IGatewayModule module = (IGatewayModule) moduleClass.newInstance();
+                module.create(this.address, broker, configuration);
+                return module;
+            }
+        } catch (InvocationTargetException e) {
+            throw new IOException("Could not create " + className + ".", e.getCause());
+        } catch (Exception e) {
+            throw new IOException("Could not create " + className + ".", e);
+        }
+    }
+
+    private void destroyModule(){
+        try {
+            this.module.destroy();
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static byte[] controlFrame(byte control, String text) throws IOException {
+        byte[] body = text == null ? new byte[0] : text.getBytes("UTF-8");
+        ByteBuffer frame = ByteBuffer.allocate(MINIMUM_CONTROL_FRAME_SIZE + body.length);
+        frame.put(FRAME_MAGIC).put(CONTROL_FRAME).putInt(frame.capacity()).put(control).put(body);
+        return frame.array();
+    }
+
+    private int readFrameSize(ByteBuffer header) throws IOException {
+        /*Codes_SRS_JAVA_REMOTE_MODULE_HOST_14_002: [ The function shall end the connection if a frame does not start with 0xA1 0x60 or 0xA1 0x61 or its size is out of range. ]*/
+        header.flip();
+        if(header.get() != FRAME_MAGIC){
+            throw new IOException("Invalid frame header.");
+        }
+        byte type = header.get();
+        int minimumSize;
+        if(type == MESSAGE_FRAME){
+            minimumSize = MINIMUM_MESSAGE_FRAME_SIZE;
+        }
+        else if(type == CONTROL_FRAME){
+            minimumSize = MINIMUM_CONTROL_FRAME_SIZE;
+        }
+        else {
+            throw new IOException("Invalid frame type.");
+        }
+        int size = header.getInt();
+        if(size < minimumSize || size > MAXIMUM_FRAME_SIZE){
+            throw new IOException("Invalid frame size: " + size + ".");
+        }
+        return size;
+    }
+
+    private void readFully(ByteBuffer buffer) throws IOException {
+        while(buffer.hasRemaining()){
+            if(this.in.read(buffer) < 0){
+                throw new EOFException();
+            }
+        }
+    }
+
+    private static void closeQuietly(Channel channel){
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Nothing left to do with the channel.
+        }
+    }
+}
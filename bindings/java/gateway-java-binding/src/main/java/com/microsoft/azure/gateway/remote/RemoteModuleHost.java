@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.gateway.remote;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.net.SocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Hosts Java modules in a JVM separate from the gateway process.
+ *
+ * The host listens on a Unix domain socket. A Java module whose entrypoint sets {@code remote.address} to the same path
+ * is not loaded into a JVM inside the gateway; instead the gateway connects to this host, which creates the module and
+ * exchanges serialized messages with the gateway over that connection. Garbage collection pauses, heap sizing and JVM
+ * crashes of this process then no longer stall or take down the native broker.
+ *
+ * Every connection is served by a reader thread, which calls into the module, and a writer thread. A gateway only
+ * connects once per remote module, and module code may block in {@code receive}, so a selector shared by all
+ * connections would let one slow module stall the others without saving more than a few threads.
+ *
+ * Usage: {@code java -cp <gateway-java-binding.jar>:<module classes> com.microsoft.azure.gateway.remote.RemoteModuleHost <socket path>}
+ *
+ * Unix domain socket channels need Java 16 or later at runtime. They are looked up reflectively so that the binding
+ * keeps building for older Java versions.
+ */
+public final class RemoteModuleHost {
+
+    /**
+     * The system property set to {@code true} while running inside a {@link RemoteModuleHost}. It stops
+     * {@link com.microsoft.azure.gateway.core.Broker} from loading the native library, which is not needed outside the
+     * gateway process.
+     */
+    public static final String REMOTE_HOST_PROPERTY = "gateway.remote.host";
+
+    private RemoteModuleHost(){
+    }
+
+    public static void main(String[] args) throws IOException {
+        if(args.length != 1){
+            System.err.println("Usage: RemoteModuleHost <socket path>");
+            System.exit(1);
+        }
+
+        System.setProperty(REMOTE_HOST_PROPERTY, "true");
+
+        ServerSocketChannel server = open(args[0]);
+        long address = 0;
+        while(true){
+            /*Codes_SRS_JAVA_REMOTE_MODULE_HOST_14_013: [ The host shall serve every accepted connection from its own thread, with one module per connection. ]*/
+            SocketChannel channel = server.accept();
+            address++;
+            new Thread(new RemoteModuleConnection(channel, channel, address), "remote-module-" + address).start();
+        }
+    }
+
+    /**
+     * Opens a server channel listening on the Unix domain socket at {@code path}, replacing a stale socket file left
+     * behind by a host that has exited.
+     *
+     * @param path The socket path.
+     * @return The listening channel.
+     * @throws IOException If the channel cannot be opened, {@code path} is a regular file, a directory or a socket
+     * another host is listening on, or the running Java version has no Unix domain socket channels.
+     */
+    public static ServerSocketChannel open(String path) throws IOException {
+        SocketAddress address;
+        ServerSocketChannel server;
+        SocketChannel probe;
+        try {
+            Object unix = Class.forName("java.net.StandardProtocolFamily").getField("UNIX").get(null);
+            Class<?> protocolFamily = Class.forName("java.net.ProtocolFamily");
+            server = (ServerSocketChannel) ServerSocketChannel.class.getMethod("open", protocolFamily).invoke(null, unix);
+            probe = (SocketChannel) SocketChannel.class.getMethod("open", protocolFamily).invoke(null, unix);
+            address = (SocketAddress) Class.forName("java.net.UnixDomainSocketAddress")
+                    .getMethod("of", String.class)
+                    .invoke(null, path);
+        } catch (InvocationTargetException e) {
+            throw new IOException("Could not open a Unix domain socket.", e.getCause());
+        } catch (Exception e) {
+            /*Codes_SRS_JAVA_REMOTE_MODULE_HOST_14_014: [ If the running Java version has no Unix domain socket channels, the function shall throw an IOException. ]*/
+            throw new IOException("Unix domain sockets require Java 16 or later.", e);
+        }
+
+        try {
+            File file = new File(path);
+            if(file.exists()){
+                /*Codes_SRS_JAVA_REMOTE_MODULE_HOST_14_016: [ If a file exists at path, the function shall delete it only if it is a socket no host accepts connections on, and throw an IOException otherwise. ]*/
+                if(file.isFile() || file.isDirectory()){
+                    server.close();
+                    throw new IOException(path + " exists and is not a socket.");
+                }
+                if(accepts(probe, address)){
+                    server.close();
+                    throw new IOException("Another host is listening on " + path + ".");
+                }
+                file.delete();
+            }
+        } finally {
+            probe.close();
+        }
+
+        server.bind(address);
+        return server;
+    }
+
+    private static boolean accepts(SocketChannel probe, SocketAddress address){
+        try {
+            return probe.connect(address);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
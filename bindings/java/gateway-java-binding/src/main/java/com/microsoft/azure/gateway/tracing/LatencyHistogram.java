@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.gateway.tracing;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of latencies in microseconds.
+ *
+ * Values below 16 are counted exactly. Larger values are counted in log-linear buckets: every power of two is split
+ * into 16 equal sub-buckets, so a reported percentile is at most 1/16th (6.25%) above the recorded value. Any number of
+ * threads may call {@link #record(long)} concurrently.
+ */
+public class LatencyHistogram implements LatencyHistogramMBean {
+
+    /** The number of sub-buckets each power of two is split into. */
+    private static final int SUB_BUCKETS = 16;
+
+    /** log2 of {@link LatencyHistogram#SUB_BUCKETS}. */
+    private static final int SUB_BUCKET_BITS = 4;
+
+    /** Enough buckets for every non-negative long. */
+    private static final int BUCKETS = (63 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records one latency. Negative values, which can only come from a clock going backwards, are recorded as 0.
+     *
+     * @param micros The latency in microseconds.
+     */
+    public void record(long micros){
+        /*Codes_SRS_JAVA_LATENCY_HISTOGRAM_14_001: [ The function shall record negative values as 0. ]*/
+        long value = Math.max(micros, 0);
+
+        /*Codes_SRS_JAVA_LATENCY_HISTOGRAM_14_002: [ The function shall update the bucket, count, sum and maximum without locking. ]*/
+        this.buckets.incrementAndGet(bucketIndex(value));
+        this.count.incrementAndGet();
+        this.sum.addAndGet(value);
+
+        long currentMax = this.max.get();
+        while(value > currentMax && !this.max.compareAndSet(currentMax, value)){
+            currentMax = this.max.get();
+        }
+    }
+
+    public long getCount(){
+        return this.count.get();
+    }
+
+    public double getMean(){
+        long currentCount = this.count.get();
+        return currentCount == 0 ? 0 : (double) this.sum.get() / currentCount;
+    }
+
+    public long getMax(){
+        return this.max.get();
+    }
+
+    /**
+     * Gets the latency below or at which {@code percentile} percent of the recorded latencies fall.
+     *
+     * @param percentile The percentile, between 0 and 100.
+     * @return The highest latency in the bucket holding the percentile, capped at the maximum recorded latency, or 0 if
+     * nothing has been recorded.
+     * @throws IllegalArgumentException If {@code percentile} is not between 0 and 100.
+     */
+    public long getPercentile(double percentile){
+        /*Codes_SRS_JAVA_LATENCY_HISTOGRAM_14_003: [ If percentile is not between 0 and 100 the function shall throw an IllegalArgumentException. ]*/
+        if(percentile < 0 || percentile > 100){
+            throw new IllegalArgumentException("Percentile must be between 0 and 100.");
+        }
+
+        long total = 0;
+        long[] snapshot = new long[BUCKETS];
+        for(int index = 0; index < BUCKETS; index++){
+            snapshot[index] = this.buckets.get(index);
+            total += snapshot[index];
+        }
+
+        if(total == 0){
+            return 0;
+        }
+
+        /*Codes_SRS_JAVA_LATENCY_HISTOGRAM_14_004: [ The function shall return the highest value of the bucket holding the percentile, capped at the maximum recorded value. ]*/
+        long target = Math.max((long) Math.ceil(percentile / 100 * total), 1);
+        long seen = 0;
+        for(int index = 0; index < BUCKETS; index++){
+            seen += snapshot[index];
+            if(seen >= target){
+                return Math.min(highestValue(index), this.max.get());
+            }
+        }
+        return this.max.get();
+    }
+
+    public long getP50(){
+        return getPercentile(50);
+    }
+
+    public long getP90(){
+        return getPercentile(90);
+    }
+
+    public long getP99(){
+        return getPercentile(99);
+    }
+
+    public long getP999(){
+        return getPercentile(99.9);
+    }
+
+    /**
+     * Clears all recorded latencies. Latencies recorded while this runs may be partly kept.
+     */
+    public void reset(){
+        for(int index = 0; index < BUCKETS; index++){
+            this.buckets.set(index, 0);
+        }
+        this.count.set(0);
+        this.sum.set(0);
+        this.max.set(0);
+    }
+
+    private static int bucketIndex(long value){
+        if(value < SUB_BUCKETS){
+            return (int) value;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long highestValue(int index){
+        if(index < SUB_BUCKETS){
+            return index;
+        }
+
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int subBucket = index % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return ((SUB_BUCKETS + subBucket) * width) + width - 1;
+    }
+}
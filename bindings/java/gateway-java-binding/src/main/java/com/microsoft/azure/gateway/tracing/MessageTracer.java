@@ -0,0 +1,384 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package com.microsoft.azure.gateway.tracing;
+
+import com.microsoft.azure.gateway.messaging.Message;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Samples messages published by Java modules and measures how long they take to reach the next Java module and each
+ * module after that.
+ *
+ * A sampled {@link Message} carries a single {@link MessageTracer#TRACE_PROPERTY} property holding the id of the JVM
+ * that started the trace, the trace id, the module and time it was first published, and the module and time it was last
+ * published. When a module receives a
+ * traced {@link Message}, the time since the last publish is recorded as the hop latency of the link from the last
+ * publishing module to the receiving module, and the time since the first publish as the end-to-end latency of the
+ * link from the first publishing module to the receiving module. A module that publishes a traced {@link Message} it
+ * received, or a new {@link Message} with the same properties, moves the trace on to the next hop. The trace is added
+ * to a copy of the {@link Message}, so the {@link Message} and property {@link Map} a module publishes are never
+ * modified.
+ *
+ * Times are taken from {@link System#nanoTime()}, so latencies are only meaningful between modules running in the same
+ * JVM. A trace started in another JVM, such as that of a module hosted by a
+ * {@link com.microsoft.azure.gateway.remote.RemoteModuleHost}, is never recorded; publishing a message carrying one
+ * samples it like an untraced message.
+ *
+ * The default tracer used by {@link com.microsoft.azure.gateway.core.GatewayModule} is configured with JVM system
+ * properties: {@value #SAMPLE_INTERVAL_PROPERTY} traces one in that many published messages (0, the default, turns
+ * tracing off) and {@value #DUMP_INTERVAL_PROPERTY} prints all histograms to standard output every that many seconds.
+ * Its histograms are also registered as JMX MBeans named
+ * {@code com.microsoft.azure.gateway:type=MessageLatency,kind=<hop|end-to-end>,link=<source -> destination>}.
+ */
+public final class MessageTracer {
+
+    /** The name of the property carrying the trace of a sampled {@link Message}. */
+    public static final String TRACE_PROPERTY = "$trace";
+
+    /** The JVM system property holding the default sample interval. */
+    public static final String SAMPLE_INTERVAL_PROPERTY = "gateway.trace.sampleInterval";
+
+    /** The JVM system property holding the default dump interval in seconds. */
+    public static final String DUMP_INTERVAL_PROPERTY = "gateway.trace.dumpInterval";
+
+    private static final String JMX_DOMAIN = "com.microsoft.azure.gateway";
+    private static final String HOP = "hop";
+    private static final String END_TO_END = "end-to-end";
+    private static final char SEPARATOR = ';';
+
+    /** Identifies the traces started in this JVM, whose times are comparable with {@link System#nanoTime()}. */
+    private static final String JVM_ID = Long.toHexString(new Random().nextLong());
+
+    private static final MessageTracer DEFAULT = createDefault();
+
+    private final boolean registerMBeans;
+    private final ConcurrentMap<String, LatencyHistogram> hopLatencies = new ConcurrentHashMap<String, LatencyHistogram>();
+    private final ConcurrentMap<String, LatencyHistogram> endToEndLatencies = new ConcurrentHashMap<String, LatencyHistogram>();
+    private final AtomicLong published = new AtomicLong();
+    private final long idBase = new Random().nextLong();
+
+    private volatile int sampleInterval;
+    private Timer dumpTimer;
+
+    /**
+     * Creates a {@link MessageTracer} whose histograms are not registered with JMX.
+     *
+     * @param sampleInterval Trace one in {@code sampleInterval} published messages. 0 turns tracing off.
+     * @throws IllegalArgumentException If {@code sampleInterval} is negative.
+     */
+    public MessageTracer(int sampleInterval){
+        this(sampleInterval, false);
+    }
+
+    private MessageTracer(int sampleInterval, boolean registerMBeans){
+        this.registerMBeans = registerMBeans;
+        setSampleInterval(sampleInterval);
+    }
+
+    /**
+     * Gets the {@link MessageTracer} used by all {@link com.microsoft.azure.gateway.core.GatewayModule}s in this JVM.
+     *
+     * @return The default {@link MessageTracer}.
+     */
+    public static MessageTracer getDefault(){
+        return DEFAULT;
+    }
+
+    public int getSampleInterval(){
+        return this.sampleInterval;
+    }
+
+    /**
+     * Sets how many published messages there are for every traced one.
+     *
+     * @param sampleInterval Trace one in {@code sampleInterval} published messages. 0 turns tracing off.
+     * @throws IllegalArgumentException If {@code sampleInterval} is negative.
+     */
+    public void setSampleInterval(int sampleInterval){
+        /*Codes_SRS_JAVA_MESSAGE_TRACER_14_001: [ If sampleInterval is negative the function shall throw an IllegalArgumentException. ]*/
+        if(sampleInterval < 0){
+            throw new IllegalArgumentException("Sample interval is negative.");
+        }
+        this.sampleInterval = sampleInterval;
+    }
+
+    /**
+     * Whether messages are traced. While tracing is off, {@link #onPublish(Message, String)} and
+     * {@link #onReceive(Message, String)} do nothing.
+     *
+     * @return True if the sample interval is not 0.
+     */
+    public boolean isEnabled(){
+        return this.sampleInterval > 0;
+    }
+
+    /**
+     * Called before {@code module} publishes {@code message}. Moves the trace of an already traced {@link Message} on
+     * to this hop, or starts a trace for one in every {@link #getSampleInterval()} other messages.
+     *
+     * @param message The {@link Message} about to be published.
+     * @param module The name of the publishing module.
+     * @return The {@link Message} to publish instead of {@code message}: a copy carrying the trace if it is traced,
+     *         otherwise {@code message} itself.
+     */
+    public Message onPublish(Message message, String module){
+        return onPublish(message, module, System.nanoTime());
+    }
+
+    /**
+     * Called before {@code module} publishes {@code message} at {@code nanoTime}. See
+     * {@link #onPublish(Message, String)}.
+     *
+     * @param message The {@link Message} about to be published.
+     * @param module The name of the publishing module.
+     * @param nanoTime The current {@link System#nanoTime()}.
+     * @return The {@link Message} to publish instead of {@code message}.
+     */
+    public Message onPublish(Message message, String module, long nanoTime){
+        int interval = this.sampleInterval;
+        if(interval <= 0){
+            return message;
+        }
+
+        long now = micros(nanoTime);
+        String trace = message.getProperty(TRACE_PROPERTY);
+        String[] fields = trace != null ? parse(trace) : null;
+        String value = null;
+
+        /*Codes_SRS_JAVA_MESSAGE_TRACER_14_002: [ If message is traced, the function shall replace the last publishing module and time in its trace property. ]*/
+        if(fields != null && JVM_ID.equals(fields[0])){
+            value = format(fields[1], fields[2], fields[3], now, module);
+        }
+        /*Codes_SRS_JAVA_MESSAGE_TRACER_14_003: [ Otherwise the function shall add a trace property to one in every sampleInterval messages. ]*/
+        /*Codes_SRS_JAVA_MESSAGE_TRACER_14_010: [ A trace started in another JVM shall be treated like no trace. ]*/
+        else if(trace == null || fields != null){
+            long sequence = this.published.getAndIncrement();
+            if(sequence % interval == 0){
+                String id = Long.toHexString(this.idBase + sequence);
+                value = format(id, Long.toHexString(now), module, now, module);
+            }
+        }
+
+        if(value == null){
+            return message;
+        }
+
+        /*Codes_SRS_JAVA_MESSAGE_TRACER_14_004: [ The function shall add the trace property to a new Message with the content and a copy of the properties of message, and leave message and its properties unmodified. ]*/
+        Map<String, String> properties = new HashMap<String, String>(message.getProperties());
+        properties.put(TRACE_PROPERTY, value);
+        return new Message(message.getContentChannel(), message.getContentLength(), properties);
+    }
+
+    /**
+     * Called after {@code module} receives {@code message}. Records the hop and end-to-end latency of a traced
+     * {@link Message}.
+     *
+     * @param message The received {@link Message}.
+     * @param module The name of the receiving module.
+     */
+    public void onReceive(Message message, String module){
+        onReceive(message, module, System.nanoTime());
+    }
+
+    /**
+     * Called after {@code module} receives {@code message} at {@code nanoTime}. See
+     * {@link #onReceive(Message, String)}.
+     *
+     * @param message The received {@link Message}.
+     * @param module The name of the receiving module.
+     * @param nanoTime The current {@link System#nanoTime()}.
+     */
+    public void onReceive(Message message, String module, long nanoTime){
+        if(this.sampleInterval <= 0){
+            return;
+        }
+
+        String trace = message.getProperty(TRACE_PROPERTY);
+        if(trace == null){
+            return;
+        }
+
+        /*Codes_SRS_JAVA_MESSAGE_TRACER_14_005: [ The function shall ignore a trace property that cannot be parsed. ]*/
+        /*Codes_SRS_JAVA_MESSAGE_TRACER_14_010: [ A trace started in another JVM shall be treated like no trace. ]*/
+        String[] fields = parse(trace);
+        if(fields == null || !JVM_ID.equals(fields[0])){
+            return;
+        }
+
+        /*Codes_SRS_JAVA_MESSAGE_TRACER_14_006: [ The function shall record the time since the last publish in the hop histogram of the link from the last publishing module to module. ]*/
+        /*Codes_SRS_JAVA_MESSAGE_TRACER_14_007: [ The function shall record the time since the first publish in the end-to-end histogram of the link from the first publishing module to module. ]*/
+        try {
+            long now = micros(nanoTime);
+            long origin = Long.parseLong(fields[2], 16);
+            long hop = Long.parseLong(fields[4], 16);
+            histogram(this.hopLatencies, HOP, fields[5], module).record(now - hop);
+            histogram(this.endToEndLatencies, END_TO_END, fields[3], module).record(now - origin);
+        } catch (NumberFormatException e) {
+            //Not a trace written by this class, nothing to record
+        }
+    }
+
+    /**
+     * Gets the hop latency histogram of the link from {@code source} to {@code destination}.
+     *
+     * @return The histogram, or null if no hop over this link has been recorded.
+     */
+    public LatencyHistogram getHopLatency(String source, String destination){
+        return this.hopLatencies.get(link(source, destination));
+    }
+
+    /**
+     * Gets the end-to-end latency histogram of messages first published by {@code source} and received by
+     * {@code destination}.
+     *
+     * @return The histogram, or null if no such message has been recorded.
+     */
+    public LatencyHistogram getEndToEndLatency(String source, String destination){
+        return this.endToEndLatencies.get(link(source, destination));
+    }
+
+    /**
+     * Prints every histogram as one line of text.
+     *
+     * @param out The stream to print to.
+     */
+    public void dump(PrintStream out){
+        /*Codes_SRS_JAVA_MESSAGE_TRACER_14_008: [ The function shall print a header line followed by one line per hop and end-to-end histogram. ]*/
+        StringBuilder text = new StringBuilder();
+        text.append("Message latency in microseconds at ").append(new Date()).append('\n');
+        text.append(String.format("%-10s %-40s %10s %10s %10s %10s %10s %10s %10s%n",
+                "kind", "link", "count", "mean", "p50", "p90", "p99", "p99.9", "max"));
+        dump(text, HOP, this.hopLatencies);
+        dump(text, END_TO_END, this.endToEndLatencies);
+        out.print(text);
+        out.flush();
+    }
+
+    /**
+     * Prints every histogram to {@code out} every {@code periodSeconds} seconds from a daemon thread, replacing any
+     * previous schedule.
+     *
+     * @param periodSeconds The time between two dumps in seconds. 0 stops dumping.
+     * @param out The stream to print to.
+     * @throws IllegalArgumentException If {@code periodSeconds} is negative or {@code out} is null.
+     */
+    public synchronized void scheduleDump(long periodSeconds, final PrintStream out){
+        /*Codes_SRS_JAVA_MESSAGE_TRACER_14_009: [ If periodSeconds is negative or out is null the function shall throw an IllegalArgumentException. ]*/
+        if(periodSeconds < 0 || out == null){
+            throw new IllegalArgumentException("Dump period is negative or output stream is null.");
+        }
+
+        if(this.dumpTimer != null){
+            this.dumpTimer.cancel();
+            this.dumpTimer = null;
+        }
+
+        if(periodSeconds > 0){
+            this.dumpTimer = new Timer("gateway-message-tracer", true);
+            this.dumpTimer.scheduleAtFixedRate(new TimerTask() {
+                @Override
+                public void run(){
+                    dump(out);
+                }
+            }, periodSeconds * 1000, periodSeconds * 1000);
+        }
+    }
+
+    /**
+     * Clears all histograms. Histograms registered with JMX stay registered.
+     */
+    public void reset(){
+        for(LatencyHistogram histogram : this.hopLatencies.values()){
+            histogram.reset();
+        }
+        for(LatencyHistogram histogram : this.endToEndLatencies.values()){
+            histogram.reset();
+        }
+    }
+
+    private LatencyHistogram histogram(ConcurrentMap<String, LatencyHistogram> histograms, String kind, String source, String destination){
+        String link = link(source, destination);
+        LatencyHistogram histogram = histograms.get(link);
+        if(histogram == null){
+            LatencyHistogram created = new LatencyHistogram();
+            histogram = histograms.putIfAbsent(link, created);
+            if(histogram == null){
+                histogram = created;
+                if(this.registerMBeans){
+                    register(kind, link, created);
+                }
+            }
+        }
+        return histogram;
+    }
+
+    private static void register(String kind, String link, LatencyHistogram histogram){
+        try {
+            ObjectName name = new ObjectName(JMX_DOMAIN + ":type=MessageLatency,kind=" + kind + ",link=" + ObjectName.quote(link));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(histogram, name);
+        } catch (JMException e) {
+            //The histogram is still available through dump()
+        }
+    }
+
+    private static void dump(StringBuilder text, String kind, Map<String, LatencyHistogram> histograms){
+        List<String> links = new ArrayList<String>(histograms.keySet());
+        Collections.sort(links);
+        for(String link : links){
+            LatencyHistogram histogram = histograms.get(link);
+            text.append(String.format("%-10s %-40s %10d %10.1f %10d %10d %10d %10d %10d%n",
+                    kind, link, histogram.getCount(), histogram.getMean(), histogram.getP50(), histogram.getP90(),
+                    histogram.getP99(), histogram.getP999(), histogram.getMax()));
+        }
+    }
+
+    private static String link(String source, String destination){
+        return source + " -> " + destination;
+    }
+
+    private static String format(String id, String origin, String originModule, long hop, String hopModule){
+        return JVM_ID + SEPARATOR + id + SEPARATOR + origin + SEPARATOR + originModule + SEPARATOR + Long.toHexString(hop)
+                + SEPARATOR + hopModule;
+    }
+
+    /**
+     * Splits a trace into JVM id, trace id, origin time, origin module, hop time and hop module.
+     *
+     * @return The six fields, or null if {@code trace} does not have six fields.
+     */
+    private static String[] parse(String trace){
+        String[] fields = trace.split(String.valueOf(SEPARATOR), -1);
+        return fields.length == 6 ? fields : null;
+    }
+
+    private static long micros(long nanoTime){
+        return nanoTime / 1000;
+    }
+
+    private static MessageTracer createDefault(){
+        MessageTracer tracer = new MessageTracer(Math.max(Integer.getInteger(SAMPLE_INTERVAL_PROPERTY, 0), 0), true);
+        long dumpInterval = Long.getLong(DUMP_INTERVAL_PROPERTY, 0);
+        if(dumpInterval > 0){
+            tracer.scheduleDump(dumpInterval, System.out);
+        }
+        return tracer;
+    }
+}
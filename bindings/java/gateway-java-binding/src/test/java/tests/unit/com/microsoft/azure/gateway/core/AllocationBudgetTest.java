@@ -0,0 +1,264 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package tests.unit.com.microsoft.azure.gateway.core;
+
+import com.microsoft.azure.gateway.core.Broker;
+import com.microsoft.azure.gateway.core.GatewayModule;
+import com.microsoft.azure.gateway.messaging.Message;
+import mockit.Mocked;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Guards the number of bytes allocated per message on the hot paths of the binding. Every allocation on these paths
+ * ends up as garbage the collector has to clean up, so a change that adds one shows up as longer or more frequent GC
+ * pauses long before it shows up in a profiler.
+ *
+ * Each test runs its operation until it is compiled, then measures the bytes the current thread allocates over
+ * {@link #OPERATIONS} runs with {@code com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long)} and fails if the
+ * average exceeds the budget. The smallest of {@link #ROUNDS} measurements is used, so a one-off allocation by the JVM
+ * itself does not fail the test. Tests are skipped on JVMs without per-thread allocation counters.
+ *
+ * Budgets are not fixed byte counts, since object headers, pointer size and string layout differ between JVM vendors,
+ * versions and settings. They are percentages of a baseline measured the same way in the same run: decoding the
+ * fixture into a plain {@link HashMap} of new strings and copying its content, which is what any decoder has to
+ * allocate. If a change legitimately needs more memory per message, raise the budget in the same change and say why.
+ */
+public class AllocationBudgetTest {
+
+    @Mocked(stubOutClassInitialization = true)
+    protected Broker mockBroker;
+
+    /*
+     * Budgets in percent of the baseline per message for the fixture below: 4 properties and 256 bytes of content. They
+     * were taken on Temurin 8u392, 11.0.21, 17.0.9 and 21.0.1 on Linux x64, each with and without compressed object
+     * pointers and escape analysis. Each leaves some room above the range measured there, given after the budget.
+     */
+
+    /** Wrapping the serialized bytes and decoding all properties and the content: 107% to 119%. */
+    private static final long DECODE_BUDGET = 135;
+
+    /** Wrapping the serialized bytes and looking up one property without decoding the others: 15% to 26%. */
+    private static final long PROPERTY_LOOKUP_BUDGET = 33;
+
+    /** Building a {@link Message} from content and properties and serializing it: 68% to 119%. */
+    private static final long ENCODE_BUDGET = 135;
+
+    /** {@link GatewayModule#receive(byte[])} up to the call of {@link GatewayModule#receive(Message)}: 4% to 11%. */
+    private static final long RECEIVE_BUDGET = 12;
+
+    /** Forwarding a received {@link Message} unmodified through {@link GatewayModule#publish(Message)}: 4% to 11%. */
+    private static final long PUBLISH_BUDGET = 12;
+
+    private static final int WARMUP_OPERATIONS = 50000;
+    private static final int OPERATIONS = 20000;
+    private static final int ROUNDS = 5;
+
+    private interface Operation {
+        void run() throws IOException;
+    }
+
+    /** Counts the bytes published instead of keeping them, which would allocate on the measured path. */
+    private static class CountingBroker extends StubBroker {
+
+        int published;
+
+        @Override
+        public int publishMessage(Message message, long moduleAddr) throws IOException {
+            this.published += message.toByteArray().length;
+            return 0;
+        }
+    }
+
+    private static class NullModule extends GatewayModule {
+
+        int received;
+
+        NullModule(Broker broker){
+            super(1, broker, null);
+        }
+
+        @Override
+        public void receive(Message message){
+            this.received++;
+        }
+
+        @Override
+        public void destroy(){
+        }
+    }
+
+    private static final byte[] CONTENT = new byte[256];
+    private static final Map<String, String> PROPERTIES = new HashMap<String, String>();
+
+    static {
+        PROPERTIES.put("source", "temperature-sensor");
+        PROPERTIES.put("macAddress", "01:02:03:03:02:01");
+        PROPERTIES.put("deviceId", "device-0001");
+        PROPERTIES.put("unit", "celsius");
+    }
+
+    private static final byte[] SERIALIZED = serialize();
+
+    /** The properties of the fixture as UTF-8, key and value alternating, for the baseline. */
+    private static final byte[][] ENCODED_PROPERTIES = encodeProperties();
+
+    /** Bytes per message allocated by the baseline, measured by the first test that needs it. */
+    private static long baseline;
+
+    /** Keeps results reachable so that the JIT cannot remove the measured work. */
+    private static volatile Object sink;
+
+    private static byte[] serialize(){
+        try {
+            return new Message(CONTENT, PROPERTIES).toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[][] encodeProperties(){
+        byte[][] encoded = new byte[PROPERTIES.size() * 2][];
+        int index = 0;
+        try {
+            for(Map.Entry<String, String> property : PROPERTIES.entrySet()){
+                encoded[index++] = property.getKey().getBytes("UTF-8");
+                encoded[index++] = property.getValue().getBytes("UTF-8");
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return encoded;
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean(){
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if(!(bean instanceof com.sun.management.ThreadMXBean)){
+            return null;
+        }
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        if(!threads.isThreadAllocatedMemorySupported()){
+            return null;
+        }
+        if(!threads.isThreadAllocatedMemoryEnabled()){
+            threads.setThreadAllocatedMemoryEnabled(true);
+        }
+        return threads;
+    }
+
+    private static long baseline(com.sun.management.ThreadMXBean threads) throws IOException {
+        if(baseline == 0){
+            baseline = bytesPerOperation(threads, new Operation() {
+                public void run() throws IOException {
+                    Map<String, String> properties = new HashMap<String, String>();
+                    for(int index = 0; index < ENCODED_PROPERTIES.length; index += 2){
+                        byte[] key = ENCODED_PROPERTIES[index];
+                        byte[] value = ENCODED_PROPERTIES[index + 1];
+                        properties.put(new String(key, 0, key.length, "UTF-8"), new String(value, 0, value.length, "UTF-8"));
+                    }
+                    sink = properties;
+                    sink = CONTENT.clone();
+                }
+            });
+        }
+        return baseline;
+    }
+
+    private static long bytesPerOperation(com.sun.management.ThreadMXBean threads, Operation operation) throws IOException {
+        long threadId = Thread.currentThread().getId();
+        for(int count = 0; count < WARMUP_OPERATIONS; count++){
+            operation.run();
+        }
+
+        long least = Long.MAX_VALUE;
+        for(int round = 0; round < ROUNDS; round++){
+            long before = threads.getThreadAllocatedBytes(threadId);
+            for(int count = 0; count < OPERATIONS; count++){
+                operation.run();
+            }
+            long after = threads.getThreadAllocatedBytes(threadId);
+            least = Math.min(least, (after - before) / OPERATIONS);
+        }
+        return least;
+    }
+
+    private static void assertWithinBudget(String path, long budget, Operation operation) throws IOException {
+        com.sun.management.ThreadMXBean threads = threadBean();
+        assumeTrue("This JVM cannot count allocated bytes per thread.", threads != null);
+
+        long reference = baseline(threads);
+        assumeTrue("This JVM allocated nothing for the baseline.", reference > 0);
+
+        long allocated = bytesPerOperation(threads, operation);
+        if(allocated * 100 > budget * reference){
+            fail(String.format(
+                    "%s allocates %d bytes per message, %d%% of the baseline of %d bytes and over its budget of %d%% "
+                    + "(4 properties, %d bytes of content). Find the new allocation on this path, or raise the budget in %s "
+                    + "and explain why.",
+                    path, allocated, allocated * 100 / reference, reference, budget, CONTENT.length,
+                    AllocationBudgetTest.class.getSimpleName()));
+        }
+    }
+
+    @Test
+    public void decodeStaysWithinBudget() throws IOException {
+        assertWithinBudget("decode (new Message(byte[]), getProperties, getContent)", DECODE_BUDGET, new Operation() {
+            public void run(){
+                Message message = new Message(SERIALIZED);
+                sink = message.getProperties();
+                sink = message.getContent();
+            }
+        });
+    }
+
+    @Test
+    public void propertyLookupStaysWithinBudget() throws IOException {
+        assertWithinBudget("decode (new Message(byte[]), getProperty)", PROPERTY_LOOKUP_BUDGET, new Operation() {
+            public void run(){
+                sink = new Message(SERIALIZED).getProperty("deviceId");
+            }
+        });
+    }
+
+    @Test
+    public void encodeStaysWithinBudget() throws IOException {
+        assertWithinBudget("encode (new Message(content, properties), toByteArray)", ENCODE_BUDGET, new Operation() {
+            public void run() throws IOException {
+                sink = new Message(CONTENT, PROPERTIES).toByteArray();
+            }
+        });
+    }
+
+    @Test
+    public void receiveDispatchStaysWithinBudget() throws IOException {
+        final NullModule module = new NullModule(new StubBroker());
+        assertWithinBudget("GatewayModule.receive(byte[])", RECEIVE_BUDGET, new Operation() {
+            public void run(){
+                module.receive(SERIALIZED);
+            }
+        });
+        assertTrue(module.received > 0);
+    }
+
+    @Test
+    public void publishStaysWithinBudget() throws IOException {
+        CountingBroker broker = new CountingBroker();
+        final NullModule module = new NullModule(broker);
+        assertWithinBudget("GatewayModule.publish(Message), forwarded", PUBLISH_BUDGET, new Operation() {
+            public void run() throws IOException {
+                module.publish(new Message(SERIALIZED));
+            }
+        });
+        assertTrue(broker.published > 0);
+    }
+}
@@ -7,11 +7,19 @@ package tests.unit.com.microsoft.azure.gateway.core;
 import com.microsoft.azure.gateway.core.GatewayModule;
 import com.microsoft.azure.gateway.core.Broker;
 import com.microsoft.azure.gateway.messaging.Message;
+import com.microsoft.azure.gateway.tracing.MessageTracer;
 import mockit.Deencapsulation;
 import mockit.Mocked;
+import mockit.Verifications;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 
 public class GatewayModuleTest {
 
@@ -51,6 +59,129 @@ public class GatewayModuleTest {
         GatewayModule module = new TestModule(0, mockBroker, null);
     }
 
+    /*Tests_SRS_JAVA_GATEWAY_MODULE_14_004: [ The function shall call receive(byte[]) with the serialized sample iterations times. ]*/
+    @Test
+    public void warmupReceivesSampleIterationsTimes(){
+        WarmupModule module = new WarmupModule(0x12345678, mockBroker, null, 25);
+
+        module.warmup();
+
+        assertEquals(25, module.received);
+    }
+
+    /*Tests_SRS_JAVA_GATEWAY_MODULE_14_005: [ On the thread running warmup(Message, int), the function shall serialize the message and return 0 without publishing it to the Broker. ]*/
+    @Test
+    public void warmupDoesNotPublishToBroker() throws IOException {
+        WarmupModule module = new WarmupModule(0x12345678, mockBroker, null, 25);
+
+        module.warmup();
+
+        new Verifications()
+        {
+            {
+                mockBroker.publishMessage((Message) any, anyLong);
+                times = 0;
+            }
+        };
+    }
+
+    /*Tests_SRS_JAVA_GATEWAY_MODULE_14_005: [ On the thread running warmup(Message, int), the function shall serialize the message and return 0 without publishing it to the Broker. ]*/
+    @Test
+    public void publishAfterWarmupPublishesToBroker() throws IOException {
+        WarmupModule module = new WarmupModule(0x12345678, mockBroker, null, 25);
+
+        module.warmup();
+        module.publish(new Message("34".getBytes(), null));
+
+        new Verifications()
+        {
+            {
+                mockBroker.publishMessage((Message) any, anyLong);
+                times = 1;
+            }
+        };
+    }
+
+    /*Tests_SRS_JAVA_GATEWAY_MODULE_14_005: [ On the thread running warmup(Message, int), the function shall serialize the message and return 0 without publishing it to the Broker. ]*/
+    @Test
+    public void publishFromAnotherThreadDuringWarmupPublishesToBroker() throws IOException {
+        WarmupModule module = new WarmupModule(0x12345678, mockBroker, null, 25) {
+            @Override
+            public void receive(Message message) {
+                super.receive(message);
+                if(this.received == 1){
+                    publishFromAnotherThread(this, new Message("35".getBytes(), null));
+                }
+            }
+        };
+
+        module.warmup();
+
+        final List<Message> published = new ArrayList<Message>();
+        new Verifications()
+        {
+            {
+                mockBroker.publishMessage(withCapture(published), anyLong);
+                times = 1;
+            }
+        };
+        assertEquals("35", new String(published.get(0).getContent()));
+    }
+
+    /*Tests_SRS_JAVA_GATEWAY_MODULE_14_003: [ If sample is null or iterations is negative the function shall throw an IllegalArgumentException. ]*/
+    @Test(expected = IllegalArgumentException.class)
+    public void warmupThrowsExceptionForNegativeIterations(){
+        WarmupModule module = new WarmupModule(0x12345678, mockBroker, null, -1);
+
+        module.warmup();
+    }
+
+    /*Tests_SRS_JAVA_GATEWAY_MODULE_14_006: [ Unless called on the thread running warmup(Message, int), the function shall record the latency of a traced message with the default MessageTracer before calling receive(Message). ]*/
+    /*Tests_SRS_JAVA_GATEWAY_MODULE_14_007: [ The function shall let the default MessageTracer trace the message before publishing it to the Broker. ]*/
+    @Test
+    public void publishAndReceiveTraceMessages() throws IOException {
+        WarmupModule module = new WarmupModule(0x12345678, mockBroker, null, 0);
+        Message message = new Message("34".getBytes(), null);
+        final List<Message> published = new ArrayList<Message>();
+        MessageTracer.getDefault().setSampleInterval(1);
+
+        try {
+            module.publish(message);
+            new Verifications()
+            {
+                {
+                    mockBroker.publishMessage(withCapture(published), anyLong);
+                }
+            };
+            module.receive(published.get(0).toByteArray());
+        } finally {
+            MessageTracer.getDefault().setSampleInterval(0);
+        }
+
+        assertNull(message.getProperty(MessageTracer.TRACE_PROPERTY));
+        assertNotNull(published.get(0).getProperty(MessageTracer.TRACE_PROPERTY));
+        assertEquals("WarmupModule@12345678", module.getName());
+        assertNotNull(MessageTracer.getDefault().getHopLatency(module.getName(), module.getName()));
+    }
+
+    private static void publishFromAnotherThread(final GatewayModule module, final Message message){
+        Thread publisher = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    module.publish(message);
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+        publisher.start();
+        try {
+            publisher.join();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     public class TestModule extends GatewayModule{
 
         /**
@@ -75,4 +206,40 @@ public class GatewayModuleTest {
 
         }
     }
+
+    public class WarmupModule extends GatewayModule{
+
+        public int received;
+
+        private int iterations;
+
+        public WarmupModule(long address, Broker broker, String configuration, int iterations) {
+            super(address, broker, configuration);
+            this.iterations = iterations;
+        }
+
+        @Override
+        public void warmup() {
+            try {
+                this.warmup(new Message("34".getBytes(), null), this.iterations);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public void receive(Message message) {
+            this.received++;
+            try {
+                this.publish(message);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public void destroy() {
+
+        }
+    }
 }
@@ -0,0 +1,378 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package tests.unit.com.microsoft.azure.gateway.core;
+
+import com.microsoft.azure.gateway.core.Broker;
+import com.microsoft.azure.gateway.core.GatewayModule;
+import com.microsoft.azure.gateway.core.PriorityLane;
+import com.microsoft.azure.gateway.core.PriorityLanes;
+import com.microsoft.azure.gateway.messaging.Message;
+import mockit.Mocked;
+import org.junit.Test;
+
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class PriorityLanesTest {
+
+    @Mocked(stubOutClassInitialization = true)
+    protected Broker mockBroker;
+
+    private static final String[] NAMES = { "alarm", "control", "telemetry" };
+
+    /** Blocks in the call handling the message with id "block" until released. */
+    private static class Gate {
+
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch released = new CountDownLatch(1);
+
+        void pass(String id){
+            if("block".equals(id)){
+                this.entered.countDown();
+                try {
+                    this.released.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private static class GatedBroker extends StubBroker {
+
+        final Gate gate = new Gate();
+
+        @Override
+        public int publishMessage(Message message, long moduleAddr) throws IOException {
+            this.gate.pass(message.getProperty("id"));
+            return super.publishMessage(message, moduleAddr);
+        }
+
+        String publishedIds(){
+            List<String> ids = new ArrayList<String>();
+            synchronized (this.getPublished()){
+                for(byte[] published : this.getPublished()){
+                    ids.add(new Message(published).getProperty("id"));
+                }
+            }
+            return ids.toString();
+        }
+    }
+
+    private static class LaneModule extends GatewayModule {
+
+        final List<String> received = Collections.synchronizedList(new ArrayList<String>());
+        final Gate gate = new Gate();
+
+        LaneModule(Broker broker){
+            super(0x1234, broker, null);
+        }
+
+        @Override
+        public void receive(Message message){
+            String id = message.getProperty("id");
+            this.gate.pass(id);
+            this.received.add(id);
+        }
+
+        @Override
+        public void destroy(){
+            this.setPriorityLanes(null);
+        }
+    }
+
+    private static Message message(String id, String priority){
+        Map<String, String> properties = new HashMap<String, String>();
+        properties.put("id", id);
+        if(priority != null){
+            properties.put("priority", priority);
+        }
+        return new Message(new byte[0], properties);
+    }
+
+    private static byte[] serialized(String id, String priority) throws IOException {
+        return message(id, priority).toByteArray();
+    }
+
+    private static void await(CountDownLatch latch) throws InterruptedException {
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+    }
+
+    /** Waits until {@code thread} waits without a timeout, as in {@link Thread#join()}. */
+    private static void awaitWaiting(Thread thread){
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while(thread.getState() != Thread.State.WAITING){
+            assertTrue("Thread did not wait", System.nanoTime() < deadline);
+            Thread.yield();
+        }
+    }
+
+    /*Tests_SRS_JAVA_PRIORITY_LANES_14_001: [ If property is null or empty, names is null, empty or holds a null or repeated name, capacity is less than 1, weights is not null and does not hold one positive weight per lane, or overflow is null, the constructor shall throw an IllegalArgumentException. ]*/
+    @Test
+    public void constructorThrowsExceptionForInvalidArguments(){
+        Object[][] invalid = {
+                { null, NAMES, 1, null, PriorityLanes.Overflow.WAIT },
+                { "", NAMES, 1, null, PriorityLanes.Overflow.WAIT },
+                { "priority", new String[0], 1, null, PriorityLanes.Overflow.WAIT },
+                { "priority", new String[] { "a", "a" }, 1, null, PriorityLanes.Overflow.WAIT },
+                { "priority", new String[] { "a", null }, 1, null, PriorityLanes.Overflow.WAIT },
+                { "priority", NAMES, 0, null, PriorityLanes.Overflow.WAIT },
+                { "priority", NAMES, 1, new int[] { 1, 1 }, PriorityLanes.Overflow.WAIT },
+                { "priority", NAMES, 1, new int[] { 1, 0, 1 }, PriorityLanes.Overflow.WAIT },
+                { "priority", NAMES, 1, null, null },
+        };
+        for(Object[] arguments : invalid){
+            try {
+                new PriorityLanes((String) arguments[0], (String[]) arguments[1], (Integer) arguments[2], (int[]) arguments[3],
+                        (PriorityLanes.Overflow) arguments[4]);
+                fail("No exception for " + java.util.Arrays.deepToString(arguments));
+            } catch (IllegalArgumentException e) {
+                //Expected
+            }
+        }
+    }
+
+    /*Tests_SRS_JAVA_PRIORITY_LANES_14_002: [ A message whose property holds a lane name or lane number shall go to that lane. ]*/
+    /*Tests_SRS_JAVA_PRIORITY_LANES_14_003: [ A message without the property or with any other value shall go to the last lane. ]*/
+    @Test
+    public void laneOfMapsNamesAndNumbers(){
+        PriorityLanes lanes = new PriorityLanes(PriorityLanes.DEFAULT_PROPERTY, NAMES, 10);
+
+        assertEquals(0, lanes.laneOf(message("a", "alarm")));
+        assertEquals(1, lanes.laneOf(message("b", "1")));
+        assertEquals(2, lanes.laneOf(message("c", null)));
+        assertEquals(2, lanes.laneOf(message("d", "urgent")));
+        assertEquals(2, lanes.laneOf(message("e", "7")));
+        assertTrue(lanes.isStrict());
+    }
+
+    /*Tests_SRS_JAVA_GATEWAY_MODULE_14_008: [ Unless called on the thread running warmup(Message, int), if priority lanes are set the function shall queue the message in its lane and return, leaving receive(Message) to the lane dispatcher thread. ]*/
+    /*Tests_SRS_JAVA_PRIORITY_LANES_14_005: [ Lanes served strictly shall always dispatch from the highest priority lane holding a message. ]*/
+    /*Tests_SRS_JAVA_PRIORITY_LANES_14_008: [ Once closed, the dispatcher thread shall dispatch every queued message and then end. ]*/
+    @Test
+    public void strictLanesReceiveUrgentMessagesFirst() throws Exception {
+        LaneModule module = new LaneModule(new StubBroker());
+        module.setPriorityLanes(new PriorityLanes(PriorityLanes.DEFAULT_PROPERTY, NAMES, 10));
+
+        module.receive(serialized("block", null));
+        await(module.gate.entered);
+        module.receive(serialized("t1", null));
+        module.receive(serialized("t2", "telemetry"));
+        module.receive(serialized("c1", "control"));
+        module.receive(serialized("a1", "alarm"));
+        module.gate.released.countDown();
+        module.destroy();
+
+        assertEquals("[block, a1, c1, t1, t2]", module.received.toString());
+        assertEquals(0, module.getReceiveLanes().length);
+    }
+
+    /*Tests_SRS_JAVA_PRIORITY_LANES_14_006: [ Lanes served by weight shall each dispatch up to their weight in messages in turn, skipping empty lanes. ]*/
+    @Test
+    public void weightedLanesTakeTurns() throws Exception {
+        LaneModule module = new LaneModule(new StubBroker());
+        module.setPriorityLanes(new PriorityLanes("priority", new String[] { "high", "low" }, 10, new int[] { 2, 1 }));
+
+        module.receive(serialized("block", "low"));
+        await(module.gate.entered);
+        for(int count = 1; count <= 4; count++){
+            module.receive(serialized("h" + count, "high"));
+        }
+        for(int count = 1; count <= 4; count++){
+            module.receive(serialized("l" + count, "low"));
+        }
+        module.gate.released.countDown();
+        module.destroy();
+
+        assertEquals("[block, h1, h2, l1, h3, h4, l2, l3, l4]", module.received.toString());
+    }
+
+    /*Tests_SRS_JAVA_GATEWAY_MODULE_14_009: [ If priority lanes are set, any other message shall be serialized, queued in its lane and published to the Broker by the lane dispatcher thread, and the function shall return 0. ]*/
+    /*Tests_SRS_JAVA_GATEWAY_MODULE_14_010: [ If priority lanes are set, a message of the highest priority lane shall be published to the Broker immediately, bypassing the queued messages. ]*/
+    /*Tests_SRS_JAVA_GATEWAY_MODULE_14_011: [ The function shall deliver every message queued in the previous lanes before replacing them. ]*/
+    @Test
+    public void urgentPublishesBypassQueuedMessages() throws Exception {
+        GatedBroker broker = new GatedBroker();
+        LaneModule module = new LaneModule(broker);
+        module.setPriorityLanes(new PriorityLanes(PriorityLanes.DEFAULT_PROPERTY, NAMES, 10));
+
+        assertEquals(0, module.publish(message("block", "telemetry")));
+        await(broker.gate.entered);
+        assertEquals(0, module.publish(message("t1", "telemetry")));
+        assertEquals(0, module.publish(message("a1", "alarm")));
+        assertEquals("[a1]", broker.publishedIds());
+
+        PriorityLane[] lanes = module.getPublishLanes();
+        assertEquals(1, lanes[0].getBypassed());
+        assertEquals(0, lanes[0].getEnqueued());
+        assertEquals(2, lanes[2].getEnqueued());
+        assertEquals(1, lanes[2].getDepth());
+
+        broker.gate.released.countDown();
+        module.destroy();
+
+        assertEquals("[a1, block, t1]", broker.publishedIds());
+        assertEquals(2, lanes[2].getDispatched());
+        assertEquals(0, lanes[2].getDepth());
+        assertEquals(1, lanes[2].getMaxDepth());
+        assertEquals(2, lanes[2].getWaitTime().getCount());
+    }
+
+    /*Tests_SRS_JAVA_GATEWAY_MODULE_14_009: [ If priority lanes are set, any other message shall be serialized, queued in its lane and published to the Broker by the lane dispatcher thread, and the function shall return 0. ]*/
+    @Test
+    public void queuedPublishesKeepSerializedBytes() throws Exception {
+        StubBroker broker = new StubBroker();
+        LaneModule module = new LaneModule(broker);
+        module.setPriorityLanes(new PriorityLanes(PriorityLanes.DEFAULT_PROPERTY, NAMES, 10));
+
+        byte[] serialized = serialized("t1", "telemetry");
+        assertEquals(0, module.publish(new Message(serialized)));
+        module.destroy();
+
+        assertEquals(1, broker.getPublished().size());
+        assertSame(serialized, broker.getPublished().get(0));
+    }
+
+    /*Tests_SRS_JAVA_GATEWAY_MODULE_14_011: [ The function shall deliver every message queued in the previous lanes before replacing them. ]*/
+    @Test
+    public void replacingLanesDoesNotHoldModuleLockWhileDelivering() throws Exception {
+        final LaneModule module = new LaneModule(new StubBroker()) {
+            @Override
+            public void receive(Message message){
+                String id = message.getProperty("id");
+                this.gate.pass(id);
+                synchronized (this){
+                    this.received.add(id);
+                }
+            }
+        };
+        module.setPriorityLanes(new PriorityLanes(PriorityLanes.DEFAULT_PROPERTY, NAMES, 10));
+
+        module.receive(serialized("block", null));
+        await(module.gate.entered);
+        module.receive(serialized("t1", null));
+
+        final CountDownLatch destroyed = new CountDownLatch(1);
+        Thread destroyer = new Thread(new Runnable() {
+            public void run(){
+                module.destroy();
+                destroyed.countDown();
+            }
+        });
+        destroyer.start();
+
+        // Let destroy() wait for the dispatcher before the dispatcher needs the module lock.
+        awaitWaiting(destroyer);
+        module.gate.released.countDown();
+        await(destroyed);
+
+        assertEquals("[block, t1]", module.received.toString());
+    }
+
+    /*Tests_SRS_JAVA_PRIORITY_LANES_14_004: [ If the overflow policy is WAIT, queuing a message in a full lane shall wait until the lane has room or the lanes are closed. ]*/
+    @Test
+    public void receiveWaitsWhileLaneIsFull() throws Exception {
+        final LaneModule module = new LaneModule(new StubBroker());
+        module.setPriorityLanes(new PriorityLanes(PriorityLanes.DEFAULT_PROPERTY, NAMES, 1));
+
+        module.receive(serialized("block", null));
+        await(module.gate.entered);
+        module.receive(serialized("t1", null));
+
+        final CountDownLatch queued = new CountDownLatch(1);
+        Thread sender = new Thread(new Runnable() {
+            public void run(){
+                try {
+                    module.receive(serialized("t2", null));
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+                queued.countDown();
+            }
+        });
+        sender.start();
+
+        awaitWaiting(sender);
+        assertEquals(1, queued.getCount());
+        module.gate.released.countDown();
+        await(queued);
+        module.destroy();
+
+        assertEquals("[block, t1, t2]", module.received.toString());
+    }
+
+    /*Tests_SRS_JAVA_PRIORITY_LANES_14_009: [ If the overflow policy is DROP_OLDEST, queuing a message in a full lane shall drop the oldest message of the lane and count it as dropped. ]*/
+    @Test
+    public void receiveDropsOldestWhileLaneIsFull() throws Exception {
+        LaneModule module = new LaneModule(new StubBroker());
+        module.setPriorityLanes(new PriorityLanes(PriorityLanes.DEFAULT_PROPERTY, NAMES, 2, null, PriorityLanes.Overflow.DROP_OLDEST));
+        PriorityLane[] lanes = module.getReceiveLanes();
+
+        module.receive(serialized("block", null));
+        await(module.gate.entered);
+        for(int count = 1; count <= 4; count++){
+            module.receive(serialized("t" + count, null));
+        }
+        module.receive(serialized("a1", "alarm"));
+
+        assertEquals(2, lanes[2].getDropped());
+        assertEquals(2, lanes[2].getDepth());
+        assertEquals(0, lanes[0].getDropped());
+        module.gate.released.countDown();
+        module.destroy();
+
+        assertEquals("[block, a1, t3, t4]", module.received.toString());
+        assertEquals(3, lanes[2].getDispatched());
+    }
+
+    /*Tests_SRS_JAVA_PRIORITY_LANES_14_010: [ If the overflow policy is DROP_NEWEST, a message arriving at a full lane shall be dropped and counted as dropped. ]*/
+    @Test
+    public void publishDropsNewestWhileLaneIsFull() throws Exception {
+        GatedBroker broker = new GatedBroker();
+        LaneModule module = new LaneModule(broker);
+        module.setPriorityLanes(new PriorityLanes(PriorityLanes.DEFAULT_PROPERTY, NAMES, 1, null, PriorityLanes.Overflow.DROP_NEWEST));
+        PriorityLane[] lanes = module.getPublishLanes();
+
+        assertEquals(0, module.publish(message("block", "telemetry")));
+        await(broker.gate.entered);
+        assertEquals(0, module.publish(message("t1", "telemetry")));
+        assertEquals(0, module.publish(message("t2", "telemetry")));
+        assertEquals(0, module.publish(message("t3", "telemetry")));
+
+        assertEquals(2, lanes[2].getDropped());
+        broker.gate.released.countDown();
+        module.destroy();
+
+        assertEquals("[block, t1]", broker.publishedIds());
+        assertEquals(2, lanes[2].getEnqueued());
+        assertEquals(2, lanes[2].getDropped());
+    }
+
+    /*Tests_SRS_JAVA_PRIORITY_LANES_14_007: [ Every lane shall be registered as a JMX MBean for as long as it is in use. ]*/
+    @Test
+    public void lanesAreRegisteredWithJmxWhileSet() throws Exception {
+        LaneModule module = new LaneModule(new StubBroker());
+        ObjectName name = new ObjectName("com.microsoft.azure.gateway:type=PriorityLane,module="
+                + ObjectName.quote("LaneModule@1234") + ",direction=receive,lane=" + ObjectName.quote("alarm"));
+
+        module.setPriorityLanes(new PriorityLanes(PriorityLanes.DEFAULT_PROPERTY, NAMES, 10));
+        module.receive(serialized("a1", "alarm"));
+        assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+
+        module.destroy();
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+        assertEquals("[a1]", module.received.toString());
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package tests.unit.com.microsoft.azure.gateway.core;
+
+import com.microsoft.azure.gateway.core.Broker;
+import com.microsoft.azure.gateway.messaging.Message;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A {@link Broker} that keeps the serialized messages published to it instead of passing them to the native Broker,
+ * for tests that need publishing to run real code on other threads. A test class using it declares a
+ * {@code @Mocked(stubOutClassInitialization = true) Broker} field, so that loading {@link Broker} does not load the
+ * native library.
+ */
+public class StubBroker extends Broker {
+
+    private final List<byte[]> published = Collections.synchronizedList(new ArrayList<byte[]>());
+
+    public StubBroker(){
+        super(1);
+    }
+
+    @Override
+    public int publishMessage(Message message, long moduleAddr) throws IOException {
+        this.published.add(message.toByteArray());
+        return 0;
+    }
+
+    public List<byte[]> getPublished(){
+        return this.published;
+    }
+}
@@ -0,0 +1,341 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package tests.unit.com.microsoft.azure.gateway.filter;
+
+import com.microsoft.azure.gateway.core.Broker;
+import com.microsoft.azure.gateway.filter.DeadBandFilter;
+import com.microsoft.azure.gateway.filter.DeadBandModule;
+import com.microsoft.azure.gateway.messaging.Message;
+import mockit.Mocked;
+import mockit.Verifications;
+import org.junit.Test;
+import tests.unit.com.microsoft.azure.gateway.core.StubBroker;
+
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class DeadBandFilterTest {
+
+    private static final long MILLI = 1000000L;
+
+    @Mocked(stubOutClassInitialization = true)
+    protected Broker mockBroker;
+
+    private static Message reading(String source, String channel, String content){
+        Map<String, String> properties = new HashMap<String, String>();
+        properties.put("Source", source);
+        if(channel != null){
+            properties.put("channel", channel);
+        }
+        return new Message(content.getBytes(), properties);
+    }
+
+    /*Tests_SRS_JAVA_DEAD_BAND_FILTER_14_001: [ If absoluteBand or percentBand is negative or not a number, the constructor shall throw an IllegalArgumentException. ]*/
+    @Test(expected = IllegalArgumentException.class)
+    public void constructorThrowsExceptionForNegativeBand(){
+        new DeadBandFilter(-1, 0);
+    }
+
+    /*Tests_SRS_JAVA_DEAD_BAND_FILTER_14_001: [ If absoluteBand or percentBand is negative or not a number, the constructor shall throw an IllegalArgumentException. ]*/
+    @Test(expected = IllegalArgumentException.class)
+    public void constructorThrowsExceptionForNaNBand(){
+        new DeadBandFilter(0, Double.NaN);
+    }
+
+    /*Tests_SRS_JAVA_DEAD_BAND_FILTER_14_002: [ If an interval is negative, the function shall throw an IllegalArgumentException. ]*/
+    @Test(expected = IllegalArgumentException.class)
+    public void setHeartbeatThrowsExceptionForNegativeInterval(){
+        new DeadBandFilter(1, 0).setHeartbeatMillis(-1);
+    }
+
+    /*Tests_SRS_JAVA_DEAD_BAND_FILTER_14_010: [ If maxChannels is less than 1, the function shall throw an IllegalArgumentException. ]*/
+    @Test(expected = IllegalArgumentException.class)
+    public void setMaxChannelsThrowsExceptionForZero(){
+        new DeadBandFilter(1, 0).setMaxChannels(0);
+    }
+
+    /*Tests_SRS_JAVA_DEAD_BAND_FILTER_14_009: [ Recording the reading of a new channel when the maximum number of channels is reached shall first evict the half of the channels that sent least recently. ]*/
+    @Test
+    public void acceptEvictsLeastRecentlySentChannelsWhenFull(){
+        DeadBandFilter filter = new DeadBandFilter(1, 0);
+        filter.setMaxChannels(4);
+
+        for(int channel = 1; channel <= 4; channel++){
+            assertTrue(filter.accept(channel, 20.0, channel));
+        }
+        assertFalse(filter.accept(2, 20.5, 5));
+        assertTrue(filter.accept(1, 30.0, 6));
+        assertTrue(filter.accept(5, 20.0, 7));
+
+        assertEquals(3, filter.getChannels());
+        assertEquals(2, filter.getEvicted());
+        assertTrue(filter.accept(2, 20.5, 8));
+        assertFalse(filter.accept(4, 20.5, 9));
+        assertFalse(filter.accept(1, 30.5, 10));
+        assertEquals(4, filter.getChannels());
+        assertEquals(2, filter.getEvicted());
+    }
+
+    /*Tests_SRS_JAVA_DEAD_BAND_FILTER_14_009: [ Recording the reading of a new channel when the maximum number of channels is reached shall first evict the half of the channels that sent least recently. ]*/
+    @Test
+    public void channelsStayWithinMaximumForEverNewKeys(){
+        DeadBandFilter filter = new DeadBandFilter(1, 0);
+        filter.setMaxChannels(1000);
+
+        for(int channel = 0; channel < 100000; channel++){
+            assertTrue(filter.accept(DeadBandFilter.channelKey("sensor-" + channel, null), 20.0, channel));
+            assertTrue(filter.getChannels() <= 1000);
+        }
+        assertEquals(100000 - filter.getChannels(), filter.getEvicted());
+
+        filter.setMaxChannels(10);
+        assertEquals(10, filter.getChannels());
+        assertFalse(filter.accept(DeadBandFilter.channelKey("sensor-99999", null), 20.0, 100000));
+        assertTrue(filter.accept(DeadBandFilter.channelKey("sensor-99989", null), 20.0, 100001));
+    }
+
+    /*Tests_SRS_JAVA_DEAD_BAND_FILTER_14_004: [ The first reading of a channel shall be sent. ]*/
+    /*Tests_SRS_JAVA_DEAD_BAND_FILTER_14_005: [ A reading shall be sent if it differs from the last reading sent on its channel by more than the absolute band or the percent band of the last reading sent, whichever is larger. ]*/
+    @Test
+    public void acceptSuppressesReadingsWithinAbsoluteBand(){
+        DeadBandFilter filter = new DeadBandFilter(0.5, 0);
+
+        assertTrue(filter.accept(1, 20.0, 0));
+        assertFalse(filter.accept(1, 20.4, 1));
+        assertFalse(filter.accept(1, 19.5, 2));
+        assertTrue(filter.accept(1, 20.6, 3));
+        assertFalse(filter.accept(1, 20.9, 4));
+        assertTrue(filter.accept(2, 20.9, 5));
+
+        assertEquals(6, filter.getEvaluated());
+        assertEquals(3, filter.getSuppressed());
+        assertEquals(3, filter.getPublished());
+        assertEquals(2, filter.getChannels());
+        assertEquals(0.5, filter.getSuppressionRatio(), 1e-9);
+    }
+
+    /*Tests_SRS_JAVA_DEAD_BAND_FILTER_14_005: [ A reading shall be sent if it differs from the last reading sent on its channel by more than the absolute band or the percent band of the last reading sent, whichever is larger. ]*/
+    @Test
+    public void acceptSuppressesReadingsWithinPercentBand(){
+        DeadBandFilter filter = new DeadBandFilter(0, 5);
+
+        assertTrue(filter.accept(1, 200, 0));
+        assertFalse(filter.accept(1, 209, 1));
+        assertTrue(filter.accept(1, 211, 2));
+        assertFalse(filter.accept(1, 201, 3));
+        assertTrue(filter.accept(1, 200, 4));
+    }
+
+    /*Tests_SRS_JAVA_DEAD_BAND_FILTER_14_006: [ A reading within the band shall be sent if the channel has not sent for the heartbeat interval. ]*/
+    @Test
+    public void acceptSendsHeartbeatForSteadySignal(){
+        DeadBandFilter filter = new DeadBandFilter(1, 0);
+        filter.setHeartbeatMillis(1000);
+
+        assertTrue(filter.accept(1, 5, 0));
+        assertFalse(filter.accept(1, 5, 999 * MILLI));
+        assertTrue(filter.accept(1, 5, 1000 * MILLI));
+        assertFalse(filter.accept(1, 5, 1999 * MILLI));
+        assertEquals(1, filter.getForced());
+    }
+
+    /*Tests_SRS_JAVA_DEAD_BAND_FILTER_14_007: [ A reading within the band that differs from the last reading sent shall be sent if the channel has not sent for the maximum silence interval. ]*/
+    @Test
+    public void acceptSendsDriftAfterMaxSilence(){
+        DeadBandFilter filter = new DeadBandFilter(1, 0);
+        filter.setMaxSilenceMillis(100);
+
+        assertTrue(filter.accept(1, 5, 0));
+        assertFalse(filter.accept(1, 5.2, 50 * MILLI));
+        assertFalse(filter.accept(1, 5, 200 * MILLI));
+        assertTrue(filter.accept(1, 5.2, 210 * MILLI));
+        assertEquals(1, filter.getForced());
+    }
+
+    /*Tests_SRS_JAVA_DEAD_BAND_FILTER_14_003: [ A message without a numeric reading shall be sent. ]*/
+    @Test
+    public void acceptKeysMessagesBySourceAndChannel(){
+        DeadBandFilter filter = new DeadBandFilter(1, 0);
+
+        assertTrue(filter.accept(reading("sensor-1", "temperature", "20.0")));
+        assertFalse(filter.accept(reading("sensor-1", "temperature", " 20.5 ")));
+        assertTrue(filter.accept(reading("sensor-1", "humidity", "20.5")));
+        assertTrue(filter.accept(reading("sensor-2", "temperature", "20.5")));
+        assertTrue(filter.accept(reading("sensor-1", "temperature", "not a number")));
+        assertTrue(filter.accept(reading("sensor-1", "temperature", "not a number")));
+
+        assertEquals(3, filter.getChannels());
+        assertEquals(2, filter.getUnfiltered());
+        assertEquals(4, filter.getEvaluated());
+    }
+
+    /*Tests_SRS_JAVA_DEAD_BAND_FILTER_14_008: [ A message without the source property shall be sent without being compared with the readings of any channel. ]*/
+    @Test
+    public void acceptSendsMessagesWithoutSourceUnfiltered(){
+        DeadBandFilter filter = new DeadBandFilter(1, 0);
+        Map<String, String> properties = new HashMap<String, String>();
+        properties.put("source", "sensor-1");
+
+        assertTrue(filter.accept(new Message("20.0".getBytes(), properties)));
+        assertTrue(filter.accept(new Message("20.5".getBytes(), properties)));
+        assertTrue(filter.accept(reading("sensor-1", null, "20.0")));
+        assertFalse(filter.accept(reading("sensor-1", null, "20.5")));
+
+        assertEquals(1, filter.getChannels());
+        assertEquals(2, filter.getUnfiltered());
+        assertEquals(2, filter.getEvaluated());
+    }
+
+    @Test
+    public void acceptReadsValueProperty(){
+        DeadBandFilter filter = new DeadBandFilter(1, 0);
+        filter.setValueProperty("value");
+        filter.setChannelProperties(DeadBandFilter.DEFAULT_SOURCE_PROPERTY, null);
+
+        Message first = reading("sensor-1", "ignored", "content");
+        first.getProperties().put("value", "3");
+        Message second = reading("sensor-1", "also ignored", "content");
+        second.getProperties().put("value", "3.5");
+
+        assertTrue(filter.accept(first));
+        assertFalse(filter.accept(second));
+    }
+
+    @Test
+    public void channelStateGrowsBeyondInitialCapacity(){
+        DeadBandFilter filter = new DeadBandFilter(1, 0);
+        for(int channel = 0; channel < 10000; channel++){
+            assertTrue(filter.accept(DeadBandFilter.channelKey("sensor", Integer.toString(channel)), channel, 0));
+        }
+        for(int channel = 0; channel < 10000; channel++){
+            assertFalse(filter.accept(DeadBandFilter.channelKey("sensor", Integer.toString(channel)), channel + 0.5, 1));
+        }
+        assertEquals(10000, filter.getChannels());
+    }
+
+    @Test
+    public void slowlyChangingSignalIsCutByAnOrderOfMagnitude(){
+        DeadBandFilter filter = new DeadBandFilter(0.5, 0);
+        filter.setHeartbeatMillis(60000);
+
+        // One reading every 100 ms of a signal with an amplitude of 10 and a period of 10 minutes.
+        for(int sample = 0; sample < 60000; sample++){
+            filter.accept(1, 20 + 10 * Math.sin(2 * Math.PI * sample / 6000), sample * 100 * MILLI);
+        }
+
+        assertTrue(filter.toString(), filter.getSuppressionRatio() > 0.9);
+    }
+
+    /*Tests_SRS_JAVA_DEAD_BAND_MODULE_14_001: [ The constructor shall attach a DeadBandFilter configured from the JSON configuration to the publish path of the module. ]*/
+    /*Tests_SRS_JAVA_DEAD_BAND_MODULE_14_002: [ The function shall publish message unmodified, leaving it to the filter to suppress it. ]*/
+    /*Tests_SRS_JAVA_GATEWAY_MODULE_14_012: [ If a dead-band filter is attached and suppresses the message, the function shall return 0 without publishing it to the Broker. ]*/
+    @Test
+    public void moduleForwardsOnlyReadingsOutsideBand() throws IOException {
+        DeadBandModule module = new DeadBandModule(0x1234, mockBroker,
+                "{ \"absolute.band\": 0.5, \"heartbeat.millis\": 60000 }");
+
+        DeadBandFilter filter = module.getFilter();
+        assertSame(filter, module.getDeadBandFilter());
+        assertEquals(0.5, filter.getAbsoluteBand(), 0);
+        assertEquals(60000, filter.getHeartbeatMillis());
+
+        byte[][] readings = new byte[4][];
+        String[] values = { "20.0", "20.3", "20.7", "20.8" };
+        for(int index = 0; index < values.length; index++){
+            Map<String, String> properties = new HashMap<String, String>();
+            properties.put("Source", "sensor-1");
+            readings[index] = new Message(values[index].getBytes(), properties).toByteArray();
+            module.receive(readings[index]);
+        }
+
+        final List<Message> published = new ArrayList<Message>();
+        new Verifications()
+        {
+            {
+                mockBroker.publishMessage(withCapture(published), anyLong);
+            }
+        };
+        assertEquals(2, published.size());
+        assertSame(readings[0], published.get(0).toByteArray());
+        assertSame(readings[2], published.get(1).toByteArray());
+    }
+
+    /*Tests_SRS_JAVA_DEAD_BAND_MODULE_14_001: [ The constructor shall attach a DeadBandFilter configured from the JSON configuration to the publish path of the module. ]*/
+    @Test
+    public void moduleReadsTopLevelFieldsOfConfiguration(){
+        DeadBandModule module = new DeadBandModule(0x1235, new StubBroker(),
+                "{ \"nested\": { \"absolute.band\": 9, \"list\": [ \"}\", { \"percent.band\": 9 }, -1.5e-3, true, null ] },"
+                + " \"absolute.band\": 5E-1, \"percent.band\": 1, \"max.silence.millis\": null, \"max.channels\": 16,"
+                + " \"source.property\": \"Sensor\\u0020\\\"Id\\\"\", \"value.property\": null }");
+
+        try {
+            DeadBandFilter filter = module.getFilter();
+            assertEquals(0.5, filter.getAbsoluteBand(), 0);
+            assertEquals(1, filter.getPercentBand(), 0);
+            assertEquals(0, filter.getMaxSilenceMillis());
+            assertEquals(16, filter.getMaxChannels());
+
+            Map<String, String> properties = new HashMap<String, String>();
+            properties.put("Sensor \"Id\"", "sensor-1");
+            assertTrue(filter.accept(new Message("20.0".getBytes(), properties)));
+            assertEquals(1, filter.getEvaluated());
+            assertEquals(0, filter.getUnfiltered());
+        } finally {
+            module.destroy();
+        }
+    }
+
+    /*Tests_SRS_JAVA_DEAD_BAND_MODULE_14_004: [ If the configuration is not valid JSON, is not an object or null, or holds a field of the wrong type, the constructor shall throw an IllegalArgumentException. ]*/
+    @Test
+    public void moduleThrowsExceptionForInvalidConfiguration(){
+        String[] invalid = {
+                "\"test-configuration\"", "[1]", "{", "{ \"absolute.band\" }", "{ \"absolute.band\": }", "{ \"absolute.band\": 1 } x",
+                "{ \"absolute.band\": NaN }", "{ \"absolute.band\": Infinity }", "{ \"absolute.band\": -Infinity }",
+                "{ \"absolute.band\": 01 }", "{ \"absolute.band\": 1. }", "{ \"absolute.band\": .5 }", "{ \"absolute.band\": +1 }",
+                "{ \"absolute.band\": \"0.5\" }", "{ \"source.property\": Source }", "{ \"source.property\": 1 }",
+                "{ \"source.property\": \"a\\u12\" }", "{ \"source.property\": \"a\\x\" }", "{ \"source.property\": \"a\tb\" }",
+                "{ \"nested\": [ 1, ] }", "{ \"nested\": { \"a\": tru } }", "{ \"a\": 1, }", "{ 'a': 1 }"
+        };
+        for(String configuration : invalid){
+            try {
+                new DeadBandModule(0x1236, new StubBroker(), configuration).destroy();
+                fail("No exception for " + configuration);
+            } catch (IllegalArgumentException e) {
+                //Expected
+            }
+        }
+    }
+
+    /*Tests_SRS_JAVA_DEAD_BAND_MODULE_14_001: [ The constructor shall attach a DeadBandFilter configured from the JSON configuration to the publish path of the module. ]*/
+    @Test
+    public void moduleWithoutConfigurationUsesDefaults(){
+        for(String configuration : new String[] { null, "", " ", "null", "{}", " { } " }){
+            DeadBandModule module = new DeadBandModule(0x1237, new StubBroker(), configuration);
+            assertEquals(0, module.getFilter().getAbsoluteBand(), 0);
+            assertEquals(0, module.getFilter().getHeartbeatMillis());
+            assertEquals(DeadBandFilter.DEFAULT_MAX_CHANNELS, module.getFilter().getMaxChannels());
+            module.destroy();
+        }
+    }
+
+    /*Tests_SRS_JAVA_DEAD_BAND_MODULE_14_003: [ The function shall detach the filter. ]*/
+    @Test
+    public void filterIsRegisteredWithJmxWhileAttached() throws Exception {
+        DeadBandModule module = new DeadBandModule(0x5678, mockBroker, null);
+        ObjectName name = new ObjectName("com.microsoft.azure.gateway:type=DeadBandFilter,module=" + ObjectName.quote("DeadBandModule@5678"));
+
+        assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+        module.destroy();
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+        assertNull(module.getDeadBandFilter());
+    }
+}
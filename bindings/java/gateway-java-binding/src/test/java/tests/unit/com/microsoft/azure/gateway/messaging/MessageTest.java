@@ -9,8 +9,14 @@ import mockit.Mocked;
 import mockit.NonStrictExpectations;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
@@ -294,6 +300,310 @@ public class MessageTest {
         assertTrue(Arrays.equals("辉煌的混蛋".getBytes(), actualContent));
     }
 
+    /*Tests_SRS_JAVA_MESSAGE_14_002: [ If the byte array is malformed, the function shall throw an IllegalArgumentException. ]*/
+    @Test(expected = IllegalArgumentException.class)
+    public void constructorThrowsExceptionForTruncatedContent(){
+        byte[] truncatedContent =
+            {
+                (byte)0xA1, 0x60,             /*header*/
+                0x00, 0x00, 0x00, 16,   /*size of this array*/
+                0x00, 0x00, 0x00, 0x00, /*0 properties*/
+                0x00, 0x00, 0x00, 0x05,  /*5 message content size*/
+                '3','4'
+            };
+
+        Message message = new Message(truncatedContent);
+    }
+
+    /*Tests_SRS_JAVA_MESSAGE_14_007: [ If content is null or contentLength is negative, the constructor shall throw an IllegalArgumentException. ]*/
+    @Test(expected = IllegalArgumentException.class)
+    public void constructorThrowsExceptionForNullContentChannel(){
+        ReadableByteChannel channel = null;
+
+        Message message = new Message(channel, 2, null);
+    }
+
+    /*Tests_SRS_JAVA_MESSAGE_14_007: [ If content is null or contentLength is negative, the constructor shall throw an IllegalArgumentException. ]*/
+    @Test(expected = IllegalArgumentException.class)
+    public void constructorThrowsExceptionForNegativeContentLength(){
+        ReadableByteChannel channel = Channels.newChannel(new ByteArrayInputStream("34".getBytes()));
+
+        Message message = new Message(channel, -1, null);
+    }
+
+    /*Tests_SRS_JAVA_MESSAGE_14_006: [ The constructor shall save the content channel, content length and properties map without reading the channel. ]*/
+    @Test
+    public void constructorDoesNotReadContentChannel() throws IOException {
+        ByteArrayInputStream stream = new ByteArrayInputStream("34".getBytes());
+
+        Message message = new Message(Channels.newChannel(stream), 2, null);
+
+        assertEquals(2, stream.available());
+        assertEquals(2, message.getContentLength());
+    }
+
+    /*Tests_SRS_JAVA_MESSAGE_14_008: [ The function shall read a content channel directly into the serialized byte array and keep the content from there. ]*/
+    @Test
+    public void toByteArraySerializesContentChannel() throws IOException {
+        Map<String, String> properties = new HashMap<String, String>();
+        properties.put("BleedingEdge", "rocks");
+        properties.put("Azure IoT Gateway is", "awesome");
+        ReadableByteChannel channel = Channels.newChannel(new ByteArrayInputStream("34".getBytes()));
+
+        Message m = new Message(channel, 2, properties);
+
+        byte[] actualByteArray = m.toByteArray();
+
+        assertTrue(Arrays.equals(validMessage, actualByteArray) || Arrays.equals(validMessagePropertySwap, actualByteArray));
+        assertTrue(Arrays.equals(actualByteArray, m.toByteArray()));
+        assertTrue(Arrays.equals("34".getBytes(), m.getContent()));
+    }
+
+    /*Tests_SRS_JAVA_MESSAGE_14_005: [ The function shall return throw an IOException if the Message could not be serialized. ]*/
+    @Test(expected = IOException.class)
+    public void toByteArrayThrowsExceptionForShortContentChannel() throws IOException {
+        ReadableByteChannel channel = Channels.newChannel(new ByteArrayInputStream("34".getBytes()));
+
+        Message m = new Message(channel, 3, null);
+
+        m.toByteArray();
+    }
+
+    /*Tests_SRS_JAVA_MESSAGE_14_020: [ If the content channel could not be read, the function shall fail without reading the channel again. ]*/
+    @Test
+    public void toByteArrayFailsAgainWithoutRereadingFailedContentChannel(){
+        final int[] reads = { 0 };
+        ReadableByteChannel channel = new ReadableByteChannel() {
+            public int read(ByteBuffer dst) throws IOException {
+                if(reads[0]++ == 0){
+                    dst.put((byte) '3');
+                    return 1;
+                }
+                throw new IOException("Disk error.");
+            }
+
+            public boolean isOpen(){
+                return true;
+            }
+
+            public void close(){
+            }
+        };
+        Message m = new Message(channel, 2, null);
+
+        for(int attempt = 0; attempt < 2; attempt++){
+            try {
+                m.toByteArray();
+                fail("Serializing a message whose content channel failed should throw.");
+            } catch (IOException e) {
+                assertTrue(e.getMessage().contains("Disk error."));
+            }
+        }
+        try {
+            m.getContent();
+            fail("Reading the content of a message whose content channel failed should throw.");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains("Disk error."));
+        }
+        assertEquals(2, reads[0]);
+    }
+
+    /*Tests_SRS_JAVA_MESSAGE_14_009: [ The function shall return an array holding exactly the content. ]*/
+    @Test
+    public void getContentReadsContentChannel(){
+        ReadableByteChannel channel = Channels.newChannel(new ByteArrayInputStream("34".getBytes()));
+
+        Message m = new Message(channel, 2, null);
+
+        assertTrue(Arrays.equals("34".getBytes(), m.getContent()));
+    }
+
+    /*Tests_SRS_JAVA_MESSAGE_14_018: [ The function shall copy the content region under the lock of the Message and return the same copy on every call. ]*/
+    @Test
+    public void getContentIsConsistentAcrossThreads() throws Exception {
+        for(int round = 0; round < 200; round++){
+            final Message message = new Message(validMessage);
+            final byte[] expected = new Message(validMessage).getContent();
+            final boolean[] consistent = { true, true, true, true };
+            Thread[] readers = new Thread[consistent.length];
+            for(int reader = 0; reader < readers.length; reader++){
+                final int index = reader;
+                readers[reader] = new Thread(new Runnable() {
+                    public void run() {
+                        try {
+                            byte[] streamed = new byte[expected.length + 1];
+                            int length = message.getContentStream().read(streamed, 0, streamed.length);
+                            consistent[index] = Arrays.equals(expected, message.getContent())
+                                    && Arrays.equals(expected, Arrays.copyOf(streamed, Math.max(length, 0)));
+                        } catch (IOException e) {
+                            consistent[index] = false;
+                        }
+                    }
+                });
+                readers[reader].start();
+            }
+            for(Thread reader : readers){
+                reader.join();
+            }
+            for(boolean readerConsistent : consistent){
+                assertTrue(readerConsistent);
+            }
+        }
+    }
+
+    /*Tests_SRS_JAVA_MESSAGE_14_010: [ The function shall return a stream over the content without copying it. ]*/
+    @Test
+    public void getContentStreamReturnsContent() throws IOException {
+        Message message = new Message(validMessage);
+
+        InputStream stream = message.getContentStream();
+        byte[] actualContent = new byte[message.getContentLength()];
+        new DataInputStream(stream).readFully(actualContent);
+
+        assertTrue(Arrays.equals("34".getBytes(), actualContent));
+        assertEquals(-1, stream.read());
+    }
+
+    /*Tests_SRS_JAVA_MESSAGE_14_011: [ The function shall return a channel over the content without copying it. ]*/
+    @Test
+    public void getContentChannelReturnsContent() throws IOException {
+        Message message = new Message(validMessage);
+
+        ReadableByteChannel channel = message.getContentChannel();
+        ByteBuffer actualContent = ByteBuffer.allocate(message.getContentLength());
+
+        assertEquals(2, channel.read(actualContent));
+        assertEquals(-1, channel.read(actualContent));
+        assertTrue(Arrays.equals("34".getBytes(), actualContent.array()));
+    }
+
+    /*Tests_SRS_JAVA_MESSAGE_14_012: [ If neither the properties nor the content have been modified since the Message was created from or serialized to a byte array, the function shall return that byte array. ]*/
+    @Test
+    public void toByteArrayReturnsOriginalArrayForUnmodifiedMessage() throws IOException {
+        Message message = new Message(validMessage);
+
+        assertSame(validMessage, message.toByteArray());
+    }
+
+    /*Tests_SRS_JAVA_MESSAGE_14_012: [ If neither the properties nor the content have been modified since the Message was created from or serialized to a byte array, the function shall return that byte array. ]*/
+    /*Tests_SRS_JAVA_MESSAGE_14_016: [ The function shall decode the properties from the serialized message the first time it is called. ]*/
+    @Test
+    public void toByteArrayReturnsOriginalArrayAfterReadingMessage() throws IOException {
+        Message message = new Message(validMessage);
+
+        assertEquals("rocks", message.getProperties().get("BleedingEdge"));
+        for(Map.Entry<String, String> property : message.getProperties().entrySet()){
+            assertNotNull(property.getValue());
+        }
+        message.getContentStream();
+
+        assertSame(validMessage, message.toByteArray());
+    }
+
+    /*Tests_SRS_JAVA_MESSAGE_14_014: [ If the content has not been modified, the function shall copy it from the original byte array. ]*/
+    @Test
+    public void toByteArrayEncodesModifiedProperties() throws IOException {
+        byte[] original = validMessage.clone();
+        Message message = new Message(validMessage);
+
+        message.getProperties().put("BleedingEdge", "rules");
+        message.getProperties().put("new", "property");
+        byte[] actualByteArray = message.toByteArray();
+
+        Message newMessage = new Message(actualByteArray);
+        assertEquals(3, newMessage.getProperties().size());
+        assertEquals("rules", newMessage.getProperties().get("BleedingEdge"));
+        assertEquals("awesome", newMessage.getProperties().get("Azure IoT Gateway is"));
+        assertEquals("property", newMessage.getProperties().get("new"));
+        assertTrue(Arrays.equals("34".getBytes(), newMessage.getContent()));
+        assertEquals(actualByteArray.length, ByteBuffer.wrap(actualByteArray, 2, 4).getInt());
+        assertTrue(Arrays.equals(original, validMessage));
+    }
+
+    /*Tests_SRS_JAVA_MESSAGE_14_013: [ If the properties have not been modified, the function shall copy the property count and properties from the original byte array. ]*/
+    @Test
+    public void toByteArrayEncodesModifiedContent() throws IOException {
+        byte[] original = validMessage.clone();
+        Message message = new Message(validMessage);
+
+        message.getContent()[0] = 'X';
+        byte[] actualByteArray = message.toByteArray();
+
+        assertEquals(validMessage.length, actualByteArray.length);
+        assertEquals('X', actualByteArray[actualByteArray.length - 2]);
+        assertTrue(Arrays.equals(Arrays.copyOf(validMessage, validMessage.length - 2), Arrays.copyOf(actualByteArray, actualByteArray.length - 2)));
+        assertTrue(Arrays.equals(original, validMessage));
+    }
+
+    /*Tests_SRS_JAVA_MESSAGE_14_018: [ The function shall copy the content region under the lock of the Message and return the same copy on every call. ]*/
+    /*Tests_SRS_JAVA_MESSAGE_14_019: [ The function shall treat the content as modified only if the array returned by getContent() no longer holds the content it was copied from. ]*/
+    @Test
+    public void toByteArrayReturnsOriginalArrayUntilContentCopyIsModified() throws IOException {
+        Message message = new Message(validMessage);
+
+        byte[] content = message.getContent();
+        assertSame(content, message.getContent());
+        assertSame(validMessage, message.toByteArray());
+
+        content[0] = 'X';
+        assertEquals('X', message.getContentStream().read());
+        byte[] actualByteArray = message.toByteArray();
+
+        assertNotSame(validMessage, actualByteArray);
+        assertEquals('X', actualByteArray[actualByteArray.length - 2]);
+        assertEquals('3', validMessage[validMessage.length - 2]);
+    }
+
+    /*Tests_SRS_JAVA_MESSAGE_14_015: [ The function shall keep the result so that it can be returned again while the Message is not modified. ]*/
+    @Test
+    public void toByteArrayReturnsSameArrayUntilModifiedAgain() throws IOException {
+        Message message = new Message(validMessage);
+        message.getProperties().put("new", "property");
+
+        byte[] first = message.toByteArray();
+        assertSame(first, message.toByteArray());
+
+        message.getProperties().remove("new");
+        byte[] second = message.toByteArray();
+        assertNotSame(first, second);
+        assertEquals(validMessage.length, second.length);
+    }
+
+    /*Tests_SRS_JAVA_MESSAGE_14_013: [ If the properties have not been modified, the function shall copy the property count and properties from the original byte array. ]*/
+    @Test
+    public void toByteArrayEncodesPropertiesModifiedThroughEntrySet() throws IOException {
+        Message message = new Message(validMessage);
+
+        for(Map.Entry<String, String> property : message.getProperties().entrySet()){
+            property.setValue("changed");
+        }
+        Message newMessage = new Message(message.toByteArray());
+
+        assertEquals("changed", newMessage.getProperties().get("BleedingEdge"));
+        assertEquals("changed", newMessage.getProperties().get("Azure IoT Gateway is"));
+    }
+
+    /*Tests_SRS_JAVA_MESSAGE_14_017: [ If the properties have not been decoded, the function shall search the serialized property block for key without decoding the other properties. ]*/
+    @Test
+    public void getPropertyFindsPropertyInSerializedMessage() throws IOException {
+        Message message = new Message(validMessage);
+
+        assertEquals("awesome", message.getProperty("Azure IoT Gateway is"));
+        assertEquals("rocks", message.getProperty("BleedingEdge"));
+        assertNull(message.getProperty("Bleeding"));
+        assertNull(message.getProperty("rocks"));
+        assertSame(validMessage, message.toByteArray());
+    }
+
+    @Test
+    public void getPropertyReturnsModifiedProperty(){
+        Message message = new Message(validMessage);
+
+        message.getProperties().put("BleedingEdge", "rules");
+
+        assertEquals("rules", message.getProperty("BleedingEdge"));
+    }
+
     public void setDefaultProperties(Map<String, String> properties, int numProperties){
         for(int prop = 0; prop < numProperties; prop++){
             properties.put("test-key-"+prop, "test-value-"+prop);
@@ -0,0 +1,301 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package tests.unit.com.microsoft.azure.gateway.remote;
+
+import com.microsoft.azure.gateway.core.Broker;
+import com.microsoft.azure.gateway.core.GatewayModule;
+import com.microsoft.azure.gateway.messaging.Message;
+import com.microsoft.azure.gateway.remote.RemoteModuleConnection;
+import mockit.Mocked;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class RemoteModuleConnectionTest {
+
+    // Only keeps Broker from loading the native library: modules get a RemoteBroker, which publishes over the connection.
+    @Mocked(stubOutClassInitialization = true)
+    protected Broker mockBroker;
+
+    public static class EchoModule extends GatewayModule {
+
+        static volatile EchoModule last;
+
+        final List<String> calls = new ArrayList<String>();
+
+        public EchoModule(long address, Broker broker, String configuration){
+            super(address, broker, configuration);
+            last = this;
+        }
+
+        @Override
+        public void warmup(){
+            this.calls.add("warmup");
+        }
+
+        @Override
+        public void start(){
+            this.calls.add("start");
+        }
+
+        @Override
+        public void receive(Message message){
+            this.calls.add("receive");
+            try {
+                Map<String, String> properties = new HashMap<String, String>(message.getProperties());
+                properties.put("echo", "true");
+                this.publish(new Message(message.getContent(), properties));
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public void destroy(){
+            this.calls.add("destroy");
+        }
+    }
+
+    public static class BurstModule extends GatewayModule {
+
+        static final CountDownLatch started = new CountDownLatch(1);
+        static volatile int sent;
+        static volatile IOException failure;
+
+        public BurstModule(long address, Broker broker, String configuration){
+            super(address, broker, configuration);
+        }
+
+        @Override
+        public void start(){
+            byte[] content = new byte[1024 * 1024];
+            try {
+                for(int count = 0; count < 100; count++){
+                    this.publish(new Message(content, new HashMap<String, String>()));
+                    sent++;
+                }
+            } catch (IOException e) {
+                failure = e;
+            }
+            started.countDown();
+        }
+
+        @Override
+        public void receive(Message message){
+        }
+
+        @Override
+        public void destroy(){
+        }
+    }
+
+    private static byte[] controlFrame(byte control, String className, String content) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.write(control);
+        if(className != null){
+            body.write(className.getBytes("UTF-8"));
+            body.write(0);
+        }
+        if(content != null){
+            body.write(content.getBytes("UTF-8"));
+        }
+
+        ByteBuffer frame = ByteBuffer.allocate(6 + body.size());
+        frame.put(RemoteModuleConnection.FRAME_MAGIC).put(RemoteModuleConnection.CONTROL_FRAME).putInt(frame.capacity());
+        frame.put(body.toByteArray());
+        return frame.array();
+    }
+
+    private static void write(Pipe.SinkChannel sink, byte[] frame) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(frame);
+        while(buffer.hasRemaining()){
+            sink.write(buffer);
+        }
+    }
+
+    private static List<byte[]> readFrames(Pipe.SourceChannel source) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        while(source.read(buffer) >= 0){
+            bytes.write(buffer.array(), 0, buffer.position());
+            buffer.clear();
+        }
+
+        List<byte[]> frames = new ArrayList<byte[]>();
+        ByteBuffer all = ByteBuffer.wrap(bytes.toByteArray());
+        while(all.hasRemaining()){
+            int size = all.getInt(all.position() + 2);
+            byte[] frame = new byte[size];
+            all.get(frame);
+            frames.add(frame);
+        }
+        return frames;
+    }
+
+    private static List<Message> messages(List<byte[]> frames){
+        List<Message> messages = new ArrayList<Message>();
+        for(byte[] frame : frames){
+            if(frame[1] == RemoteModuleConnection.MESSAGE_FRAME){
+                messages.add(new Message(frame));
+            }
+        }
+        return messages;
+    }
+
+    private static Thread start(RemoteModuleConnection connection){
+        Thread thread = new Thread(connection);
+        thread.start();
+        return thread;
+    }
+
+    /*Tests_SRS_JAVA_REMOTE_MODULE_HOST_14_001: [ If in or out is null or address is 0 the constructor shall throw an IllegalArgumentException. ]*/
+    @Test(expected = IllegalArgumentException.class)
+    public void constructorThrowsExceptionForZeroAddress() throws IOException {
+        Pipe pipe = Pipe.open();
+        new RemoteModuleConnection(pipe.source(), pipe.sink(), 0);
+    }
+
+    /*Tests_SRS_JAVA_REMOTE_MODULE_HOST_14_003: [ A message frame shall be passed to receive(byte[]) of the module without interpreting its properties. ]*/
+    /*Tests_SRS_JAVA_REMOTE_MODULE_HOST_14_004: [ A create frame shall instantiate the class it names, configured with the configuration it holds, and fail the connection if that is not possible. ]*/
+    /*Tests_SRS_JAVA_REMOTE_MODULE_HOST_14_005: [ A start frame shall call warmup() on a GatewayModule and then start() on the module, calling start() even if warmup() throws. ]*/
+    /*Tests_SRS_JAVA_REMOTE_MODULE_HOST_14_006: [ A destroy frame shall call destroy() on the module and end the connection. ]*/
+    /*Tests_SRS_JAVA_REMOTE_MODULE_HOST_14_009: [ Messages published by the module shall be serialized and queued on the connection without waiting for the socket. ]*/
+    /*Tests_SRS_JAVA_REMOTE_MODULE_HOST_14_012: [ Before returning, the function shall write all frames already published and close both channels. ]*/
+    /*Tests_SRS_JAVA_REMOTE_MODULE_HOST_14_017: [ A create frame shall be answered with a created frame, or with an error frame before the connection fails. ]*/
+    @Test
+    public void runDrivesModuleLifecycleAndReturnsPublishedMessages() throws Exception {
+        Pipe toModule = Pipe.open();
+        Pipe fromModule = Pipe.open();
+        Thread thread = start(new RemoteModuleConnection(toModule.source(), fromModule.sink(), 1));
+
+        Map<String, String> properties = new HashMap<String, String>();
+        properties.put("source", "sensor");
+        write(toModule.sink(), controlFrame(RemoteModuleConnection.CONTROL_CREATE, EchoModule.class.getName(), "{config}"));
+        write(toModule.sink(), controlFrame(RemoteModuleConnection.CONTROL_START, null, null));
+        write(toModule.sink(), new Message("first".getBytes(), properties).toByteArray());
+        write(toModule.sink(), new Message("second".getBytes(), properties).toByteArray());
+        write(toModule.sink(), controlFrame(RemoteModuleConnection.CONTROL_DESTROY, null, null));
+        thread.join(10000);
+
+        List<byte[]> frames = readFrames(fromModule.source());
+        List<Message> published = messages(frames);
+        EchoModule module = EchoModule.last;
+        assertFalse(thread.isAlive());
+        assertEquals(7, frames.get(0).length);
+        assertEquals(RemoteModuleConnection.CONTROL_FRAME, frames.get(0)[1]);
+        assertEquals(RemoteModuleConnection.CONTROL_CREATED, frames.get(0)[6]);
+        assertEquals("{config}", module.getConfiguration());
+        assertEquals("[warmup, start, receive, receive, destroy]", module.calls.toString());
+        assertEquals(2, published.size());
+        assertEquals("first", new String(published.get(0).getContent()));
+        assertEquals("second", new String(published.get(1).getContent()));
+        assertEquals("true", published.get(1).getProperty("echo"));
+        assertEquals("sensor", published.get(1).getProperty("source"));
+    }
+
+    /*Tests_SRS_JAVA_REMOTE_MODULE_HOST_14_008: [ If the connection is lost before a destroy frame arrives, the module shall be destroyed. ]*/
+    @Test
+    public void runDestroysModuleWhenConnectionIsLost() throws Exception {
+        Pipe toModule = Pipe.open();
+        Pipe fromModule = Pipe.open();
+        Thread thread = start(new RemoteModuleConnection(toModule.source(), fromModule.sink(), 1));
+
+        write(toModule.sink(), controlFrame(RemoteModuleConnection.CONTROL_CREATE, EchoModule.class.getName(), null));
+        write(toModule.sink(), controlFrame(RemoteModuleConnection.CONTROL_START, null, null));
+        toModule.sink().close();
+        thread.join(10000);
+
+        assertFalse(thread.isAlive());
+        assertNull(EchoModule.last.getConfiguration());
+        assertEquals("[warmup, start, destroy]", EchoModule.last.calls.toString());
+    }
+
+    /*Tests_SRS_JAVA_REMOTE_MODULE_HOST_14_003: [ A message frame shall be passed to receive(byte[]) of the module without interpreting its properties. ]*/
+    @Test
+    public void runPassesMessagesWithControlPropertiesToModule() throws Exception {
+        Pipe toModule = Pipe.open();
+        Pipe fromModule = Pipe.open();
+        Thread thread = start(new RemoteModuleConnection(toModule.source(), fromModule.sink(), 1));
+
+        Map<String, String> properties = new HashMap<String, String>();
+        properties.put("$control", "destroy");
+        write(toModule.sink(), controlFrame(RemoteModuleConnection.CONTROL_CREATE, EchoModule.class.getName(), null));
+        write(toModule.sink(), new Message("forged".getBytes(), properties).toByteArray());
+        write(toModule.sink(), controlFrame(RemoteModuleConnection.CONTROL_DESTROY, null, null));
+        thread.join(10000);
+
+        List<Message> published = messages(readFrames(fromModule.source()));
+        assertFalse(thread.isAlive());
+        assertEquals("[receive, destroy]", EchoModule.last.calls.toString());
+        assertEquals(1, published.size());
+        assertEquals("destroy", published.get(0).getProperty("$control"));
+    }
+
+    /*Tests_SRS_JAVA_REMOTE_MODULE_HOST_14_002: [ The function shall end the connection if a frame does not start with 0xA1 0x60 or 0xA1 0x61 or its size is out of range. ]*/
+    @Test
+    public void runEndsConnectionOnInvalidFrame() throws Exception {
+        Pipe toModule = Pipe.open();
+        Pipe fromModule = Pipe.open();
+        Thread thread = start(new RemoteModuleConnection(toModule.source(), fromModule.sink(), 1));
+
+        write(toModule.sink(), new byte[] { (byte) 0xA1, 0x60, 0x7F, 0x7F, 0x7F, 0x7F });
+        thread.join(10000);
+
+        assertFalse(thread.isAlive());
+        assertTrue(readFrames(fromModule.source()).isEmpty());
+    }
+
+    /*Tests_SRS_JAVA_REMOTE_MODULE_HOST_14_004: [ A create frame shall instantiate the class it names, configured with the configuration it holds, and fail the connection if that is not possible. ]*/
+    /*Tests_SRS_JAVA_REMOTE_MODULE_HOST_14_017: [ A create frame shall be answered with a created frame, or with an error frame before the connection fails. ]*/
+    @Test
+    public void runEndsConnectionWhenModuleClassIsMissing() throws Exception {
+        Pipe toModule = Pipe.open();
+        Pipe fromModule = Pipe.open();
+        Thread thread = start(new RemoteModuleConnection(toModule.source(), fromModule.sink(), 1));
+
+        write(toModule.sink(), controlFrame(RemoteModuleConnection.CONTROL_CREATE, "does.not.Exist", null));
+        thread.join(10000);
+
+        List<byte[]> frames = readFrames(fromModule.source());
+        assertFalse(thread.isAlive());
+        assertEquals(1, frames.size());
+        assertEquals(RemoteModuleConnection.CONTROL_FRAME, frames.get(0)[1]);
+        assertEquals(RemoteModuleConnection.CONTROL_ERROR, frames.get(0)[6]);
+        assertTrue(new String(frames.get(0), 7, frames.get(0).length - 7, "UTF-8").contains("does.not.Exist"));
+    }
+
+    /*Tests_SRS_JAVA_REMOTE_MODULE_HOST_14_015: [ Publishing shall drop the message and fail with an IOException if it would take the queued messages beyond 64 MB. ]*/
+    @Test
+    public void publishDropsMessagesBeyondQueueLimit() throws Exception {
+        Pipe toModule = Pipe.open();
+        Pipe fromModule = Pipe.open();
+        Thread thread = start(new RemoteModuleConnection(toModule.source(), fromModule.sink(), 1));
+
+        // Nothing reads from the module until it has published, so the writer thread stalls on the full pipe.
+        write(toModule.sink(), controlFrame(RemoteModuleConnection.CONTROL_CREATE, BurstModule.class.getName(), null));
+        write(toModule.sink(), controlFrame(RemoteModuleConnection.CONTROL_START, null, null));
+        write(toModule.sink(), controlFrame(RemoteModuleConnection.CONTROL_DESTROY, null, null));
+        assertTrue(BurstModule.started.await(10, TimeUnit.SECONDS));
+
+        List<Message> published = messages(readFrames(fromModule.source()));
+        thread.join(10000);
+
+        assertFalse(thread.isAlive());
+        assertNotNull(BurstModule.failure);
+        assertTrue(String.valueOf(BurstModule.sent), BurstModule.sent >= 60 && BurstModule.sent < 100);
+        assertEquals(BurstModule.sent, published.size());
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package tests.unit.com.microsoft.azure.gateway.remote;
+
+import com.microsoft.azure.gateway.remote.RemoteModuleHost;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.ServerSocketChannel;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class RemoteModuleHostTest {
+
+    private static boolean hasUnixDomainSockets(){
+        try {
+            Class.forName("java.net.UnixDomainSocketAddress");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    private static File newSocketPath() throws IOException {
+        File file = File.createTempFile("remote-module-host", ".sock");
+        assertTrue(file.delete());
+        return file;
+    }
+
+    /*Tests_SRS_JAVA_REMOTE_MODULE_HOST_14_016: [ If a file exists at path, the function shall delete it only if it is a socket no host accepts connections on, and throw an IOException otherwise. ]*/
+    @Test
+    public void openDoesNotReplaceRegularFile() throws IOException {
+        File file = File.createTempFile("remote-module-host", ".sock");
+        try {
+            RemoteModuleHost.open(file.getPath()).close();
+            fail("A regular file was replaced.");
+        } catch (IOException expected) {
+            assertTrue(file.isFile());
+        } finally {
+            file.delete();
+        }
+    }
+
+    /*Tests_SRS_JAVA_REMOTE_MODULE_HOST_14_016: [ If a file exists at path, the function shall delete it only if it is a socket no host accepts connections on, and throw an IOException otherwise. ]*/
+    @Test
+    public void openReplacesStaleSocket() throws IOException {
+        assumeTrue(hasUnixDomainSockets());
+        File file = newSocketPath();
+        try {
+            RemoteModuleHost.open(file.getPath()).close();
+            assertTrue(file.exists());
+
+            RemoteModuleHost.open(file.getPath()).close();
+        } finally {
+            file.delete();
+        }
+    }
+
+    /*Tests_SRS_JAVA_REMOTE_MODULE_HOST_14_016: [ If a file exists at path, the function shall delete it only if it is a socket no host accepts connections on, and throw an IOException otherwise. ]*/
+    @Test
+    public void openDoesNotReplaceSocketOfRunningHost() throws IOException {
+        assumeTrue(hasUnixDomainSockets());
+        File file = newSocketPath();
+        ServerSocketChannel running = RemoteModuleHost.open(file.getPath());
+        try {
+            RemoteModuleHost.open(file.getPath()).close();
+            fail("The socket of a running host was replaced.");
+        } catch (IOException expected) {
+            assertTrue(running.isOpen());
+        } finally {
+            running.close();
+            file.delete();
+        }
+    }
+}
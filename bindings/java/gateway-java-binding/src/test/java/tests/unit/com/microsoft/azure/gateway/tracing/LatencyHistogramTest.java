@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package tests.unit.com.microsoft.azure.gateway.tracing;
+
+import com.microsoft.azure.gateway.tracing.LatencyHistogram;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    /*Tests_SRS_JAVA_LATENCY_HISTOGRAM_14_001: [ The function shall record negative values as 0. ]*/
+    @Test
+    public void recordCountsNegativeValuesAsZero(){
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        histogram.record(-5);
+
+        assertEquals(1, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getP99());
+    }
+
+    /*Tests_SRS_JAVA_LATENCY_HISTOGRAM_14_002: [ The function shall update the bucket, count, sum and maximum without locking. ]*/
+    @Test
+    public void recordUpdatesCountMeanAndMax(){
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        histogram.record(10);
+        histogram.record(20);
+        histogram.record(30);
+
+        assertEquals(3, histogram.getCount());
+        assertEquals(20.0, histogram.getMean(), 0.0);
+        assertEquals(30, histogram.getMax());
+    }
+
+    /*Tests_SRS_JAVA_LATENCY_HISTOGRAM_14_002: [ The function shall update the bucket, count, sum and maximum without locking. ]*/
+    @Test
+    public void recordIsSafeFromManyThreads() throws InterruptedException {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+
+        for(int thread = 0; thread < threads.length; thread++){
+            final int offset = thread;
+            threads[thread] = new Thread(new Runnable() {
+                public void run(){
+                    for(int value = 0; value < 10000; value++){
+                        histogram.record(value + offset);
+                    }
+                }
+            });
+            threads[thread].start();
+        }
+        for(Thread thread : threads){
+            thread.join();
+        }
+
+        assertEquals(40000, histogram.getCount());
+        assertEquals(10002, histogram.getMax());
+    }
+
+    /*Tests_SRS_JAVA_LATENCY_HISTOGRAM_14_003: [ If percentile is not between 0 and 100 the function shall throw an IllegalArgumentException. ]*/
+    @Test(expected = IllegalArgumentException.class)
+    public void getPercentileThrowsExceptionAbove100(){
+        new LatencyHistogram().getPercentile(100.1);
+    }
+
+    /*Tests_SRS_JAVA_LATENCY_HISTOGRAM_14_003: [ If percentile is not between 0 and 100 the function shall throw an IllegalArgumentException. ]*/
+    @Test(expected = IllegalArgumentException.class)
+    public void getPercentileThrowsExceptionBelow0(){
+        new LatencyHistogram().getPercentile(-1);
+    }
+
+    /*Tests_SRS_JAVA_LATENCY_HISTOGRAM_14_004: [ The function shall return the highest value of the bucket holding the percentile, capped at the maximum recorded value. ]*/
+    @Test
+    public void getPercentileIsExactForSmallValues(){
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        for(int value = 1; value <= 10; value++){
+            histogram.record(value);
+        }
+
+        assertEquals(5, histogram.getP50());
+        assertEquals(9, histogram.getP90());
+        assertEquals(10, histogram.getP99());
+    }
+
+    /*Tests_SRS_JAVA_LATENCY_HISTOGRAM_14_004: [ The function shall return the highest value of the bucket holding the percentile, capped at the maximum recorded value. ]*/
+    @Test
+    public void getPercentileIsWithinBucketPrecision(){
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        for(int value = 1; value <= 100000; value++){
+            histogram.record(value);
+        }
+
+        assertTrue(histogram.getP50() >= 50000 && histogram.getP50() <= 50000 * 1.0625);
+        assertTrue(histogram.getP99() >= 99000 && histogram.getP99() <= 100000);
+        assertEquals(100000, histogram.getPercentile(100));
+    }
+
+    @Test
+    public void getPercentileReturnsZeroWhenEmpty(){
+        assertEquals(0, new LatencyHistogram().getP50());
+    }
+
+    @Test
+    public void resetClearsHistogram(){
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1000);
+
+        histogram.reset();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getP50());
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package tests.unit.com.microsoft.azure.gateway.tracing;
+
+import com.microsoft.azure.gateway.messaging.Message;
+import com.microsoft.azure.gateway.tracing.LatencyHistogram;
+import com.microsoft.azure.gateway.tracing.MessageTracer;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class MessageTracerTest {
+
+    private static Message newMessage(){
+        Map<String, String> properties = new HashMap<String, String>();
+        properties.put("source", "sensor");
+        return new Message("content".getBytes(), properties);
+    }
+
+    /*Tests_SRS_JAVA_MESSAGE_TRACER_14_001: [ If sampleInterval is negative the function shall throw an IllegalArgumentException. ]*/
+    @Test(expected = IllegalArgumentException.class)
+    public void constructorThrowsExceptionForNegativeSampleInterval(){
+        new MessageTracer(-1);
+    }
+
+    @Test
+    public void onPublishDoesNothingWhenDisabled(){
+        MessageTracer tracer = new MessageTracer(0);
+        Message message = newMessage();
+
+        assertSame(message, tracer.onPublish(message, "Sensor"));
+
+        assertFalse(tracer.isEnabled());
+        assertNull(message.getProperty(MessageTracer.TRACE_PROPERTY));
+    }
+
+    /*Tests_SRS_JAVA_MESSAGE_TRACER_14_003: [ Otherwise the function shall add a trace property to one in every sampleInterval messages. ]*/
+    @Test
+    public void onPublishTracesOneInSampleIntervalMessages(){
+        MessageTracer tracer = new MessageTracer(4);
+        int traced = 0;
+
+        for(int count = 0; count < 20; count++){
+            Message message = tracer.onPublish(newMessage(), "Sensor");
+            if(message.getProperty(MessageTracer.TRACE_PROPERTY) != null){
+                traced++;
+            }
+        }
+
+        assertEquals(5, traced);
+    }
+
+    /*Tests_SRS_JAVA_MESSAGE_TRACER_14_003: [ Otherwise the function shall add a trace property to one in every sampleInterval messages. ]*/
+    @Test
+    public void onPublishAddsSmallTraceThatSurvivesSerialization() throws IOException {
+        MessageTracer tracer = new MessageTracer(1);
+        Message message = tracer.onPublish(newMessage(), "Sensor");
+
+        String trace = message.getProperty(MessageTracer.TRACE_PROPERTY);
+        Message received = new Message(message.toByteArray());
+
+        assertNotNull(trace);
+        assertTrue(trace.length() < 96);
+        assertEquals(trace, received.getProperty(MessageTracer.TRACE_PROPERTY));
+        assertEquals("sensor", received.getProperty("source"));
+    }
+
+    /*Tests_SRS_JAVA_MESSAGE_TRACER_14_002: [ If message is traced, the function shall replace the last publishing module and time in its trace property. ]*/
+    @Test
+    public void onPublishMovesTraceToNextHop() throws IOException {
+        MessageTracer tracer = new MessageTracer(1000);
+        Message message = tracer.onPublish(newMessage(), "Sensor");
+        String first = message.getProperty(MessageTracer.TRACE_PROPERTY);
+
+        Message forwarded = tracer.onPublish(new Message(message.toByteArray()), "Filter");
+        String second = forwarded.getProperty(MessageTracer.TRACE_PROPERTY);
+
+        String[] firstFields = first.split(";");
+        String[] secondFields = second.split(";");
+        assertEquals(firstFields[0], secondFields[0]);
+        assertEquals(firstFields[1], secondFields[1]);
+        assertEquals(firstFields[2], secondFields[2]);
+        assertEquals("Sensor", secondFields[3]);
+        assertEquals("Filter", secondFields[5]);
+    }
+
+    /*Tests_SRS_JAVA_MESSAGE_TRACER_14_004: [ The function shall add the trace property to a new Message with the content and a copy of the properties of message, and leave message and its properties unmodified. ]*/
+    @Test
+    public void onPublishLeavesCallerPropertiesUnmodified() throws IOException {
+        MessageTracer tracer = new MessageTracer(2);
+        Map<String, String> properties = new HashMap<String, String>();
+        properties.put("source", "sensor");
+        Message message = new Message("content".getBytes(), properties);
+
+        Message traced = tracer.onPublish(message, "Sensor");
+        Message reused = tracer.onPublish(new Message("content".getBytes(), properties), "Sensor");
+
+        assertNotSame(message, traced);
+        assertNotNull(traced.getProperty(MessageTracer.TRACE_PROPERTY));
+        assertEquals("sensor", traced.getProperty("source"));
+        assertTrue(Arrays.equals("content".getBytes(), traced.getContent()));
+        assertEquals(1, properties.size());
+        assertNull(message.getProperty(MessageTracer.TRACE_PROPERTY));
+        assertNull(reused.getProperty(MessageTracer.TRACE_PROPERTY));
+        assertNotNull(tracer.onPublish(new Message(null, Collections.<String, String>emptyMap()), "Sensor")
+                .getProperty(MessageTracer.TRACE_PROPERTY));
+    }
+
+    /*Tests_SRS_JAVA_MESSAGE_TRACER_14_006: [ The function shall record the time since the last publish in the hop histogram of the link from the last publishing module to module. ]*/
+    /*Tests_SRS_JAVA_MESSAGE_TRACER_14_007: [ The function shall record the time since the first publish in the end-to-end histogram of the link from the first publishing module to module. ]*/
+    @Test
+    public void onReceiveRecordsHopAndEndToEndLatency() throws IOException {
+        MessageTracer tracer = new MessageTracer(1);
+        Message message = tracer.onPublish(newMessage(), "Sensor", 1000000000L);
+
+        Message atFilter = new Message(message.toByteArray());
+        tracer.onReceive(atFilter, "Filter", 1005000000L);
+
+        Message atPrinter = new Message(tracer.onPublish(atFilter, "Filter", 1007000000L).toByteArray());
+        tracer.onReceive(atPrinter, "Printer", 1010000000L);
+
+        LatencyHistogram sensorToFilter = tracer.getHopLatency("Sensor", "Filter");
+        LatencyHistogram filterToPrinter = tracer.getHopLatency("Filter", "Printer");
+        LatencyHistogram sensorToFilterEndToEnd = tracer.getEndToEndLatency("Sensor", "Filter");
+        LatencyHistogram sensorToPrinter = tracer.getEndToEndLatency("Sensor", "Printer");
+        assertEquals(1, sensorToFilter.getCount());
+        assertEquals(5000, sensorToFilter.getMax());
+        assertEquals(1, filterToPrinter.getCount());
+        assertEquals(3000, filterToPrinter.getMax());
+        assertEquals(5000, sensorToFilterEndToEnd.getMax());
+        assertEquals(1, sensorToPrinter.getCount());
+        assertEquals(10000, sensorToPrinter.getMax());
+        assertNull(tracer.getHopLatency("Sensor", "Printer"));
+    }
+
+    /*Tests_SRS_JAVA_MESSAGE_TRACER_14_005: [ The function shall ignore a trace property that cannot be parsed. ]*/
+    @Test
+    public void onReceiveIgnoresMalformedTrace(){
+        MessageTracer tracer = new MessageTracer(1);
+        Map<String, String> properties = new HashMap<String, String>();
+        properties.put(MessageTracer.TRACE_PROPERTY, "1;1;zz;Sensor;zz;Sensor");
+        Message message = new Message(null, properties);
+
+        tracer.onReceive(message, "Printer");
+        tracer.onReceive(new Message(null, Collections.singletonMap(MessageTracer.TRACE_PROPERTY, "garbage")), "Printer");
+
+        assertNull(tracer.getHopLatency("Sensor", "Printer"));
+    }
+
+    /*Tests_SRS_JAVA_MESSAGE_TRACER_14_010: [ A trace started in another JVM shall be treated like no trace. ]*/
+    @Test
+    public void traceFromAnotherJvmIsNotRecorded() throws IOException {
+        MessageTracer tracer = new MessageTracer(1);
+        String[] fields = tracer.onPublish(newMessage(), "Sensor").getProperty(MessageTracer.TRACE_PROPERTY).split(";");
+        fields[0] = fields[0] + "0";
+        StringBuilder foreign = new StringBuilder(fields[0]);
+        for(int index = 1; index < fields.length; index++){
+            foreign.append(';').append(fields[index]);
+        }
+        Map<String, String> properties = new HashMap<String, String>();
+        properties.put(MessageTracer.TRACE_PROPERTY, foreign.toString());
+
+        tracer.onReceive(new Message(null, properties), "Printer");
+        String restarted = tracer.onPublish(new Message(null, properties), "Printer").getProperty(MessageTracer.TRACE_PROPERTY);
+
+        assertNull(tracer.getHopLatency("Sensor", "Printer"));
+        assertNull(tracer.getEndToEndLatency("Sensor", "Printer"));
+        assertTrue(restarted.endsWith(";Printer") && restarted.contains(";Printer;"));
+        assertFalse(restarted.startsWith(fields[0] + ";"));
+    }
+
+    /*Tests_SRS_JAVA_MESSAGE_TRACER_14_008: [ The function shall print a header line followed by one line per hop and end-to-end histogram. ]*/
+    @Test
+    public void dumpPrintsOneLinePerHistogram() throws IOException {
+        MessageTracer tracer = new MessageTracer(1);
+        Message message = tracer.onPublish(newMessage(), "Sensor");
+        tracer.onReceive(new Message(message.toByteArray()), "Printer");
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        tracer.dump(new PrintStream(output, true, "UTF-8"));
+
+        String[] lines = output.toString("UTF-8").trim().split("\n");
+        assertEquals(4, lines.length);
+        assertTrue(lines[2].startsWith("hop") && lines[2].contains("Sensor -> Printer"));
+        assertTrue(lines[3].startsWith("end-to-end") && lines[3].contains("Sensor -> Printer"));
+    }
+
+    /*Tests_SRS_JAVA_MESSAGE_TRACER_14_009: [ If periodSeconds is negative or out is null the function shall throw an IllegalArgumentException. ]*/
+    @Test(expected = IllegalArgumentException.class)
+    public void scheduleDumpThrowsExceptionForNullStream(){
+        new MessageTracer(1).scheduleDump(1, null);
+    }
+
+    /*Tests_SRS_JAVA_MESSAGE_TRACER_14_009: [ If periodSeconds is negative or out is null the function shall throw an IllegalArgumentException. ]*/
+    @Test(expected = IllegalArgumentException.class)
+    public void scheduleDumpThrowsExceptionForNegativePeriod(){
+        new MessageTracer(1).scheduleDump(-1, System.out);
+    }
+}
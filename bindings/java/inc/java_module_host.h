@@ -15,12 +15,15 @@
 #define JAVA_MODULE_ARGS_KEY "args"
 #define JAVA_MODULE_CLASS_PATH_KEY "class.path"
 #define JAVA_MODULE_LIBRARY_PATH_KEY "library.path"
+#define JAVA_MODULE_REMOTE_ADDRESS_KEY "remote.address"
 #define JAVA_MODULE_JVM_OPTIONS_KEY "jvm.options"
 #define JAVA_MODULE_JVM_OPTIONS_VERSION_KEY "version"
 #define JAVA_MODULE_JVM_OPTIONS_DEBUG_KEY "debug"
 #define JAVA_MODULE_JVM_OPTIONS_DEBUG_PORT_KEY "debug.port"
 #define JAVA_MODULE_JVM_OPTIONS_VERBOSE_KEY "verbose"
 #define JAVA_MODULE_JVM_OPTIONS_ADDITIONAL_OPTIONS_KEY "additional.options"
+#define JAVA_MODULE_JVM_OPTIONS_APPCDS_ARCHIVE_KEY "appcds.archive"
+#define JAVA_MODULE_JVM_OPTIONS_APPCDS_DUMP_KEY "appcds.dump"
 
 #ifdef __cplusplus
 extern "C"
@@ -36,6 +39,8 @@ typedef struct JVM_OPTIONS_TAG
     int debug_port;
     bool verbose;
     VECTOR_HANDLE additional_options;
+    const char* appcds_archive;
+    bool appcds_dump;
 } JVM_OPTIONS;
 
 typedef struct JAVA_MODULE_HOST_CONFIG_TAG
@@ -43,6 +48,7 @@ typedef struct JAVA_MODULE_HOST_CONFIG_TAG
     const char* class_name;
     const char* configuration_json;
     JVM_OPTIONS* options;
+    const char* remote_address;
 } JAVA_MODULE_HOST_CONFIG;
 
 MODULE_EXPORT const MODULE_API* MODULE_STATIC_GETAPI(JAVA_MODULE_HOST)(MODULE_API_VERSION gateway_api_version);
@@ -9,9 +9,11 @@
 #define MODULE_DESTROY_METHOD_NAME "destroy"
 #define MODULE_RECEIVE_METHOD_NAME "receive"
 #define MODULE_START_METHOD_NAME "start"
+#define MODULE_WARMUP_METHOD_NAME "warmup"
 #define MODULE_DESTROY_DESCRIPTOR "()V"
 #define MODULE_RECEIVE_DESCRIPTOR "([B)V"
 #define MODULE_START_DESCRIPTOR "()V"
+#define MODULE_WARMUP_DESCRIPTOR "()V"
 #define BROKER_CONSTRUCTOR_DESCRIPTOR "(J)V"
 #define MODULE_CONSTRUCTOR_DESCRIPTOR "(JLcom/microsoft/azure/gateway/core/Broker;Ljava/lang/String;)V"
 #define MODULE_EMPTY_CONSTRUCTOR_DESCRIPTOR "()V"
@@ -20,5 +22,7 @@
 #define DEBUG_PORT_DEFAULT 9876
 #define DEBUG_PORT_MAX_VALUE 65535
 #define DEBUG_OPTIONS_STR_SIZE 64
+#define APPCDS_DUMP_OPTION "-XX:ArchiveClassesAtExit="
+#define APPCDS_USE_OPTION "-XX:SharedArchiveFile="
 
 #endif /*JAVA_MODULE_HOST_COMMON_H*/
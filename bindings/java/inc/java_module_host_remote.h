@@ -0,0 +1,90 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under MIT license. See LICENSE file in the project root for full license information.
+
+/**    @file        java_module_host_remote.h
+ *    @brief        Runs a Java module in a separate JVM process.
+ *    @details    A remote Java module is hosted by a
+ *                @c com.microsoft.azure.gateway.remote.RemoteModuleHost process
+ *                listening on a Unix domain socket. Every frame starts with
+ *                0xA1, a frame type byte and the big-endian size of the whole
+ *                frame. Message frames (type 0x60) are messages serialized
+ *                with @c Message_ToByteArray and are never interpreted by the
+ *                host. Lifecycle calls travel in control frames (type 0x61)
+ *                holding a control code, which messages cannot forge. The
+ *                host answers the create request with a created or error
+ *                control frame. Messages received from the broker are queued
+ *                and written in batches by a writer thread, so a slow or paused
+ *                JVM never blocks the broker.
+ */
+
+#ifndef JAVA_MODULE_HOST_REMOTE_H
+#define JAVA_MODULE_HOST_REMOTE_H
+
+#include "azure_c_shared_utility/umock_c_prod.h"
+#include "module.h"
+#include "java_module_host.h"
+
+#ifdef __cplusplus
+extern "C"
+{
+#endif
+
+#define REMOTE_FRAME_MAGIC 0xA1
+#define REMOTE_MESSAGE_FRAME 0x60
+#define REMOTE_CONTROL_FRAME 0x61
+#define REMOTE_CONTROL_CREATE 1
+#define REMOTE_CONTROL_START 2
+#define REMOTE_CONTROL_DESTROY 3
+#define REMOTE_CONTROL_CREATED 4
+#define REMOTE_CONTROL_ERROR 5
+#define REMOTE_HEADER_SIZE 6
+#define REMOTE_MIN_FRAME_SIZE 14
+#define REMOTE_CONTROL_FRAME_SIZE (REMOTE_HEADER_SIZE + 1)
+#define REMOTE_MAX_FRAME_SIZE (64 * 1024 * 1024)
+#define REMOTE_MAX_QUEUED_BYTES (64 * 1024 * 1024)
+#define REMOTE_MAX_BATCH 64
+#define REMOTE_CREATE_TIMEOUT_MS 10000
+#define REMOTE_SEND_TIMEOUT_MS 1000
+
+typedef struct JAVA_MODULE_HOST_REMOTE_DATA_TAG* JAVA_MODULE_HOST_REMOTE_HANDLE;
+
+/**
+ * @brief   Connects to the remote host listening on @c config->remote_address
+ *          and asks it to create an instance of @c config->class_name. Waits
+ *          up to @c REMOTE_CREATE_TIMEOUT_MS for the host to answer.
+ *
+ * @param   broker  The broker messages from the remote module are published to.
+ * @param   module  The module handle messages from the remote module are published as.
+ * @param   config  The module configuration. @c remote_address must not be @c NULL.
+ *
+ * @return  A valid @c JAVA_MODULE_HOST_REMOTE_HANDLE when successful or @c NULL
+ *          otherwise.
+ */
+MOCKABLE_FUNCTION(, JAVA_MODULE_HOST_REMOTE_HANDLE, JavaModuleHostRemote_Create, BROKER_HANDLE, broker, MODULE_HANDLE, module, const JAVA_MODULE_HOST_CONFIG*, config);
+
+/**
+ * @brief   Asks the remote host to call @c warmup() and @c start() on the module.
+ */
+MOCKABLE_FUNCTION(, void, JavaModuleHostRemote_Start, JAVA_MODULE_HOST_REMOTE_HANDLE, remote);
+
+/**
+ * @brief   Queues @c message to be written to the remote module. Never blocks
+ *          on the socket.
+ *
+ * @return  0 when the message was queued, non-zero when it was dropped.
+ */
+MOCKABLE_FUNCTION(, int, JavaModuleHostRemote_Send, JAVA_MODULE_HOST_REMOTE_HANDLE, remote, MESSAGE_HANDLE, message);
+
+/**
+ * @brief   Asks the remote host to destroy the module, flushes all queued
+ *          messages, closes the connection and frees all resources. Gives up
+ *          flushing once a write makes no progress for
+ *          @c REMOTE_SEND_TIMEOUT_MS.
+ */
+MOCKABLE_FUNCTION(, void, JavaModuleHostRemote_Destroy, JAVA_MODULE_HOST_REMOTE_HANDLE, remote);
+
+#ifdef __cplusplus
+}
+#endif
+
+#endif /*JAVA_MODULE_HOST_REMOTE_H*/
@@ -56,6 +56,7 @@ typedef signed char jbyte;
 #include "azure_c_shared_utility/gballoc.h"
 #include "azure_c_shared_utility/crt_abstractions.h"
 #include "java_module_host_manager.h"
+#include "java_module_host_remote.h"
 #include "module_access.h"
 
 #include <parson.h>
@@ -78,6 +79,7 @@ typedef struct JAVA_MODULE_HANDLE_DATA_TAG
     jobject module;
     char* moduleName;
     JAVA_MODULE_HOST_MANAGER_HANDLE manager;
+    JAVA_MODULE_HOST_REMOTE_HANDLE remote;
 }JAVA_MODULE_HANDLE_DATA;
 
 static int JVM_Create(JavaVM** jvm, JNIEnv** env, JVM_OPTIONS* options);
@@ -88,6 +90,7 @@ static void deinit_vm_options(JavaVMInitArgs* jvm_args, VECTOR_HANDLE options_st
 static jobject NewObjectInternal(JNIEnv* env, jclass clazz, jmethodID methodID, int args_count, ...);
 static void CallVoidMethodInternal(JNIEnv* env, jobject obj, jmethodID methodID, int args_count, ...);
 static jmethodID get_module_method(JAVA_MODULE_HANDLE_DATA* module, const char* method_name, const char* method_descriptor);
+static jmethodID get_optional_module_method(JAVA_MODULE_HANDLE_DATA* module, const char* method_name, const char* method_descriptor);
 
 static MODULE_HANDLE JavaModuleHost_Create(BROKER_HANDLE broker, const void* configuration)
 {
@@ -118,11 +121,30 @@ static MODULE_HANDLE JavaModuleHost_Create(BROKER_HANDLE broker, const void* con
                 /*Codes_SRS_JAVA_MODULE_HOST_14_004: [This function shall return NULL upon any underlying API call failure.]*/
                 LogError("Malloc failure.");
             }
+            else if (config->remote_address != NULL)
+            {
+                result->env = NULL;
+                result->jvm = NULL;
+                result->module = NULL;
+                result->manager = NULL;
+                result->moduleName = (char*)config->class_name;
+
+                /*Codes_SRS_JAVA_MODULE_HOST_14_064: [If configuration->remote_address is not NULL, this function shall not create a JVM and shall instead call JavaModuleHostRemote_Create to host the module in the remote process listening on that address.]*/
+                result->remote = JavaModuleHostRemote_Create(broker, (MODULE_HANDLE)result, config);
+                if (result->remote == NULL)
+                {
+                    /*Codes_SRS_JAVA_MODULE_HOST_14_004: [This function shall return NULL upon any underlying API call failure.]*/
+                    LogError("Failed to connect to the remote Java module host at %s.", config->remote_address);
+                    free(result);
+                    result = NULL;
+                }
+            }
             else
             {
                 //TODO: Requirements for this
                 result->env = NULL;
                 result->jvm = NULL;
+                result->remote = NULL;
                 result->moduleName = (char*)config->class_name;
 
                 /*Codes_SRS_JAVA_MODULE_HOST_14_037: [This function shall get a singleton instance of a JavaModuleHostManager. ]*/
@@ -329,48 +351,57 @@ static void JavaModuleHost_Destroy(MODULE_HANDLE module)
     {
         JAVA_MODULE_HANDLE_DATA* moduleHandle = (JAVA_MODULE_HANDLE_DATA *)module;
 
-        /*Codes_SRS_JAVA_MODULE_HOST_14_039: [This function shall attach the JVM to the current thread. ]*/
-        jint jni_result = JNIFunc(moduleHandle->jvm, AttachCurrentThread, (void**)(&(moduleHandle->env)), NULL);
-        if (jni_result != JNI_OK)
+        if (moduleHandle->remote != NULL)
         {
-            /*Codes_SRS_JAVA_MODULE_HOST_14_041: [ This function shall exit if any JNI function fails. ]*/
-            LogError("Could not attach the current thread to the JVM. (Result: %i)", jni_result);
+            /*Codes_SRS_JAVA_MODULE_HOST_14_065: [If the module is hosted remotely, this function shall call JavaModuleHostRemote_Destroy and free the module instead of using the JVM.]*/
+            JavaModuleHostRemote_Destroy(moduleHandle->remote);
+            free(moduleHandle);
         }
         else
         {
-            /*Codes_SRS_JAVA_MODULE_HOST_14_038: [This function shall find get the user-defined Java module class using the module parameter and get the destroy(). ]*/
-            /*Codes_SRS_JAVA_MODULE_HOST_14_041: [ This function shall exit if any JNI function fails. ]*/
-            jmethodID jModule_destroy = get_module_method(moduleHandle, MODULE_DESTROY_METHOD_NAME, MODULE_DESTROY_DESCRIPTOR);
-            if (jModule_destroy == NULL)
+            /*Codes_SRS_JAVA_MODULE_HOST_14_039: [This function shall attach the JVM to the current thread. ]*/
+            jint jni_result = JNIFunc(moduleHandle->jvm, AttachCurrentThread, (void**)(&(moduleHandle->env)), NULL);
+            if (jni_result != JNI_OK)
             {
                 /*Codes_SRS_JAVA_MODULE_HOST_14_041: [ This function shall exit if any JNI function fails. ]*/
-                LogError("Failed to get the %s destroy() method.", moduleHandle->moduleName);
+                LogError("Could not attach the current thread to the JVM. (Result: %i)", jni_result);
             }
             else
             {
-                /*Codes_SRS_JAVA_MODULE_HOST_14_020: [This function shall call the void destroy() method of the Java module object and delete the global reference to this object.]*/
-                //Destruction will continue even if there is an exception in the Java destroy method
-                CallVoidMethodInternal(moduleHandle->env, moduleHandle->module, jModule_destroy, 0);
-                jthrowable exception = JNIFunc(moduleHandle->env, ExceptionOccurred);
-                if (exception)
+                /*Codes_SRS_JAVA_MODULE_HOST_14_038: [This function shall find get the user-defined Java module class using the module parameter and get the destroy(). ]*/
+                /*Codes_SRS_JAVA_MODULE_HOST_14_041: [ This function shall exit if any JNI function fails. ]*/
+                jmethodID jModule_destroy = get_module_method(moduleHandle, MODULE_DESTROY_METHOD_NAME, MODULE_DESTROY_DESCRIPTOR);
+                if (jModule_destroy == NULL)
                 {
-                    LogError("Exception occurred in destroy() of %s.", moduleHandle->moduleName);
-                    JNIFunc(moduleHandle->env, ExceptionDescribe);
-                    JNIFunc(moduleHandle->env, ExceptionClear);
+                    /*Codes_SRS_JAVA_MODULE_HOST_14_041: [ This function shall exit if any JNI function fails. ]*/
+                    LogError("Failed to get the %s destroy() method.", moduleHandle->moduleName);
                 }
+                else
+                {
+                    /*Codes_SRS_JAVA_MODULE_HOST_14_020: [This function shall call the void destroy() method of the Java module object and delete the global reference to this object.]*/
+                    //Destruction will continue even if there is an exception in the Java destroy method
+                    CallVoidMethodInternal(moduleHandle->env, moduleHandle->module, jModule_destroy, 0);
+                    jthrowable exception = JNIFunc(moduleHandle->env, ExceptionOccurred);
+                    if (exception)
+                    {
+                        LogError("Exception occurred in destroy() of %s.", moduleHandle->moduleName);
+                        JNIFunc(moduleHandle->env, ExceptionDescribe);
+                        JNIFunc(moduleHandle->env, ExceptionClear);
+                    }
 
-                JNIFunc(moduleHandle->env, DeleteGlobalRef, moduleHandle->module);
+                    JNIFunc(moduleHandle->env, DeleteGlobalRef, moduleHandle->module);
 
-                /*Codes_SRS_JAVA_MODULE_HOST_14_040: [This function shall detach the JVM from the current thread.]*/
-                jni_result = JNIFunc(moduleHandle->jvm, DetachCurrentThread);
-                if (jni_result != JNI_OK)
-                {
-                    LogError("Could not detach the current thread from the JVM. (Result: %i)", jni_result);
-                }
+                    /*Codes_SRS_JAVA_MODULE_HOST_14_040: [This function shall detach the JVM from the current thread.]*/
+                    jni_result = JNIFunc(moduleHandle->jvm, DetachCurrentThread);
+                    if (jni_result != JNI_OK)
+                    {
+                        LogError("Could not detach the current thread from the JVM. (Result: %i)", jni_result);
+                    }
 
-                /*Codes_SRS_JAVA_MODULE_HOST_14_029: [This function shall destroy the JVM if it the last module to be disconnected from the gateway.]*/
-                /*Codes_SRS_JAVA_MODULE_HOST_14_021: [This function shall free all resources associated with this module.]*/
-                destroy_module_internal(moduleHandle, true);
+                    /*Codes_SRS_JAVA_MODULE_HOST_14_029: [This function shall destroy the JVM if it the last module to be disconnected from the gateway.]*/
+                    /*Codes_SRS_JAVA_MODULE_HOST_14_021: [This function shall free all resources associated with this module.]*/
+                    destroy_module_internal(moduleHandle, true);
+                }
             }
         }
     }
@@ -383,78 +414,89 @@ static void JavaModuleHost_Receive(MODULE_HANDLE module, MESSAGE_HANDLE message)
     {
         JAVA_MODULE_HANDLE_DATA* moduleHandle = (JAVA_MODULE_HANDLE_DATA*)module;
 
-        /*Codes_SRS_JAVA_MODULE_HOST_14_023: [This function shall serialize message.]*/
-        int32_t size = Message_ToByteArray(message, NULL, 0);
-
-        if (size < 0)
+        if (moduleHandle->remote != NULL)
         {
-            /*Codes_SRS_JAVA_MODULE_HOST_14_047: [This function shall exit if any underlying function fails.]*/
-            LogError("Could not serialize the message to a byte array.");
+            /*Codes_SRS_JAVA_MODULE_HOST_14_066: [If the module is hosted remotely, this function shall call JavaModuleHostRemote_Send instead of calling into the JVM.]*/
+            if (JavaModuleHostRemote_Send(moduleHandle->remote, message) != 0)
+            {
+                LogError("Could not send the message to the remote module %s.", moduleHandle->moduleName);
+            }
         }
         else
         {
-            unsigned char* serialized_message = (unsigned char*)malloc(size);
-            if (serialized_message == NULL)
+            /*Codes_SRS_JAVA_MODULE_HOST_14_023: [This function shall serialize message.]*/
+            int32_t size = Message_ToByteArray(message, NULL, 0);
+
+            if (size < 0)
             {
-                LogError("Could not allocate byte array for message.");
+                /*Codes_SRS_JAVA_MODULE_HOST_14_047: [This function shall exit if any underlying function fails.]*/
+                LogError("Could not serialize the message to a byte array.");
             }
             else
             {
-                Message_ToByteArray(message, serialized_message, size);
+                unsigned char* serialized_message = (unsigned char*)malloc(size);
+                if (serialized_message == NULL)
+                {
+                    LogError("Could not allocate byte array for message.");
+                }
+                else
+                {
+                    Message_ToByteArray(message, serialized_message, size);
 
-                /*Codes_SRS_JAVA_MODULE_HOST_14_042: [This function shall attach the JVM to the current thread.]*/
-                jint jni_result = JNIFunc(moduleHandle->jvm, AttachCurrentThread, (void**)(&(moduleHandle->env)), NULL);
+                    /*Codes_SRS_JAVA_MODULE_HOST_14_042: [This function shall attach the JVM to the current thread.]*/
+                    jint jni_result = JNIFunc(moduleHandle->jvm, AttachCurrentThread, (void**)(&(moduleHandle->env)), NULL);
 
-                if (jni_result == JNI_OK)
-                {
-                    /*Codes_SRS_JAVA_MODULE_HOST_14_043: [This function shall create a new jbyteArray for the serialized message.]*/
-                    jbyteArray arr = JNIFunc(moduleHandle->env, NewByteArray, size);
-                    if (arr == NULL)
-                    {
-                        /*Codes_SRS_JAVA_MODULE_HOST_14_047: [This function shall exit if any underlying function fails.]*/
-                        LogError("New jbyteArray could not be constructed.");
-                    }
-                    else
+                    if (jni_result == JNI_OK)
                     {
-                        /*Codes_SRS_JAVA_MODULE_HOST_14_044: [This function shall set the contents of the jbyteArray to the serialized_message.]*/
-                        JNIFunc(moduleHandle->env, SetByteArrayRegion, arr, 0, size, serialized_message);
-                        jthrowable exception = JNIFunc(moduleHandle->env, ExceptionOccurred);
-                        if (exception)
+                        /*Codes_SRS_JAVA_MODULE_HOST_14_043: [This function shall create a new jbyteArray for the serialized message.]*/
+                        jbyteArray arr = JNIFunc(moduleHandle->env, NewByteArray, size);
+                        if (arr == NULL)
                         {
                             /*Codes_SRS_JAVA_MODULE_HOST_14_047: [This function shall exit if any underlying function fails.]*/
-                            LogError("Exception occurred in SetByteArrayRegion.");
-                            JNIFunc(moduleHandle->env, ExceptionDescribe);
-                            JNIFunc(moduleHandle->env, ExceptionClear);
+                            LogError("New jbyteArray could not be constructed.");
                         }
                         else
                         {
-                            /*Codes_SRS_JAVA_MODULE_HOST_14_045: [This function shall get the user - defined Java module class using the module parameter and get the receive() method.]*/
-                            jmethodID jModule_receive = get_module_method(moduleHandle, MODULE_RECEIVE_METHOD_NAME, MODULE_RECEIVE_DESCRIPTOR);
-                            if (jModule_receive == NULL)
+                            /*Codes_SRS_JAVA_MODULE_HOST_14_044: [This function shall set the contents of the jbyteArray to the serialized_message.]*/
+                            JNIFunc(moduleHandle->env, SetByteArrayRegion, arr, 0, size, serialized_message);
+                            jthrowable exception = JNIFunc(moduleHandle->env, ExceptionOccurred);
+                            if (exception)
                             {
                                 /*Codes_SRS_JAVA_MODULE_HOST_14_047: [This function shall exit if any underlying function fails.]*/
-                                LogError("Failed to get the %s receive() method.", moduleHandle->moduleName);
+                                LogError("Exception occurred in SetByteArrayRegion.");
+                                JNIFunc(moduleHandle->env, ExceptionDescribe);
+                                JNIFunc(moduleHandle->env, ExceptionClear);
                             }
                             else
                             {
-                                /*Codes_SRS_JAVA_MODULE_HOST_14_024: [This function shall call the void receive(byte[] source) method of the Java module object passing the serialized message.]*/
-                                CallVoidMethodInternal(moduleHandle->env, moduleHandle->module, jModule_receive, 1, arr);
-                                exception = JNIFunc(moduleHandle->env, ExceptionOccurred);
-                                if (exception)
+                                /*Codes_SRS_JAVA_MODULE_HOST_14_045: [This function shall get the user - defined Java module class using the module parameter and get the receive() method.]*/
+                                jmethodID jModule_receive = get_module_method(moduleHandle, MODULE_RECEIVE_METHOD_NAME, MODULE_RECEIVE_DESCRIPTOR);
+                                if (jModule_receive == NULL)
                                 {
                                     /*Codes_SRS_JAVA_MODULE_HOST_14_047: [This function shall exit if any underlying function fails.]*/
-                                    LogError("Exception occurred in receive() of %s.", moduleHandle->moduleName);
-                                    JNIFunc(moduleHandle->env, ExceptionDescribe);
-                                    JNIFunc(moduleHandle->env, ExceptionClear);
+                                    LogError("Failed to get the %s receive() method.", moduleHandle->moduleName);
+                                }
+                                else
+                                {
+                                    /*Codes_SRS_JAVA_MODULE_HOST_14_024: [This function shall call the void receive(byte[] source) method of the Java module object passing the serialized message.]*/
+                                    CallVoidMethodInternal(moduleHandle->env, moduleHandle->module, jModule_receive, 1, arr);
+                                    exception = JNIFunc(moduleHandle->env, ExceptionOccurred);
+                                    if (exception)
+                                    {
+                                        /*Codes_SRS_JAVA_MODULE_HOST_14_047: [This function shall exit if any underlying function fails.]*/
+                                        LogError("Exception occurred in receive() of %s.", moduleHandle->moduleName);
+                                        JNIFunc(moduleHandle->env, ExceptionDescribe);
+                                        JNIFunc(moduleHandle->env, ExceptionClear);
+                                    }
                                 }
                             }
+                            JNIFunc(moduleHandle->env, DeleteLocalRef, arr);
                         }
-                        JNIFunc(moduleHandle->env, DeleteLocalRef, arr);
+                        /*Codes_SRS_JAVA_MODULE_HOST_14_046: [This function shall detach the JVM from the current thread.]*/
+                        JNIFunc(moduleHandle->jvm, DetachCurrentThread);
                     }
-                    /*Codes_SRS_JAVA_MODULE_HOST_14_046: [This function shall detach the JVM from the current thread.]*/
-                    JNIFunc(moduleHandle->jvm, DetachCurrentThread);
+                    free(serialized_message);
                 }
-                free(serialized_message);
             }
         }
     }
@@ -468,42 +510,66 @@ static void JavaModuleHost_Start(MODULE_HANDLE module)
     {
         JAVA_MODULE_HANDLE_DATA* moduleHandle = (JAVA_MODULE_HANDLE_DATA*)module;
 
-        /*Codes_SRS_JAVA_MODULE_HOST_14_050: [This function shall attach the JVM to the current thread.]*/
-        jint jni_result = JNIFunc(moduleHandle->jvm, AttachCurrentThread, (void**)(&(moduleHandle->env)), NULL);
-        if (jni_result != JNI_OK)
+        if (moduleHandle->remote != NULL)
         {
-            /*Codes_SRS_JAVA_MODULE_HOST_14_054: [This function shall exit if any JNI function fails.]*/
-            LogError("Could not attach the current thread to the JVM. (Result: %i)", jni_result);
+            /*Codes_SRS_JAVA_MODULE_HOST_14_067: [If the module is hosted remotely, this function shall call JavaModuleHostRemote_Start instead of calling into the JVM.]*/
+            JavaModuleHostRemote_Start(moduleHandle->remote);
         }
         else
         {
-            /*Codes_SRS_JAVA_MODULE_HOST_14_051: [This function shall get the user-defined Java module class using the module parameter and get the start() method.]*/
-            /*Codes_SRS_JAVA_MODULE_HOST_14_054: [This function shall exit if any JNI function fails.]*/
-            jmethodID jModule_start = get_module_method(moduleHandle, MODULE_START_METHOD_NAME, MODULE_START_DESCRIPTOR);
-            if (jModule_start == NULL)
+            /*Codes_SRS_JAVA_MODULE_HOST_14_050: [This function shall attach the JVM to the current thread.]*/
+            jint jni_result = JNIFunc(moduleHandle->jvm, AttachCurrentThread, (void**)(&(moduleHandle->env)), NULL);
+            if (jni_result != JNI_OK)
             {
                 /*Codes_SRS_JAVA_MODULE_HOST_14_054: [This function shall exit if any JNI function fails.]*/
-                LogError("Failed to find the %s start() method. start() will not be called on this object.", moduleHandle->moduleName);
+                LogError("Could not attach the current thread to the JVM. (Result: %i)", jni_result);
             }
             else
             {
-                /*Codes_SRS_JAVA_MODULE_HOST_14_052: [This function shall call the void start() method of the Java module object.]*/
-                CallVoidMethodInternal(moduleHandle->env, moduleHandle->module, jModule_start, 0);
-                jthrowable exception = JNIFunc(moduleHandle->env, ExceptionOccurred);
-                if (exception)
+                /*Codes_SRS_JAVA_MODULE_HOST_14_051: [This function shall get the user-defined Java module class using the module parameter and get the start() method.]*/
+                /*Codes_SRS_JAVA_MODULE_HOST_14_054: [This function shall exit if any JNI function fails.]*/
+                jmethodID jModule_start = get_module_method(moduleHandle, MODULE_START_METHOD_NAME, MODULE_START_DESCRIPTOR);
+                if (jModule_start == NULL)
                 {
                     /*Codes_SRS_JAVA_MODULE_HOST_14_054: [This function shall exit if any JNI function fails.]*/
-                    LogError("Exception occurred in start() of %s.", moduleHandle->moduleName);
-                    JNIFunc(moduleHandle->env, ExceptionDescribe);
-                    JNIFunc(moduleHandle->env, ExceptionClear);
+                    LogError("Failed to find the %s start() method. start() will not be called on this object.", moduleHandle->moduleName);
+                }
+                else
+                {
+                    /*Codes_SRS_JAVA_MODULE_HOST_14_062: [This function shall get the warmup() method and call it before calling start().]*/
+                    /*Codes_SRS_JAVA_MODULE_HOST_14_063: [If warmup() cannot be found or throws an exception, this function shall still call start().]*/
+                    jmethodID jModule_warmup = get_optional_module_method(moduleHandle, MODULE_WARMUP_METHOD_NAME, MODULE_WARMUP_DESCRIPTOR);
+                    if (jModule_warmup != NULL)
+                    {
+                        CallVoidMethodInternal(moduleHandle->env, moduleHandle->module, jModule_warmup, 0);
+                        jthrowable exception = JNIFunc(moduleHandle->env, ExceptionOccurred);
+                        if (exception)
+                        {
+                            /*Codes_SRS_JAVA_MODULE_HOST_14_063: [If warmup() cannot be found or throws an exception, this function shall still call start().]*/
+                            LogError("Exception occurred in warmup() of %s.", moduleHandle->moduleName);
+                            JNIFunc(moduleHandle->env, ExceptionDescribe);
+                            JNIFunc(moduleHandle->env, ExceptionClear);
+                        }
+                    }
+
+                    /*Codes_SRS_JAVA_MODULE_HOST_14_052: [This function shall call the void start() method of the Java module object.]*/
+                    CallVoidMethodInternal(moduleHandle->env, moduleHandle->module, jModule_start, 0);
+                    jthrowable exception = JNIFunc(moduleHandle->env, ExceptionOccurred);
+                    if (exception)
+                    {
+                        /*Codes_SRS_JAVA_MODULE_HOST_14_054: [This function shall exit if any JNI function fails.]*/
+                        LogError("Exception occurred in start() of %s.", moduleHandle->moduleName);
+                        JNIFunc(moduleHandle->env, ExceptionDescribe);
+                        JNIFunc(moduleHandle->env, ExceptionClear);
+                    }
+                }
+                /*Codes_SRS_JAVA_MODULE_HOST_14_053: [This function shall detach the JVM from the current thread.]*/
+                jni_result = JNIFunc(moduleHandle->jvm, DetachCurrentThread);
+                if (jni_result != JNI_OK)
+                {
+                    /*Codes_SRS_JAVA_MODULE_HOST_14_054: [This function shall exit if any JNI function fails.]*/
+                    LogError("Could not detach the current thread from the JVM. (Result: %i)", jni_result);
                 }
-            }
-            /*Codes_SRS_JAVA_MODULE_HOST_14_053: [This function shall detach the JVM from the current thread.]*/
-            jni_result = JNIFunc(moduleHandle->jvm, DetachCurrentThread);
-            if (jni_result != JNI_OK)
-            {
-                /*Codes_SRS_JAVA_MODULE_HOST_14_054: [This function shall exit if any JNI function fails.]*/
-                LogError("Could not detach the current thread from the JVM. (Result: %i)", jni_result);
             }
         }
     }
@@ -617,6 +683,29 @@ static jmethodID get_module_method(JAVA_MODULE_HANDLE_DATA* module, const char*
     return jModule_method;
 }
 
+static jmethodID get_optional_module_method(JAVA_MODULE_HANDLE_DATA* module, const char* method_name, const char* method_descriptor)
+{
+    jmethodID jModule_method;
+    jclass jModule_class = JNIFunc(module->env, GetObjectClass, module->module);
+    if (jModule_class == NULL)
+    {
+        LogError("Could not find class (%s) for the module Java object. %s() will not be called on this object.", module->moduleName, method_name);
+        jModule_method = NULL;
+    }
+    else
+    {
+        //A module compiled against an older binding may not implement the method; that is not an error
+        jModule_method = JNIFunc(module->env, GetMethodID, jModule_class, method_name, method_descriptor);
+        jthrowable exception = JNIFunc(module->env, ExceptionOccurred);
+        if (jModule_method == NULL || exception)
+        {
+            JNIFunc(module->env, ExceptionClear);
+            jModule_method = NULL;
+        }
+    }
+    return jModule_method;
+}
+
 static int JVM_Create(JavaVM** jvm, JNIEnv** env, JVM_OPTIONS* options)
 {
     /*Codes_SRS_JAVA_MODULE_HOST_14_007: [This function shall initialize a JavaVMInitArgs structure using the JVM_OPTIONS structure configuration->options.]*/
@@ -645,6 +734,11 @@ static int JVM_Create(JavaVM** jvm, JNIEnv** env, JVM_OPTIONS* options)
             /*Codes_SRS_JAVA_MODULE_HOST_14_013: [This function shall return NULL if a JVM could not be created or found.]*/
             /*Codes_SRS_JAVA_MODULE_HOST_14_017: [This function shall return NULL if any JNI function fails.]*/
             LogError("Failed to launch JVM. JNI_CreateJavaVM returned: %d.", result);
+            if (options != NULL && options->appcds_archive != NULL)
+            {
+                LogError("The JVM options include the AppCDS archive %s (appcds.dump = %s). AppCDS options require Java 13 or later; remove \"appcds.archive\" from \"jvm.options\" to run on an older JVM.",
+                    options->appcds_archive, options->appcds_dump == true ? "true" : "false");
+            }
         }
 
         //Free up any memory used when initializing the JavaVMInitArgs
@@ -693,6 +787,7 @@ static int init_vm_options(JavaVMInitArgs* jvm_args, VECTOR_HANDLE* options_stri
             options_count += (jvm_options->debug == true ? 3 : 0);
             options_count += (jvm_options->verbose == true ? 1 : 0);
             options_count += VECTOR_size(jvm_options->additional_options);
+            options_count += (jvm_options->appcds_archive != NULL ? 1 : 0);
 
             /*Codes_SRS_JAVA_MODULE_HOST_14_009: [This function shall allocate memory for an array of JavaVMOption structures and initialize each with each option provided.]*/
             (*jvm_args).options = options_count == 0 ? NULL : (JavaVMOption*)malloc(sizeof(JavaVMOption)*options_count);
@@ -907,6 +1002,43 @@ static int init_vm_options(JavaVMInitArgs* jvm_args, VECTOR_HANDLE* options_stri
 
                     }
                 }
+                if (jvm_options->appcds_archive != NULL && result == 0)
+                {
+                    /*Codes_SRS_JAVA_MODULE_HOST_14_060: [If appcds_archive is not NULL and appcds_dump is true, the function shall add the -XX:ArchiveClassesAtExit option for the archive.]*/
+                    /*Codes_SRS_JAVA_MODULE_HOST_14_061: [If appcds_archive is not NULL and appcds_dump is false, the function shall add the -XX:SharedArchiveFile option for the archive.]*/
+                    STRING_HANDLE appcds_str = STRING_construct(jvm_options->appcds_dump == true ? APPCDS_DUMP_OPTION : APPCDS_USE_OPTION);
+                    if (appcds_str == NULL)
+                    {
+                        LogError("String_construct failed.");
+                        result = __LINE__;
+                    }
+                    else
+                    {
+                        /*Codes_SRS_JAVA_MODULE_HOST_14_033:[The function shall concatenate the user supplied options to the option key names.]*/
+                        if (STRING_concat(appcds_str, jvm_options->appcds_archive) != 0)
+                        {
+                            /*Codes_SRS_JAVA_MODULE_HOST_14_035:[ If any operation fails, the function shall delete the STRING_HANDLE structures, VECTOR_HANDLE and JavaVMOption array. ]*/
+                            LogError("String_concat failed.");
+                            STRING_delete(appcds_str);
+                            result = __LINE__;
+                        }
+                        else
+                        {
+                            /*Codes_SRS_JAVA_MODULE_HOST_14_034:[ The function shall push the new STRING_HANDLE onto the newly created vector. ]*/
+                            if (VECTOR_push_back(*options_strings, &appcds_str, 1) != 0)
+                            {
+                                /*Codes_SRS_JAVA_MODULE_HOST_14_035:[ If any operation fails, the function shall delete the STRING_HANDLE structures, VECTOR_HANDLE and JavaVMOption array. ]*/
+                                LogError("Failed to push AppCDS option onto vector.");
+                                STRING_delete(appcds_str);
+                                result = __LINE__;
+                            }
+                            else
+                            {
+                                (*jvm_args).options[--options_count].optionString = (char*)STRING_c_str(appcds_str);
+                            }
+                        }
+                    }
+                }
             }
 
             /*Codes_SRS_JAVA_MODULE_HOST_14_035:[ If any operation fails, the function shall delete the STRING_HANDLE structures, VECTOR_HANDLE and JavaVMOption array. ]*/
@@ -17,6 +17,7 @@ typedef struct JAVA_MODULE_HOST_MANAGER_DATA_TAG {
 
 static JAVA_MODULE_HOST_MANAGER_RESULT internal_inc_dec(JAVA_MODULE_HOST_MANAGER_HANDLE manager, int addend);
 static int config_options_compare(JAVA_MODULE_HOST_CONFIG* config1, JAVA_MODULE_HOST_CONFIG* config2);
+static int appcds_archive_compare(const char* archive1, const char* archive2);
 static JAVA_MODULE_HOST_CONFIG* config_copy(JAVA_MODULE_HOST_CONFIG* config);
 static void config_destroy(JAVA_MODULE_HOST_CONFIG* config);
 static JVM_OPTIONS* options_copy(JVM_OPTIONS* options);
@@ -298,10 +299,30 @@ static JVM_OPTIONS* options_copy(JVM_OPTIONS* options)
                 }
                 else
                 {
-                    new_options->debug = options->debug;
-                    new_options->debug_port = options->debug_port;
-                    new_options->verbose = options->verbose;
-                    new_options->version = options->version;
+                    //Copy the AppCDS archive path, which is optional
+                    new_options->appcds_archive = NULL;
+                    if (options->appcds_archive != NULL)
+                    {
+                        status = mallocAndStrcpy_s((char**)(&new_options->appcds_archive), options->appcds_archive);
+                    }
+
+                    if (status != 0)
+                    {
+                        LogError("Failed to allocate appcds_archive.");
+                        free((void*)new_options->library_path);
+                        free((void*)new_options->class_path);
+                        VECTOR_destroy(new_options->additional_options);
+                        free(new_options);
+                        new_options = NULL;
+                    }
+                    else
+                    {
+                        new_options->appcds_dump = options->appcds_dump;
+                        new_options->debug = options->debug;
+                        new_options->debug_port = options->debug_port;
+                        new_options->verbose = options->verbose;
+                        new_options->version = options->version;
+                    }
                 }
             }
         }
@@ -317,12 +338,29 @@ static void config_destroy(JAVA_MODULE_HOST_CONFIG* config)
     {
         free((void*)config->options->class_path);
         free((void*)config->options->library_path);
+        free((void*)config->options->appcds_archive);
         VECTOR_destroy(config->options->additional_options);
         free(config->options);
     }
     free(config);
 }
 
+static int appcds_archive_compare(const char* archive1, const char* archive2)
+{
+    int result;
+
+    if (archive1 == NULL || archive2 == NULL)
+    {
+        result = (archive1 == archive2) ? 0 : __LINE__;
+    }
+    else
+    {
+        result = strcmp(archive1, archive2);
+    }
+
+    return result;
+}
+
 static int config_options_compare(JAVA_MODULE_HOST_CONFIG* config1, JAVA_MODULE_HOST_CONFIG* config2)
 {
     int result;
@@ -363,6 +401,8 @@ static int config_options_compare(JAVA_MODULE_HOST_CONFIG* config1, JAVA_MODULE_
             options1->debug == options2->debug &&
             options1->debug_port == options2->debug_port &&
             options1->verbose == options2->verbose &&
+            options1->appcds_dump == options2->appcds_dump &&
+            appcds_archive_compare(options1->appcds_archive, options2->appcds_archive) == 0 &&
             VECTOR_compare(options1->additional_options, options2->additional_options) == 0
             )
         {
@@ -0,0 +1,774 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+#include <stdlib.h>
+#include <stdint.h>
+#include <string.h>
+#include "azure_c_shared_utility/gballoc.h"
+#include "azure_c_shared_utility/xlogging.h"
+#include "azure_c_shared_utility/lock.h"
+#include "azure_c_shared_utility/condition.h"
+#include "azure_c_shared_utility/threadapi.h"
+#include "message.h"
+#include "broker.h"
+#include "java_module_host_remote.h"
+
+#ifndef _WIN32
+#include <errno.h>
+#include <unistd.h>
+#include <sys/socket.h>
+#include <sys/time.h>
+#include <sys/uio.h>
+#include <sys/un.h>
+
+//Where a send flag cannot keep a closed connection from raising SIGPIPE (macOS, BSD), the socket option does.
+#ifndef MSG_NOSIGNAL
+#define MSG_NOSIGNAL 0
+#ifdef SO_NOSIGPIPE
+#define REMOTE_USE_SO_NOSIGPIPE
+#endif
+#endif
+#endif
+
+//The longest error text of an error control frame that is logged.
+#define REMOTE_MAX_ERROR_SIZE 256
+
+typedef struct REMOTE_FRAME_TAG
+{
+    unsigned char* data;
+    int32_t size;
+    struct REMOTE_FRAME_TAG* next;
+} REMOTE_FRAME;
+
+typedef struct JAVA_MODULE_HOST_REMOTE_DATA_TAG
+{
+    BROKER_HANDLE broker;
+    MODULE_HANDLE module;
+    int socket;
+    LOCK_HANDLE lock;
+    COND_HANDLE condition;
+    REMOTE_FRAME* head;
+    REMOTE_FRAME* tail;
+    size_t queued_bytes;
+    bool stopping;
+    THREAD_HANDLE writer;
+    THREAD_HANDLE reader;
+} JAVA_MODULE_HOST_REMOTE_DATA;
+
+static int connect_socket(const char* address);
+static void close_socket(int socket);
+static int set_socket_timeouts(int socket, int receive_timeout_ms);
+static int write_frames(JAVA_MODULE_HOST_REMOTE_DATA* remote, REMOTE_FRAME* frames);
+static int read_all(int socket, unsigned char* buffer, size_t size);
+static int request_create(JAVA_MODULE_HOST_REMOTE_DATA* remote, const JAVA_MODULE_HOST_CONFIG* config);
+static int read_create_answer(int socket, const char* class_name);
+static bool is_stopping(JAVA_MODULE_HOST_REMOTE_DATA* remote);
+static REMOTE_FRAME* frame_from_message(MESSAGE_HANDLE message);
+static REMOTE_FRAME* frame_from_control(unsigned char control, const char* class_name, const char* content);
+static void free_frames(REMOTE_FRAME* frames);
+static int enqueue_frame(JAVA_MODULE_HOST_REMOTE_DATA* remote, REMOTE_FRAME* frame, bool control);
+static int remote_writer(void* context);
+static int remote_reader(void* context);
+static void destroy_remote_internal(JAVA_MODULE_HOST_REMOTE_DATA* remote);
+
+JAVA_MODULE_HOST_REMOTE_HANDLE JavaModuleHostRemote_Create(BROKER_HANDLE broker, MODULE_HANDLE module, const JAVA_MODULE_HOST_CONFIG* config)
+{
+    JAVA_MODULE_HOST_REMOTE_DATA* result;
+
+    /*Codes_SRS_JAVA_MODULE_HOST_REMOTE_14_001: [ This function shall return NULL if broker, module, config, config->class_name or config->remote_address is NULL. ]*/
+    if (broker == NULL || module == NULL || config == NULL || config->class_name == NULL || config->remote_address == NULL)
+    {
+        LogError("Invalid input (broker = %p, module = %p, config = %p).", broker, module, config);
+        result = NULL;
+    }
+    else
+    {
+        result = (JAVA_MODULE_HOST_REMOTE_DATA*)malloc(sizeof(JAVA_MODULE_HOST_REMOTE_DATA));
+        if (result == NULL)
+        {
+            /*Codes_SRS_JAVA_MODULE_HOST_REMOTE_14_002: [ This function shall return NULL upon any underlying API call failure. ]*/
+            LogError("Malloc failure.");
+        }
+        else
+        {
+            result->broker = broker;
+            result->module = module;
+            result->head = NULL;
+            result->tail = NULL;
+            result->queued_bytes = 0;
+            //Until the remote host has created the module, a write that makes no progress is given up like one during destroy.
+            result->stopping = true;
+            result->condition = NULL;
+            result->socket = -1;
+
+            if ((result->lock = Lock_Init()) == NULL)
+            {
+                /*Codes_SRS_JAVA_MODULE_HOST_REMOTE_14_002: [ This function shall return NULL upon any underlying API call failure. ]*/
+                LogError("Lock_Init() failed.");
+                destroy_remote_internal(result);
+                result = NULL;
+            }
+            else if ((result->condition = Condition_Init()) == NULL)
+            {
+                LogError("Condition_Init() failed.");
+                destroy_remote_internal(result);
+                result = NULL;
+            }
+            /*Codes_SRS_JAVA_MODULE_HOST_REMOTE_14_003: [ This function shall connect to the Unix domain socket at config->remote_address. ]*/
+            else if ((result->socket = connect_socket(config->remote_address)) < 0)
+            {
+                LogError("Could not connect to the remote Java module host at %s.", config->remote_address);
+                destroy_remote_internal(result);
+                result = NULL;
+            }
+            else if (request_create(result, config) != 0)
+            {
+                destroy_remote_internal(result);
+                result = NULL;
+            }
+            /*Codes_SRS_JAVA_MODULE_HOST_REMOTE_14_005: [ This function shall start a writer thread and a reader thread. ]*/
+            else if (ThreadAPI_Create(&(result->writer), remote_writer, result) != THREADAPI_OK)
+            {
+                LogError("Could not start the writer thread.");
+                destroy_remote_internal(result);
+                result = NULL;
+            }
+            else if (ThreadAPI_Create(&(result->reader), remote_reader, result) != THREADAPI_OK)
+            {
+                int thread_result;
+
+                LogError("Could not start the reader thread.");
+                (void)Lock(result->lock);
+                result->stopping = true;
+                (void)Condition_Post(result->condition);
+                (void)Unlock(result->lock);
+                (void)ThreadAPI_Join(result->writer, &thread_result);
+                destroy_remote_internal(result);
+                result = NULL;
+            }
+        }
+    }
+
+    return result;
+}
+
+void JavaModuleHostRemote_Start(JAVA_MODULE_HOST_REMOTE_HANDLE remote)
+{
+    /*Codes_SRS_JAVA_MODULE_HOST_REMOTE_14_006: [ This function shall do nothing if remote is NULL. ]*/
+    if (remote != NULL)
+    {
+        /*Codes_SRS_JAVA_MODULE_HOST_REMOTE_14_007: [ This function shall queue a start control frame. ]*/
+        REMOTE_FRAME* start_frame = frame_from_control(REMOTE_CONTROL_START, NULL, NULL);
+        if (start_frame == NULL || enqueue_frame(remote, start_frame, true) != 0)
+        {
+            LogError("Could not send the start request to the remote Java module host.");
+            free_frames(start_frame);
+        }
+    }
+}
+
+int JavaModuleHostRemote_Send(JAVA_MODULE_HOST_REMOTE_HANDLE remote, MESSAGE_HANDLE message)
+{
+    int result;
+
+    /*Codes_SRS_JAVA_MODULE_HOST_REMOTE_14_008: [ This function shall return non-zero if remote or message is NULL. ]*/
+    if (remote == NULL || message == NULL)
+    {
+        LogError("Invalid input (remote = %p, message = %p).", remote, message);
+        result = __LINE__;
+    }
+    else
+    {
+        /*Codes_SRS_JAVA_MODULE_HOST_REMOTE_14_009: [ This function shall serialize message and queue it without waiting for the socket. ]*/
+        REMOTE_FRAME* frame = frame_from_message(message);
+        if (frame == NULL)
+        {
+            LogError("Could not serialize the message to a byte array.");
+            result = __LINE__;
+        }
+        /*Codes_SRS_JAVA_MODULE_HOST_REMOTE_14_010: [ This function shall drop message and return non-zero if REMOTE_MAX_QUEUED_BYTES are already queued. ]*/
+        else if (enqueue_frame(remote, frame, false) != 0)
+        {
+            LogError("Remote Java module host is not keeping up, message dropped.");
+            free_frames(frame);
+            result = __LINE__;
+        }
+        else
+        {
+            result = 0;
+        }
+    }
+
+    return result;
+}
+
+void JavaModuleHostRemote_Destroy(JAVA_MODULE_HOST_REMOTE_HANDLE remote)
+{
+    /*Codes_SRS_JAVA_MODULE_HOST_REMOTE_14_011: [ This function shall do nothing if remote is NULL. ]*/
+    if (remote != NULL)
+    {
+        int thread_result;
+
+        /*Codes_SRS_JAVA_MODULE_HOST_REMOTE_14_012: [ This function shall queue a destroy control frame and wait for the writer thread to write all queued frames, giving up once a write makes no progress for REMOTE_SEND_TIMEOUT_MS. ]*/
+        REMOTE_FRAME* destroy_frame = frame_from_control(REMOTE_CONTROL_DESTROY, NULL, NULL);
+        if (destroy_frame == NULL || enqueue_frame(remote, destroy_frame, true) != 0)
+        {
+            LogError("Could not send the destroy request to the remote Java module host.");
+            free_frames(destroy_frame);
+        }
+
+        (void)Lock(remote->lock);
+        remote->stopping = true;
+        (void)Condition_Post(remote->condition);
+        (void)Unlock(remote->lock);
+        (void)ThreadAPI_Join(remote->writer, &thread_result);
+
+        /*Codes_SRS_JAVA_MODULE_HOST_REMOTE_14_013: [ This function shall shut the socket down, wait for the reader thread and free all resources. ]*/
+#ifndef _WIN32
+        (void)shutdown(remote->socket, SHUT_RDWR);
+#endif
+        (void)ThreadAPI_Join(remote->reader, &thread_result);
+        destroy_remote_internal(remote);
+    }
+}
+
+static int request_create(JAVA_MODULE_HOST_REMOTE_DATA* remote, const JAVA_MODULE_HOST_CONFIG* config)
+{
+    int result;
+    REMOTE_FRAME* create_frame = frame_from_control(REMOTE_CONTROL_CREATE, config->class_name, config->configuration_json);
+
+    if (create_frame == NULL)
+    {
+        LogError("Could not serialize the create request for %s.", config->class_name);
+        result = __LINE__;
+    }
+    else
+    {
+        if (set_socket_timeouts(remote->socket, REMOTE_CREATE_TIMEOUT_MS) != 0)
+        {
+            result = __LINE__;
+        }
+        /*Codes_SRS_JAVA_MODULE_HOST_REMOTE_14_004: [ This function shall write a create control frame holding config->class_name and config->configuration_json. ]*/
+        else if (write_frames(remote, create_frame) != 0)
+        {
+            LogError("Could not send the create request for %s.", config->class_name);
+            result = __LINE__;
+        }
+        /*Codes_SRS_JAVA_MODULE_HOST_REMOTE_14_019: [ This function shall return NULL unless the remote host answers with a created control frame within REMOTE_CREATE_TIMEOUT_MS. ]*/
+        else if (read_create_answer(remote->socket, config->class_name) != 0)
+        {
+            result = __LINE__;
+        }
+        //The reader thread waits for messages from the module for as long as it runs.
+        else if (set_socket_timeouts(remote->socket, 0) != 0)
+        {
+            result = __LINE__;
+        }
+        else
+        {
+            remote->stopping = false;
+            result = 0;
+        }
+        free_frames(create_frame);
+    }
+
+    return result;
+}
+
+static int read_create_answer(int socket, const char* class_name)
+{
+    int result;
+    unsigned char answer[REMOTE_CONTROL_FRAME_SIZE];
+
+    if (read_all(socket, answer, REMOTE_CONTROL_FRAME_SIZE) != 0)
+    {
+        LogError("The remote Java module host closed the connection or did not answer the create request for %s within %d ms.", class_name, REMOTE_CREATE_TIMEOUT_MS);
+        result = __LINE__;
+    }
+    else
+    {
+        uint32_t size = ((uint32_t)answer[2] << 24) | ((uint32_t)answer[3] << 16) | ((uint32_t)answer[4] << 8) | (uint32_t)answer[5];
+
+        if (answer[0] != REMOTE_FRAME_MAGIC || answer[1] != REMOTE_CONTROL_FRAME || size < REMOTE_CONTROL_FRAME_SIZE || size > REMOTE_MAX_FRAME_SIZE)
+        {
+            LogError("Invalid answer to the create request for %s.", class_name);
+            result = __LINE__;
+        }
+        else if (answer[REMOTE_HEADER_SIZE] == REMOTE_CONTROL_CREATED && size == REMOTE_CONTROL_FRAME_SIZE)
+        {
+            result = 0;
+        }
+        else if (answer[REMOTE_HEADER_SIZE] == REMOTE_CONTROL_ERROR)
+        {
+            //The error text is UTF-8; only its beginning is logged, and the rest is never read because the connection is closed.
+            char error[REMOTE_MAX_ERROR_SIZE];
+            size_t error_size = size - REMOTE_CONTROL_FRAME_SIZE < sizeof(error) - 1 ? size - REMOTE_CONTROL_FRAME_SIZE : sizeof(error) - 1;
+
+            if (read_all(socket, (unsigned char*)error, error_size) != 0)
+            {
+                error_size = 0;
+            }
+            error[error_size] = '\0';
+            LogError("The remote Java module host could not create %s: %s", class_name, error);
+            result = __LINE__;
+        }
+        else
+        {
+            LogError("Unexpected answer %d to the create request for %s.", (int)answer[REMOTE_HEADER_SIZE], class_name);
+            result = __LINE__;
+        }
+    }
+
+    return result;
+}
+
+static bool is_stopping(JAVA_MODULE_HOST_REMOTE_DATA* remote)
+{
+    bool result;
+
+    if (Lock(remote->lock) != LOCK_OK)
+    {
+        LogError("Lock failed.");
+        result = true;
+    }
+    else
+    {
+        result = remote->stopping;
+        (void)Unlock(remote->lock);
+    }
+
+    return result;
+}
+
+static int enqueue_frame(JAVA_MODULE_HOST_REMOTE_DATA* remote, REMOTE_FRAME* frame, bool control)
+{
+    int result;
+
+    if (Lock(remote->lock) != LOCK_OK)
+    {
+        LogError("Lock failed.");
+        result = __LINE__;
+    }
+    else
+    {
+        if (remote->stopping || (!control && remote->queued_bytes + frame->size > REMOTE_MAX_QUEUED_BYTES))
+        {
+            result = __LINE__;
+        }
+        else
+        {
+            frame->next = NULL;
+            if (remote->tail == NULL)
+            {
+                remote->head = frame;
+            }
+            else
+            {
+                remote->tail->next = frame;
+            }
+            remote->tail = frame;
+            remote->queued_bytes += frame->size;
+            (void)Condition_Post(remote->condition);
+            result = 0;
+        }
+        (void)Unlock(remote->lock);
+    }
+
+    return result;
+}
+
+static int remote_writer(void* context)
+{
+    JAVA_MODULE_HOST_REMOTE_DATA* remote = (JAVA_MODULE_HOST_REMOTE_DATA*)context;
+    bool connected = true;
+    bool done = false;
+
+    while (!done)
+    {
+        REMOTE_FRAME* batch;
+
+        (void)Lock(remote->lock);
+        while (remote->head == NULL && !remote->stopping)
+        {
+            (void)Condition_Wait(remote->condition, remote->lock, 0);
+        }
+
+        /*Codes_SRS_JAVA_MODULE_HOST_REMOTE_14_014: [ The writer thread shall take every queued frame at once and write them with as few system calls as possible. ]*/
+        batch = remote->head;
+        remote->head = NULL;
+        remote->tail = NULL;
+        remote->queued_bytes = 0;
+        done = remote->stopping;
+        (void)Unlock(remote->lock);
+
+        if (batch != NULL && connected && write_frames(remote, batch) != 0)
+        {
+            /*Codes_SRS_JAVA_MODULE_HOST_REMOTE_14_015: [ If the socket cannot be written, the writer thread shall drop all further frames. ]*/
+            LogError("Lost the connection to the remote Java module host, dropping all further messages.");
+            connected = false;
+        }
+        free_frames(batch);
+    }
+
+    return 0;
+}
+
+static int remote_reader(void* context)
+{
+    JAVA_MODULE_HOST_REMOTE_DATA* remote = (JAVA_MODULE_HOST_REMOTE_DATA*)context;
+    unsigned char header[REMOTE_HEADER_SIZE];
+
+    /*Codes_SRS_JAVA_MODULE_HOST_REMOTE_14_016: [ The reader thread shall read frames until the socket is closed. ]*/
+    while (read_all(remote->socket, header, REMOTE_HEADER_SIZE) == 0)
+    {
+        uint32_t size = ((uint32_t)header[2] << 24) | ((uint32_t)header[3] << 16) | ((uint32_t)header[4] << 8) | (uint32_t)header[5];
+        unsigned char* frame;
+        MESSAGE_HANDLE message;
+
+        /*Codes_SRS_JAVA_MODULE_HOST_REMOTE_14_017: [ The reader thread shall close the connection if a frame is not a message frame starting with 0xA1 0x60 or its size is out of range. ]*/
+        if (header[0] != REMOTE_FRAME_MAGIC || header[1] != REMOTE_MESSAGE_FRAME || size < REMOTE_MIN_FRAME_SIZE || size > REMOTE_MAX_FRAME_SIZE)
+        {
+            LogError("Invalid frame received from the remote Java module host.");
+            break;
+        }
+
+        frame = (unsigned char*)malloc(size);
+        if (frame == NULL)
+        {
+            LogError("Could not allocate %u bytes for a frame.", (unsigned int)size);
+            break;
+        }
+
+        memcpy(frame, header, REMOTE_HEADER_SIZE);
+        if (read_all(remote->socket, frame + REMOTE_HEADER_SIZE, size - REMOTE_HEADER_SIZE) != 0)
+        {
+            free(frame);
+            break;
+        }
+
+        /*Codes_SRS_JAVA_MODULE_HOST_REMOTE_14_018: [ The reader thread shall publish every frame to the broker as a message from module. ]*/
+        message = Message_CreateFromByteArray(frame, (int32_t)size);
+        if (message == NULL)
+        {
+            LogError("Message could not be created from a frame.");
+        }
+        else
+        {
+            if (Broker_Publish(remote->broker, remote->module, message) != BROKER_OK)
+            {
+                LogError("Could not publish a message from the remote Java module.");
+            }
+            Message_Destroy(message);
+        }
+        free(frame);
+    }
+
+    return 0;
+}
+
+static REMOTE_FRAME* frame_from_message(MESSAGE_HANDLE message)
+{
+    REMOTE_FRAME* result;
+    int32_t size = Message_ToByteArray(message, NULL, 0);
+
+    if (size < 0)
+    {
+        result = NULL;
+    }
+    else if ((result = (REMOTE_FRAME*)malloc(sizeof(REMOTE_FRAME))) == NULL)
+    {
+        LogError("Malloc failure.");
+    }
+    else if ((result->data = (unsigned char*)malloc(size)) == NULL)
+    {
+        LogError("Malloc failure.");
+        free(result);
+        result = NULL;
+    }
+    else if (Message_ToByteArray(message, result->data, size) != size)
+    {
+        free(result->data);
+        free(result);
+        result = NULL;
+    }
+    else
+    {
+        result->size = size;
+        result->next = NULL;
+    }
+
+    return result;
+}
+
+static REMOTE_FRAME* frame_from_control(unsigned char control, const char* class_name, const char* content)
+{
+    REMOTE_FRAME* result;
+    size_t class_name_size = class_name == NULL ? 0 : strlen(class_name) + 1;
+    size_t content_size = content == NULL ? 0 : strlen(content);
+    size_t size = REMOTE_CONTROL_FRAME_SIZE + class_name_size + content_size;
+
+    if (size > REMOTE_MAX_FRAME_SIZE)
+    {
+        LogError("Control frame of %zu bytes is too large.", size);
+        result = NULL;
+    }
+    else if ((result = (REMOTE_FRAME*)malloc(sizeof(REMOTE_FRAME))) == NULL)
+    {
+        LogError("Malloc failure.");
+    }
+    else if ((result->data = (unsigned char*)malloc(size)) == NULL)
+    {
+        LogError("Malloc failure.");
+        free(result);
+        result = NULL;
+    }
+    else
+    {
+        //A control frame is 0xA1 0x61, the big-endian frame size, the control code and, for create, the class name
+        //followed by '\0' and the configuration. It is never parsed as a message.
+        result->data[0] = REMOTE_FRAME_MAGIC;
+        result->data[1] = REMOTE_CONTROL_FRAME;
+        result->data[2] = (unsigned char)((size >> 24) & 0xFF);
+        result->data[3] = (unsigned char)((size >> 16) & 0xFF);
+        result->data[4] = (unsigned char)((size >> 8) & 0xFF);
+        result->data[5] = (unsigned char)(size & 0xFF);
+        result->data[REMOTE_HEADER_SIZE] = control;
+        if (class_name_size > 0)
+        {
+            memcpy(result->data + REMOTE_CONTROL_FRAME_SIZE, class_name, class_name_size);
+        }
+        if (content_size > 0)
+        {
+            memcpy(result->data + REMOTE_CONTROL_FRAME_SIZE + class_name_size, content, content_size);
+        }
+        result->size = (int32_t)size;
+        result->next = NULL;
+    }
+
+    return result;
+}
+
+static void free_frames(REMOTE_FRAME* frames)
+{
+    while (frames != NULL)
+    {
+        REMOTE_FRAME* next = frames->next;
+        free(frames->data);
+        free(frames);
+        frames = next;
+    }
+}
+
+static void destroy_remote_internal(JAVA_MODULE_HOST_REMOTE_DATA* remote)
+{
+    free_frames(remote->head);
+    if (remote->socket >= 0)
+    {
+        close_socket(remote->socket);
+    }
+    if (remote->condition != NULL)
+    {
+        Condition_Deinit(remote->condition);
+    }
+    if (remote->lock != NULL)
+    {
+        (void)Lock_Deinit(remote->lock);
+    }
+    free(remote);
+}
+
+#ifndef _WIN32
+
+static int connect_socket(const char* address)
+{
+    int result;
+    struct sockaddr_un socket_address;
+
+    if (strlen(address) >= sizeof(socket_address.sun_path))
+    {
+        LogError("Socket path %s is too long.", address);
+        result = -1;
+    }
+    else if ((result = socket(AF_UNIX, SOCK_STREAM, 0)) < 0)
+    {
+        LogError("socket() failed (errno %d).", errno);
+    }
+    else
+    {
+#ifdef REMOTE_USE_SO_NOSIGPIPE
+        int no_sigpipe = 1;
+#endif
+
+        memset(&socket_address, 0, sizeof(socket_address));
+        socket_address.sun_family = AF_UNIX;
+        (void)strcpy(socket_address.sun_path, address);
+
+#ifdef REMOTE_USE_SO_NOSIGPIPE
+        if (setsockopt(result, SOL_SOCKET, SO_NOSIGPIPE, &no_sigpipe, sizeof(no_sigpipe)) != 0)
+        {
+            LogError("setsockopt(SO_NOSIGPIPE) failed (errno %d).", errno);
+            (void)close(result);
+            result = -1;
+        }
+        else
+#endif
+        if (connect(result, (struct sockaddr*)&socket_address, sizeof(socket_address)) != 0)
+        {
+            LogError("connect() to %s failed (errno %d).", address, errno);
+            (void)close(result);
+            result = -1;
+        }
+    }
+
+    return result;
+}
+
+static void close_socket(int socket)
+{
+    (void)close(socket);
+}
+
+static int set_socket_timeouts(int socket, int receive_timeout_ms)
+{
+    int result;
+    struct timeval receive_timeout;
+    struct timeval send_timeout;
+
+    receive_timeout.tv_sec = receive_timeout_ms / 1000;
+    receive_timeout.tv_usec = (receive_timeout_ms % 1000) * 1000;
+    send_timeout.tv_sec = REMOTE_SEND_TIMEOUT_MS / 1000;
+    send_timeout.tv_usec = (REMOTE_SEND_TIMEOUT_MS % 1000) * 1000;
+
+    if (setsockopt(socket, SOL_SOCKET, SO_RCVTIMEO, &receive_timeout, sizeof(receive_timeout)) != 0 ||
+        setsockopt(socket, SOL_SOCKET, SO_SNDTIMEO, &send_timeout, sizeof(send_timeout)) != 0)
+    {
+        LogError("setsockopt() failed (errno %d).", errno);
+        result = __LINE__;
+    }
+    else
+    {
+        result = 0;
+    }
+
+    return result;
+}
+
+static int write_frames(JAVA_MODULE_HOST_REMOTE_DATA* remote, REMOTE_FRAME* frames)
+{
+    int result = 0;
+    REMOTE_FRAME* frame = frames;
+
+    while (frame != NULL && result == 0)
+    {
+        struct iovec vectors[REMOTE_MAX_BATCH];
+        struct msghdr header;
+
+        memset(&header, 0, sizeof(header));
+        header.msg_iov = vectors;
+        header.msg_iovlen = 0;
+        while (frame != NULL && header.msg_iovlen < REMOTE_MAX_BATCH)
+        {
+            vectors[header.msg_iovlen].iov_base = frame->data;
+            vectors[header.msg_iovlen].iov_len = frame->size;
+            header.msg_iovlen++;
+            frame = frame->next;
+        }
+
+        while (header.msg_iovlen > 0 && result == 0)
+        {
+            ssize_t written = sendmsg(remote->socket, &header, MSG_NOSIGNAL);
+            if (written < 0)
+            {
+                if (errno == EAGAIN || errno == EWOULDBLOCK)
+                {
+                    /*Codes_SRS_JAVA_MODULE_HOST_REMOTE_14_020: [ A write that makes no progress for REMOTE_SEND_TIMEOUT_MS shall be retried, unless the module is being destroyed. ]*/
+                    if (is_stopping(remote))
+                    {
+                        LogError("The remote Java module host read nothing for %d ms, giving up.", REMOTE_SEND_TIMEOUT_MS);
+                        result = __LINE__;
+                    }
+                }
+                else if (errno != EINTR)
+                {
+                    LogError("sendmsg() failed (errno %d).", errno);
+                    result = __LINE__;
+                }
+            }
+            else
+            {
+                size_t remaining = (size_t)written;
+                while (header.msg_iovlen > 0 && remaining >= header.msg_iov[0].iov_len)
+                {
+                    remaining -= header.msg_iov[0].iov_len;
+                    header.msg_iov++;
+                    header.msg_iovlen--;
+                }
+                if (header.msg_iovlen > 0)
+                {
+                    header.msg_iov[0].iov_base = (unsigned char*)header.msg_iov[0].iov_base + remaining;
+                    header.msg_iov[0].iov_len -= remaining;
+                }
+            }
+        }
+    }
+
+    return result;
+}
+
+static int read_all(int socket, unsigned char* buffer, size_t size)
+{
+    int result = 0;
+    size_t read = 0;
+
+    while (read < size && result == 0)
+    {
+        ssize_t count = recv(socket, buffer + read, size - read, 0);
+        if (count > 0)
+        {
+            read += (size_t)count;
+        }
+        else if (count == 0 || errno != EINTR)
+        {
+            result = __LINE__;
+        }
+    }
+
+    return result;
+}
+
+#else
+
+static int connect_socket(const char* address)
+{
+    LogError("Remote Java module hosts are not supported on this platform (%s).", address);
+    return -1;
+}
+
+static void close_socket(int socket)
+{
+    (void)socket;
+}
+
+static int set_socket_timeouts(int socket, int receive_timeout_ms)
+{
+    (void)socket;
+    (void)receive_timeout_ms;
+    return __LINE__;
+}
+
+static int write_frames(JAVA_MODULE_HOST_REMOTE_DATA* remote, REMOTE_FRAME* frames)
+{
+    (void)remote;
+    (void)frames;
+    return __LINE__;
+}
+
+static int read_all(int socket, unsigned char* buffer, size_t size)
+{
+    (void)socket;
+    (void)buffer;
+    (void)size;
+    return __LINE__;
+}
+
+#endif
@@ -23,6 +23,7 @@
 #define ENABLE_MOCKS
 
 #include "java_module_host_manager.h"
+#include "java_module_host_remote.h"
 #include "azure_c_shared_utility/vector.h"
 #include "azure_c_shared_utility/strings.h"
 #include "azure_c_shared_utility/crt_abstractions.h"
@@ -652,6 +653,9 @@ TEST_SUITE_INITIALIZE(TestClassInitialize)
 
     REGISTER_UMOCK_ALIAS_TYPE(JAVA_MODULE_HOST_MANAGER_HANDLE, void*);
 
+    REGISTER_UMOCK_ALIAS_TYPE(JAVA_MODULE_HOST_REMOTE_HANDLE, void*);
+    REGISTER_UMOCK_ALIAS_TYPE(const JAVA_MODULE_HOST_CONFIG*, void*);
+
     //JNI Alias Types
     REGISTER_UMOCK_ALIAS_TYPE(JavaVM, void*);
     REGISTER_UMOCK_ALIAS_TYPE(JavaVM*, void*);
@@ -1446,6 +1450,153 @@ TEST_FUNCTION(JavaModuleHost_Create_initializes_JavaVMInitArgs_structure_invalid
 
 }
 
+/*Tests_SRS_JAVA_MODULE_HOST_14_007: [This function shall initialize a JavaVMInitArgs structure using the JVM_OPTIONS structure configuration->options. ]*/
+/*Tests_SRS_JAVA_MODULE_HOST_14_009: [This function shall allocate memory for an array of JavaVMOption structures and initialize each with each option provided. ]*/
+/*Tests_SRS_JAVA_MODULE_HOST_14_033: [The function shall concatenate the user supplied options to the option key names.]*/
+/*Tests_SRS_JAVA_MODULE_HOST_14_060: [If appcds_archive is not NULL and appcds_dump is true, the function shall add the -XX:ArchiveClassesAtExit option for the archive.]*/
+TEST_FUNCTION(JavaModuleHost_Create_initializes_JavaVMInitArgs_structure_appcds_dump_success)
+{
+    JVM_OPTIONS options = {
+        "class/path",
+        "library/path",
+        8,
+        false,
+        -1,
+        false,
+        NULL,
+        "gateway.jsa",
+        true
+    };
+
+    JAVA_MODULE_HOST_CONFIG config2 =
+    {
+        "TestClass",
+        "{hello}",
+        &options
+    };
+
+    //Arrange
+
+    STRICT_EXPECTED_CALL(gballoc_malloc(IGNORED_NUM_ARG)) /*this is for the structure*/
+        .IgnoreArgument(1);
+
+    STRICT_EXPECTED_CALL(JavaModuleHostManager_Create(&config2));
+
+    STRICT_EXPECTED_CALL(VECTOR_create(sizeof(STRING_HANDLE)));
+    STRICT_EXPECTED_CALL(VECTOR_size(IGNORED_PTR_ARG))
+        .IgnoreAllArguments();
+    STRICT_EXPECTED_CALL(gballoc_malloc(sizeof(JavaVMOption) * 3));
+    STRICT_EXPECTED_CALL(STRING_construct("-Djava.class.path="));
+    STRICT_EXPECTED_CALL(STRING_concat(IGNORED_PTR_ARG, config2.options->class_path))
+        .IgnoreArgument(1);
+    STRICT_EXPECTED_CALL(VECTOR_push_back(IGNORED_PTR_ARG, IGNORED_PTR_ARG, 1))
+        .IgnoreArgument(1)
+        .IgnoreArgument(2);
+    STRICT_EXPECTED_CALL(STRING_c_str(IGNORED_PTR_ARG))
+        .IgnoreAllArguments();
+
+    STRICT_EXPECTED_CALL(STRING_construct("-Djava.library.path="));
+    STRICT_EXPECTED_CALL(STRING_concat(IGNORED_PTR_ARG, config2.options->library_path))
+        .IgnoreArgument(1);
+    STRICT_EXPECTED_CALL(VECTOR_push_back(IGNORED_PTR_ARG, IGNORED_PTR_ARG, 1))
+        .IgnoreArgument(1)
+        .IgnoreArgument(2);
+    STRICT_EXPECTED_CALL(STRING_c_str(IGNORED_PTR_ARG))
+        .IgnoreAllArguments();
+
+    STRICT_EXPECTED_CALL(STRING_construct(APPCDS_DUMP_OPTION));
+    STRICT_EXPECTED_CALL(STRING_concat(IGNORED_PTR_ARG, config2.options->appcds_archive))
+        .IgnoreArgument(1);
+    STRICT_EXPECTED_CALL(VECTOR_push_back(IGNORED_PTR_ARG, IGNORED_PTR_ARG, 1))
+        .IgnoreArgument(1)
+        .IgnoreArgument(2);
+    STRICT_EXPECTED_CALL(STRING_c_str(IGNORED_PTR_ARG))
+        .IgnoreAllArguments();
+
+    STRICT_EXPECTED_CALL(JNI_CreateJavaVM(IGNORED_PTR_ARG, IGNORED_PTR_ARG, IGNORED_PTR_ARG))
+        .IgnoreAllArguments();
+
+    STRICT_EXPECTED_CALL(VECTOR_size(IGNORED_PTR_ARG))
+        .IgnoreAllArguments();
+    STRICT_EXPECTED_CALL(VECTOR_element(IGNORED_PTR_ARG, 0))
+        .IgnoreArgument(1);
+    STRICT_EXPECTED_CALL(STRING_delete(IGNORED_PTR_ARG))
+        .IgnoreAllArguments();
+    STRICT_EXPECTED_CALL(VECTOR_size(IGNORED_PTR_ARG))
+        .IgnoreAllArguments();
+    STRICT_EXPECTED_CALL(VECTOR_element(IGNORED_PTR_ARG, 1))
+        .IgnoreArgument(1);
+    STRICT_EXPECTED_CALL(STRING_delete(IGNORED_PTR_ARG))
+        .IgnoreAllArguments();
+    STRICT_EXPECTED_CALL(VECTOR_size(IGNORED_PTR_ARG))
+        .IgnoreAllArguments();
+    STRICT_EXPECTED_CALL(VECTOR_element(IGNORED_PTR_ARG, 2))
+        .IgnoreArgument(1);
+    STRICT_EXPECTED_CALL(STRING_delete(IGNORED_PTR_ARG))
+        .IgnoreAllArguments();
+    STRICT_EXPECTED_CALL(VECTOR_size(IGNORED_PTR_ARG))
+        .IgnoreAllArguments();
+    STRICT_EXPECTED_CALL(VECTOR_destroy(IGNORED_PTR_ARG))
+        .IgnoreAllArguments();
+
+    STRICT_EXPECTED_CALL(gballoc_free(IGNORED_PTR_ARG))
+        .IgnoreAllArguments();
+
+    STRICT_EXPECTED_CALL(JavaModuleHostManager_Add(IGNORED_PTR_ARG))
+        .IgnoreAllArguments();
+
+    STRICT_EXPECTED_CALL(FindClass(IGNORED_PTR_ARG, BROKER_CLASS_NAME))
+        .IgnoreArgument(1);
+    STRICT_EXPECTED_CALL(ExceptionOccurred(IGNORED_PTR_ARG))
+        .IgnoreArgument(1);
+
+    STRICT_EXPECTED_CALL(GetMethodID(IGNORED_PTR_ARG, IGNORED_PTR_ARG, CONSTRUCTOR_METHOD_NAME, BROKER_CONSTRUCTOR_DESCRIPTOR))
+        .IgnoreArgument(1)
+        .IgnoreArgument(2);
+    STRICT_EXPECTED_CALL(ExceptionOccurred(IGNORED_PTR_ARG))
+        .IgnoreArgument(1);
+
+    STRICT_EXPECTED_CALL(NewObjectV(IGNORED_PTR_ARG, IGNORED_PTR_ARG, IGNORED_PTR_ARG, IGNORED_PTR_ARG))
+        .IgnoreAllArguments();
+    STRICT_EXPECTED_CALL(ExceptionOccurred(IGNORED_PTR_ARG))
+        .IgnoreArgument(1);
+
+    STRICT_EXPECTED_CALL(FindClass(IGNORED_PTR_ARG, config2.class_name))
+        .IgnoreArgument(1);
+    STRICT_EXPECTED_CALL(ExceptionOccurred(IGNORED_PTR_ARG))
+        .IgnoreArgument(1);
+
+    STRICT_EXPECTED_CALL(GetMethodID(IGNORED_PTR_ARG, IGNORED_PTR_ARG, CONSTRUCTOR_METHOD_NAME, MODULE_CONSTRUCTOR_DESCRIPTOR))
+        .IgnoreArgument(1)
+        .IgnoreArgument(2);
+    STRICT_EXPECTED_CALL(ExceptionOccurred(IGNORED_PTR_ARG))
+        .IgnoreArgument(1);
+
+    STRICT_EXPECTED_CALL(NewStringUTF(IGNORED_PTR_ARG, config.configuration_json))
+        .IgnoreArgument(1);
+    STRICT_EXPECTED_CALL(ExceptionOccurred(IGNORED_PTR_ARG))
+        .IgnoreArgument(1);
+
+    STRICT_EXPECTED_CALL(NewObjectV(IGNORED_PTR_ARG, IGNORED_PTR_ARG, IGNORED_PTR_ARG, IGNORED_PTR_ARG))
+        .IgnoreAllArguments();
+    STRICT_EXPECTED_CALL(ExceptionOccurred(IGNORED_PTR_ARG))
+        .IgnoreArgument(1);
+
+    STRICT_EXPECTED_CALL(NewGlobalRef(IGNORED_PTR_ARG, IGNORED_PTR_ARG))
+        .IgnoreAllArguments();
+
+
+    //Act
+    MODULE_HANDLE result = JavaModuleHost_Create((BROKER_HANDLE)0x42, &config2);
+
+    //Assert
+    ASSERT_ARE_EQUAL(char_ptr, umock_c_get_expected_calls(), umock_c_get_actual_calls());
+
+    //Cleanup
+    JavaModuleHost_Destroy(result);
+
+}
+
 /*Tests_SRS_JAVA_MODULE_HOST_14_005: [This function shall return a non-NULL MODULE_HANDLE when successful. ]*/
 /*Tests_SRS_JAVA_MODULE_HOST_14_006: [This function shall allocate memory for an instance of a JAVA_MODULE_HANDLE_DATA structure to be used as the backing structure for this module. ]*/
 /*Tests_SRS_JAVA_MODULE_HOST_14_037: [This function shall get a singleton instance of a JavaModuleHostManager.]*/
@@ -2994,6 +3145,7 @@ TEST_FUNCTION(JavaModuleHost_Destroy_CallVoidMethod_fails)
 /*Tests_SRS_JAVA_MODULE_HOST_14_051: [This function shall get the user - defined Java module class using the module parameter and get the start() method.]*/
 /*Tests_SRS_JAVA_MODULE_HOST_14_052: [This function shall call the void start() method of the Java module object.]*/
 /*Tests_SRS_JAVA_MODULE_HOST_14_053: [This function shall detach the JVM from the current thread.]*/
+/*Tests_SRS_JAVA_MODULE_HOST_14_062: [This function shall get the warmup() method and call it before calling start().]*/
 TEST_FUNCTION(JavaModuleHost_Start_success)
 {
     //Arrange
@@ -3008,6 +3160,16 @@ TEST_FUNCTION(JavaModuleHost_Start_success)
     STRICT_EXPECTED_CALL(GetMethodID(global_env, IGNORED_PTR_ARG, MODULE_START_METHOD_NAME, MODULE_START_DESCRIPTOR))
         .IgnoreArgument(2);
     STRICT_EXPECTED_CALL(ExceptionOccurred(global_env));
+    STRICT_EXPECTED_CALL(GetObjectClass(global_env, IGNORED_PTR_ARG))
+        .IgnoreArgument(2);
+    STRICT_EXPECTED_CALL(GetMethodID(global_env, IGNORED_PTR_ARG, MODULE_WARMUP_METHOD_NAME, MODULE_WARMUP_DESCRIPTOR))
+        .IgnoreArgument(2);
+    STRICT_EXPECTED_CALL(ExceptionOccurred(global_env));
+    STRICT_EXPECTED_CALL(CallVoidMethodV(global_env, IGNORED_PTR_ARG, IGNORED_PTR_ARG, IGNORED_PTR_ARG))
+        .IgnoreArgument(2)
+        .IgnoreArgument(3)
+        .IgnoreArgument(4);
+    STRICT_EXPECTED_CALL(ExceptionOccurred(global_env));
     STRICT_EXPECTED_CALL(CallVoidMethodV(global_env, IGNORED_PTR_ARG, IGNORED_PTR_ARG, IGNORED_PTR_ARG))
         .IgnoreArgument(2)
         .IgnoreArgument(3)
@@ -3173,6 +3335,17 @@ TEST_FUNCTION(JavaModuleHost_Start_CallVoidMethod_fails)
 
     STRICT_EXPECTED_CALL(ExceptionOccurred(global_env));
 
+    STRICT_EXPECTED_CALL(GetObjectClass(global_env, IGNORED_PTR_ARG))
+        .IgnoreArgument(2);
+    STRICT_EXPECTED_CALL(GetMethodID(global_env, IGNORED_PTR_ARG, MODULE_WARMUP_METHOD_NAME, MODULE_WARMUP_DESCRIPTOR))
+        .IgnoreArgument(2);
+    STRICT_EXPECTED_CALL(ExceptionOccurred(global_env));
+    STRICT_EXPECTED_CALL(CallVoidMethodV(global_env, IGNORED_PTR_ARG, IGNORED_PTR_ARG, IGNORED_PTR_ARG))
+        .IgnoreArgument(2)
+        .IgnoreArgument(3)
+        .IgnoreArgument(4);
+    STRICT_EXPECTED_CALL(ExceptionOccurred(global_env));
+
     STRICT_EXPECTED_CALL(CallVoidMethodV(global_env, IGNORED_PTR_ARG, IGNORED_PTR_ARG, IGNORED_PTR_ARG))
         .IgnoreArgument(2)
         .IgnoreArgument(3)
@@ -3188,6 +3361,116 @@ TEST_FUNCTION(JavaModuleHost_Start_CallVoidMethod_fails)
 
     umock_c_negative_tests_snapshot();
 
+    //Act
+    umock_c_negative_tests_fail_call(10);
+    JavaModuleHost_Start(module);
+
+    //Assert
+    ASSERT_ARE_EQUAL(char_ptr, umock_c_get_expected_calls(), umock_c_get_actual_calls());
+
+    umock_c_negative_tests_deinit();
+
+    //Cleanup
+    JavaModuleHost_Destroy(module);
+}
+
+/*Tests_SRS_JAVA_MODULE_HOST_14_063: [If warmup() cannot be found or throws an exception, this function shall still call start().]*/
+/*Tests_SRS_JAVA_MODULE_HOST_14_053: [This function shall detach the JVM from the current thread.]*/
+TEST_FUNCTION(JavaModuleHost_Start_warmup_fails_still_calls_start)
+{
+    //Arrange
+
+    MODULE_HANDLE module = JavaModuleHost_Create((BROKER_HANDLE)0x42, &config);
+    umock_c_reset_all_calls();
+
+    int result = 0;
+    result = umock_c_negative_tests_init();
+    ASSERT_ARE_EQUAL(int, 0, result);
+
+    STRICT_EXPECTED_CALL(AttachCurrentThread(global_vm, IGNORED_PTR_ARG, NULL))
+        .IgnoreArgument(2);
+
+    STRICT_EXPECTED_CALL(GetObjectClass(global_env, IGNORED_PTR_ARG))
+        .IgnoreArgument(2);
+
+    STRICT_EXPECTED_CALL(GetMethodID(global_env, IGNORED_PTR_ARG, MODULE_START_METHOD_NAME, MODULE_START_DESCRIPTOR))
+        .IgnoreArgument(2);
+
+    STRICT_EXPECTED_CALL(ExceptionOccurred(global_env));
+
+    STRICT_EXPECTED_CALL(GetObjectClass(global_env, IGNORED_PTR_ARG))
+        .IgnoreArgument(2);
+    STRICT_EXPECTED_CALL(GetMethodID(global_env, IGNORED_PTR_ARG, MODULE_WARMUP_METHOD_NAME, MODULE_WARMUP_DESCRIPTOR))
+        .IgnoreArgument(2);
+    STRICT_EXPECTED_CALL(ExceptionOccurred(global_env));
+    STRICT_EXPECTED_CALL(CallVoidMethodV(global_env, IGNORED_PTR_ARG, IGNORED_PTR_ARG, IGNORED_PTR_ARG))
+        .IgnoreArgument(2)
+        .IgnoreArgument(3)
+        .IgnoreArgument(4);
+    STRICT_EXPECTED_CALL(ExceptionOccurred(global_env));
+
+    STRICT_EXPECTED_CALL(ExceptionDescribe(global_env));
+
+    STRICT_EXPECTED_CALL(ExceptionClear(global_env));
+
+    STRICT_EXPECTED_CALL(CallVoidMethodV(global_env, IGNORED_PTR_ARG, IGNORED_PTR_ARG, IGNORED_PTR_ARG))
+        .IgnoreArgument(2)
+        .IgnoreArgument(3)
+        .IgnoreArgument(4);
+
+    STRICT_EXPECTED_CALL(ExceptionOccurred(global_env));
+
+    STRICT_EXPECTED_CALL(DetachCurrentThread(global_vm));
+
+    umock_c_negative_tests_snapshot();
+
+    //Act
+    umock_c_negative_tests_fail_call(8);
+    JavaModuleHost_Start(module);
+
+    //Assert
+    ASSERT_ARE_EQUAL(char_ptr, umock_c_get_expected_calls(), umock_c_get_actual_calls());
+
+    umock_c_negative_tests_deinit();
+
+    //Cleanup
+    JavaModuleHost_Destroy(module);
+}
+
+/*Tests_SRS_JAVA_MODULE_HOST_14_063: [If warmup() cannot be found or throws an exception, this function shall still call start().]*/
+TEST_FUNCTION(JavaModuleHost_Start_warmup_missing_still_calls_start)
+{
+    //Arrange
+
+    MODULE_HANDLE module = JavaModuleHost_Create((BROKER_HANDLE)0x42, &config);
+    umock_c_reset_all_calls();
+
+    int result = 0;
+    result = umock_c_negative_tests_init();
+    ASSERT_ARE_EQUAL(int, 0, result);
+
+    STRICT_EXPECTED_CALL(AttachCurrentThread(global_vm, IGNORED_PTR_ARG, NULL))
+        .IgnoreArgument(2);
+    STRICT_EXPECTED_CALL(GetObjectClass(global_env, IGNORED_PTR_ARG))
+        .IgnoreArgument(2);
+    STRICT_EXPECTED_CALL(GetMethodID(global_env, IGNORED_PTR_ARG, MODULE_START_METHOD_NAME, MODULE_START_DESCRIPTOR))
+        .IgnoreArgument(2);
+    STRICT_EXPECTED_CALL(ExceptionOccurred(global_env));
+    STRICT_EXPECTED_CALL(GetObjectClass(global_env, IGNORED_PTR_ARG))
+        .IgnoreArgument(2);
+    STRICT_EXPECTED_CALL(GetMethodID(global_env, IGNORED_PTR_ARG, MODULE_WARMUP_METHOD_NAME, MODULE_WARMUP_DESCRIPTOR))
+        .IgnoreArgument(2);
+    STRICT_EXPECTED_CALL(ExceptionOccurred(global_env));
+    STRICT_EXPECTED_CALL(ExceptionClear(global_env));
+    STRICT_EXPECTED_CALL(CallVoidMethodV(global_env, IGNORED_PTR_ARG, IGNORED_PTR_ARG, IGNORED_PTR_ARG))
+        .IgnoreArgument(2)
+        .IgnoreArgument(3)
+        .IgnoreArgument(4);
+    STRICT_EXPECTED_CALL(ExceptionOccurred(global_env));
+    STRICT_EXPECTED_CALL(DetachCurrentThread(global_vm));
+
+    umock_c_negative_tests_snapshot();
+
     //Act
     umock_c_negative_tests_fail_call(5);
     JavaModuleHost_Start(module);
@@ -3428,6 +3711,152 @@ TEST_FUNCTION(Java_com_microsoft_azure_gateway_core_Broker_publishMessage_failur
     JavaModuleHost_Destroy(module);
 }
 
+/*Tests_SRS_JAVA_MODULE_HOST_14_064: [If configuration->remote_address is not NULL, this function shall not create a JVM and shall instead call JavaModuleHostRemote_Create to host the module in the remote process listening on that address.]*/
+TEST_FUNCTION(JavaModuleHost_Create_remote_success)
+{
+    //Arrange
+    JAVA_MODULE_HOST_CONFIG remote_config =
+    {
+        "TestClass",
+        "{hello}",
+        NULL,
+        "/tmp/gateway.sock"
+    };
+
+    STRICT_EXPECTED_CALL(gballoc_malloc(IGNORED_NUM_ARG))
+        .IgnoreArgument(1);
+    STRICT_EXPECTED_CALL(JavaModuleHostRemote_Create((BROKER_HANDLE)0x42, IGNORED_PTR_ARG, &remote_config))
+        .IgnoreArgument(2)
+        .SetReturn((JAVA_MODULE_HOST_REMOTE_HANDLE)0x44);
+
+    //Act
+    MODULE_HANDLE result = JavaModuleHost_Create((BROKER_HANDLE)0x42, &remote_config);
+
+    //Assert
+    ASSERT_IS_NOT_NULL(result);
+    ASSERT_ARE_EQUAL(char_ptr, umock_c_get_expected_calls(), umock_c_get_actual_calls());
+
+    //Cleanup
+    JavaModuleHost_Destroy(result);
+}
+
+/*Tests_SRS_JAVA_MODULE_HOST_14_004: [This function shall return NULL upon any underlying API call failure.]*/
+TEST_FUNCTION(JavaModuleHost_Create_remote_connect_failure_fails)
+{
+    //Arrange
+    JAVA_MODULE_HOST_CONFIG remote_config =
+    {
+        "TestClass",
+        "{hello}",
+        NULL,
+        "/tmp/gateway.sock"
+    };
+
+    STRICT_EXPECTED_CALL(gballoc_malloc(IGNORED_NUM_ARG))
+        .IgnoreArgument(1);
+    STRICT_EXPECTED_CALL(JavaModuleHostRemote_Create((BROKER_HANDLE)0x42, IGNORED_PTR_ARG, &remote_config))
+        .IgnoreArgument(2)
+        .SetReturn(NULL);
+    STRICT_EXPECTED_CALL(gballoc_free(IGNORED_PTR_ARG))
+        .IgnoreArgument(1);
+
+    //Act
+    MODULE_HANDLE result = JavaModuleHost_Create((BROKER_HANDLE)0x42, &remote_config);
+
+    //Assert
+    ASSERT_IS_NULL(result);
+    ASSERT_ARE_EQUAL(char_ptr, umock_c_get_expected_calls(), umock_c_get_actual_calls());
+}
+
+/*Tests_SRS_JAVA_MODULE_HOST_14_066: [If the module is hosted remotely, this function shall call JavaModuleHostRemote_Send instead of calling into the JVM.]*/
+TEST_FUNCTION(JavaModuleHost_Receive_remote_sends_message)
+{
+    //Arrange
+    JAVA_MODULE_HOST_CONFIG remote_config =
+    {
+        "TestClass",
+        "{hello}",
+        NULL,
+        "/tmp/gateway.sock"
+    };
+
+    STRICT_EXPECTED_CALL(JavaModuleHostRemote_Create((BROKER_HANDLE)0x42, IGNORED_PTR_ARG, &remote_config))
+        .IgnoreArgument(2)
+        .SetReturn((JAVA_MODULE_HOST_REMOTE_HANDLE)0x44);
+    MODULE_HANDLE module = JavaModuleHost_Create((BROKER_HANDLE)0x42, &remote_config);
+    umock_c_reset_all_calls();
+
+    STRICT_EXPECTED_CALL(JavaModuleHostRemote_Send((JAVA_MODULE_HOST_REMOTE_HANDLE)0x44, (MESSAGE_HANDLE)0x43));
+
+    //Act
+    JavaModuleHost_Receive(module, (MESSAGE_HANDLE)0x43);
+
+    //Assert
+    ASSERT_ARE_EQUAL(char_ptr, umock_c_get_expected_calls(), umock_c_get_actual_calls());
+
+    //Cleanup
+    JavaModuleHost_Destroy(module);
+}
+
+/*Tests_SRS_JAVA_MODULE_HOST_14_067: [If the module is hosted remotely, this function shall call JavaModuleHostRemote_Start instead of calling into the JVM.]*/
+TEST_FUNCTION(JavaModuleHost_Start_remote_starts_module)
+{
+    //Arrange
+    JAVA_MODULE_HOST_CONFIG remote_config =
+    {
+        "TestClass",
+        "{hello}",
+        NULL,
+        "/tmp/gateway.sock"
+    };
+
+    STRICT_EXPECTED_CALL(JavaModuleHostRemote_Create((BROKER_HANDLE)0x42, IGNORED_PTR_ARG, &remote_config))
+        .IgnoreArgument(2)
+        .SetReturn((JAVA_MODULE_HOST_REMOTE_HANDLE)0x44);
+    MODULE_HANDLE module = JavaModuleHost_Create((BROKER_HANDLE)0x42, &remote_config);
+    umock_c_reset_all_calls();
+
+    STRICT_EXPECTED_CALL(JavaModuleHostRemote_Start((JAVA_MODULE_HOST_REMOTE_HANDLE)0x44));
+
+    //Act
+    JavaModuleHost_Start(module);
+
+    //Assert
+    ASSERT_ARE_EQUAL(char_ptr, umock_c_get_expected_calls(), umock_c_get_actual_calls());
+
+    //Cleanup
+    JavaModuleHost_Destroy(module);
+}
+
+/*Tests_SRS_JAVA_MODULE_HOST_14_065: [If the module is hosted remotely, this function shall call JavaModuleHostRemote_Destroy and free the module instead of using the JVM.]*/
+TEST_FUNCTION(JavaModuleHost_Destroy_remote_destroys_module)
+{
+    //Arrange
+    JAVA_MODULE_HOST_CONFIG remote_config =
+    {
+        "TestClass",
+        "{hello}",
+        NULL,
+        "/tmp/gateway.sock"
+    };
+
+    STRICT_EXPECTED_CALL(JavaModuleHostRemote_Create((BROKER_HANDLE)0x42, IGNORED_PTR_ARG, &remote_config))
+        .IgnoreArgument(2)
+        .SetReturn((JAVA_MODULE_HOST_REMOTE_HANDLE)0x44);
+    MODULE_HANDLE module = JavaModuleHost_Create((BROKER_HANDLE)0x42, &remote_config);
+    umock_c_reset_all_calls();
+
+    STRICT_EXPECTED_CALL(JavaModuleHostRemote_Destroy((JAVA_MODULE_HOST_REMOTE_HANDLE)0x44));
+    STRICT_EXPECTED_CALL(gballoc_free(IGNORED_PTR_ARG))
+        .IgnoreArgument(1);
+
+    //Act
+    JavaModuleHost_Destroy(module);
+
+    //Assert
+    ASSERT_ARE_EQUAL(char_ptr, umock_c_get_expected_calls(), umock_c_get_actual_calls());
+}
+
 /*Tests_SRS_JAVA_MODULE_HOST_26_001: [ `Module_GetApi` shall fill out the provided `MODULES_API` structure with required module's APIs functions. ] */
 TEST_FUNCTION(Module_GetApi_returns_non_NULL)
 {
@@ -0,0 +1,1111 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+#ifdef __cplusplus
+#include <cstdlib>
+#include <cstddef>
+#include <cstdbool>
+#include <cstdint>
+#include <cstring>
+#else
+#include <stdlib.h>
+#include <stddef.h>
+#include <stdbool.h>
+#include <stdint.h>
+#include <string.h>
+#endif
+
+#include <stdio.h>
+#include <fcntl.h>
+#include <poll.h>
+#include <pthread.h>
+#include <unistd.h>
+#include <sys/socket.h>
+#include <sys/un.h>
+
+#include "testrunnerswitcher.h"
+#include "umock_c.h"
+#include "umock_c_negative_tests.h"
+#include "umocktypes_charptr.h"
+#include "umocktypes_stdint.h"
+#include "umock_c_prod.h"
+
+#define ENABLE_MOCKS
+
+#include "azure_c_shared_utility/lock.h"
+#include "azure_c_shared_utility/condition.h"
+#include "azure_c_shared_utility/threadapi.h"
+#include "message.h"
+#include "broker.h"
+
+//=============================================================================
+//Globals
+//=============================================================================
+
+static TEST_MUTEX_HANDLE g_testByTest;
+static TEST_MUTEX_HANDLE g_dllByDll;
+
+static bool malloc_will_fail = false;
+
+static char socket_path[sizeof(((struct sockaddr_un*)0)->sun_path)];
+static int listener = -1;
+
+//The smallest serialized message: no properties and no content.
+static const unsigned char test_message_bytes[] =
+{
+    0xA1, 0x60, 0x00, 0x00, 0x00, 0x0E,
+    0x00, 0x00, 0x00, 0x00,
+    0x00, 0x00, 0x00, 0x00
+};
+static int32_t test_message_size = (int32_t)sizeof(test_message_bytes);
+
+typedef struct TEST_THREAD_TAG
+{
+    THREAD_START_FUNC func;
+    void* arg;
+} TEST_THREAD;
+
+static TEST_THREAD test_threads[2];
+static size_t test_thread_count = 0;
+
+static size_t publish_count = 0;
+static MODULE_HANDLE published_from = NULL;
+
+//Stands in for the remote host while JavaModuleHostRemote_Create waits for the answer to its create request.
+typedef struct TEST_HOST_TAG
+{
+    pthread_t thread;
+    unsigned char answer[64];
+    size_t answer_size;
+    unsigned char create_frame[256];
+    size_t create_size;
+    int peer;
+} TEST_HOST;
+
+//=============================================================================
+//MOCKS
+//=============================================================================
+
+//Message mocks
+MOCKABLE_FUNCTION(, MESSAGE_HANDLE, Message_CreateFromByteArray, const unsigned char*, source, int32_t, size);
+MESSAGE_HANDLE my_Message_CreateFromByteArray(const unsigned char* source, int32_t size)
+{
+    return (MESSAGE_HANDLE)malloc(1);
+}
+
+MOCKABLE_FUNCTION(, int32_t, Message_ToByteArray, MESSAGE_HANDLE, messageHandle, unsigned char*, buf, int32_t, size);
+int32_t my_Message_ToByteArray(MESSAGE_HANDLE messageHandle, unsigned char* buf, int32_t size)
+{
+    if (buf != NULL)
+    {
+        memset(buf, 0, size);
+        memcpy(buf, test_message_bytes, size < (int32_t)sizeof(test_message_bytes) ? size : sizeof(test_message_bytes));
+    }
+    return test_message_size;
+}
+
+MOCKABLE_FUNCTION(, void, Message_Destroy, MESSAGE_HANDLE, message);
+void my_Message_Destroy(MESSAGE_HANDLE message)
+{
+    free((void*)message);
+}
+
+//Broker mocks
+MOCKABLE_FUNCTION(, BROKER_RESULT, Broker_Publish, BROKER_HANDLE, broker, MODULE_HANDLE, source, MESSAGE_HANDLE, message);
+BROKER_RESULT my_Broker_Publish(BROKER_HANDLE broker, MODULE_HANDLE source, MESSAGE_HANDLE message)
+{
+    publish_count++;
+    published_from = source;
+    return BROKER_OK;
+}
+
+//=============================================================================
+//HOOKS
+//=============================================================================
+
+LOCK_HANDLE my_Lock_Init(void)
+{
+    return (LOCK_HANDLE)malloc(1);
+}
+
+LOCK_RESULT my_Lock(LOCK_HANDLE handle)
+{
+    return handle != NULL ? LOCK_OK : LOCK_ERROR;
+}
+
+LOCK_RESULT my_Unlock(LOCK_HANDLE handle)
+{
+    return handle != NULL ? LOCK_OK : LOCK_ERROR;
+}
+
+LOCK_RESULT my_Lock_Deinit(LOCK_HANDLE handle)
+{
+    free(handle);
+    return LOCK_OK;
+}
+
+COND_HANDLE my_Condition_Init(void)
+{
+    return (COND_HANDLE)malloc(1);
+}
+
+void my_Condition_Deinit(COND_HANDLE handle)
+{
+    free(handle);
+}
+
+//Threads run synchronously when they are joined, so the writer thread sees every frame queued before
+//JavaModuleHostRemote_Destroy and the reader thread every frame the test wrote to the socket.
+THREADAPI_RESULT my_ThreadAPI_Create(THREAD_HANDLE* threadHandle, THREAD_START_FUNC func, void* arg)
+{
+    test_threads[test_thread_count].func = func;
+    test_threads[test_thread_count].arg = arg;
+    *threadHandle = (THREAD_HANDLE)&test_threads[test_thread_count];
+    test_thread_count = (test_thread_count + 1) % 2;
+    return THREADAPI_OK;
+}
+
+THREADAPI_RESULT my_ThreadAPI_Join(THREAD_HANDLE threadHandle, int* res)
+{
+    TEST_THREAD* thread = (TEST_THREAD*)threadHandle;
+    *res = thread->func(thread->arg);
+    return THREADAPI_OK;
+}
+
+void* my_gballoc_malloc(size_t size)
+{
+    void* result = NULL;
+    if (malloc_will_fail == false)
+    {
+        result = malloc(size);
+    }
+
+    return result;
+}
+
+void my_gballoc_free(void* ptr)
+{
+    free(ptr);
+}
+
+void on_umock_c_error(UMOCK_C_ERROR_CODE error_code)
+{
+    ASSERT_FAIL("umock_c reported error");
+}
+
+#include "azure_c_shared_utility/gballoc.h"
+
+#undef ENABLE_MOCKS
+
+#include "java_module_host_remote.h"
+
+static JAVA_MODULE_HOST_CONFIG config =
+{
+    "TestClass",
+    "{hello}",
+    NULL,
+    socket_path
+};
+
+//=============================================================================
+//Socket helpers
+//=============================================================================
+
+static int open_listener(void)
+{
+    struct sockaddr_un address;
+    int result = socket(AF_UNIX, SOCK_STREAM, 0);
+
+    if (result >= 0)
+    {
+        memset(&address, 0, sizeof(address));
+        address.sun_family = AF_UNIX;
+        (void)strcpy(address.sun_path, socket_path);
+        (void)unlink(socket_path);
+
+        if (bind(result, (struct sockaddr*)&address, sizeof(address)) != 0 ||
+            listen(result, 16) != 0 ||
+            fcntl(result, F_SETFL, O_NONBLOCK) != 0)
+        {
+            (void)close(result);
+            result = -1;
+        }
+    }
+
+    return result;
+}
+
+//Accepts the connection made by JavaModuleHostRemote_Create, or returns -1 if there is none.
+static int accept_peer(void)
+{
+    int result = accept(listener, NULL, NULL);
+    if (result >= 0)
+    {
+        (void)fcntl(result, F_SETFL, 0);
+    }
+    return result;
+}
+
+static void write_peer(int peer, const unsigned char* data, size_t size)
+{
+    ASSERT_ARE_EQUAL(int, (int)size, (int)write(peer, data, size));
+}
+
+//Reads everything written to peer until the module closes its end.
+static size_t read_peer(int peer, unsigned char* buffer, size_t size)
+{
+    size_t result = 0;
+    ssize_t count;
+
+    while (result < size && (count = read(peer, buffer + result, size - result)) > 0)
+    {
+        result += (size_t)count;
+    }
+
+    return result;
+}
+
+static int32_t frame_size(const unsigned char* frame)
+{
+    return (int32_t)(((uint32_t)frame[2] << 24) | ((uint32_t)frame[3] << 16) | ((uint32_t)frame[4] << 8) | (uint32_t)frame[5]);
+}
+
+//Accepts one connection, reads the create frame and writes the answer, if there is one.
+static void* run_host(void* context)
+{
+    TEST_HOST* host = (TEST_HOST*)context;
+    struct pollfd listening;
+
+    listening.fd = listener;
+    listening.events = POLLIN;
+    if (poll(&listening, 1, 5000) == 1 && (host->peer = accept_peer()) >= 0)
+    {
+        ssize_t count = 1;
+
+        while (count > 0 && host->create_size < REMOTE_HEADER_SIZE)
+        {
+            count = recv(host->peer, host->create_frame + host->create_size, REMOTE_HEADER_SIZE - host->create_size, 0);
+            host->create_size += count > 0 ? (size_t)count : 0;
+        }
+        while (count > 0 && host->create_size < (size_t)frame_size(host->create_frame) && host->create_size < sizeof(host->create_frame))
+        {
+            count = recv(host->peer, host->create_frame + host->create_size, (size_t)frame_size(host->create_frame) - host->create_size, 0);
+            host->create_size += count > 0 ? (size_t)count : 0;
+        }
+
+        if (count > 0 && host->answer_size > 0)
+        {
+            (void)send(host->peer, host->answer, host->answer_size, MSG_NOSIGNAL);
+        }
+        else
+        {
+            (void)close(host->peer);
+            host->peer = -1;
+        }
+    }
+
+    return NULL;
+}
+
+//Starts a host that answers with control, followed by text for REMOTE_CONTROL_ERROR, or closes the connection without answering if control is 0.
+static void start_host(TEST_HOST* host, unsigned char control, const char* text)
+{
+    size_t text_size = text == NULL ? 0 : strlen(text);
+
+    memset(host, 0, sizeof(*host));
+    host->peer = -1;
+    if (control != 0)
+    {
+        host->answer_size = REMOTE_CONTROL_FRAME_SIZE + text_size;
+        host->answer[0] = REMOTE_FRAME_MAGIC;
+        host->answer[1] = REMOTE_CONTROL_FRAME;
+        host->answer[5] = (unsigned char)host->answer_size;
+        host->answer[REMOTE_HEADER_SIZE] = control;
+        if (text_size > 0)
+        {
+            memcpy(host->answer + REMOTE_CONTROL_FRAME_SIZE, text, text_size);
+        }
+    }
+    ASSERT_ARE_EQUAL(int, 0, pthread_create(&host->thread, NULL, run_host, host));
+}
+
+//Waits for the host and returns its end of the connection, or -1 if there was none.
+static int join_host(TEST_HOST* host)
+{
+    ASSERT_ARE_EQUAL(int, 0, pthread_join(host->thread, NULL));
+    return host->peer;
+}
+
+//Creates a remote module the host agrees to create, and returns the host's end of the connection in peer.
+static JAVA_MODULE_HOST_REMOTE_HANDLE create_remote(int* peer)
+{
+    TEST_HOST host;
+    JAVA_MODULE_HOST_REMOTE_HANDLE result;
+
+    start_host(&host, REMOTE_CONTROL_CREATED, NULL);
+    result = JavaModuleHostRemote_Create((BROKER_HANDLE)0x42, (MODULE_HANDLE)0x43, &config);
+    *peer = join_host(&host);
+    ASSERT_IS_NOT_NULL(result);
+    ASSERT_IS_TRUE(*peer >= 0);
+
+    return result;
+}
+
+static void assert_control_frame(const unsigned char* frame, unsigned char control)
+{
+    ASSERT_ARE_EQUAL(int, REMOTE_FRAME_MAGIC, frame[0]);
+    ASSERT_ARE_EQUAL(int, REMOTE_CONTROL_FRAME, frame[1]);
+    ASSERT_ARE_EQUAL(int, control, frame[REMOTE_HEADER_SIZE]);
+}
+
+IMPLEMENT_UMOCK_C_ENUM_TYPE(LOCK_RESULT, LOCK_RESULT_VALUES);
+IMPLEMENT_UMOCK_C_ENUM_TYPE(COND_RESULT, COND_RESULT_VALUES);
+IMPLEMENT_UMOCK_C_ENUM_TYPE(THREADAPI_RESULT, THREADAPI_RESULT_VALUES);
+IMPLEMENT_UMOCK_C_ENUM_TYPE(BROKER_RESULT, BROKER_RESULT_VALUES);
+
+BEGIN_TEST_SUITE(JavaModuleHostRemote_UnitTests)
+
+TEST_SUITE_INITIALIZE(TestClassInitialize)
+{
+    TEST_INITIALIZE_MEMORY_DEBUG(g_dllByDll);
+    g_testByTest = TEST_MUTEX_CREATE();
+    ASSERT_IS_NOT_NULL(g_testByTest);
+
+    umock_c_init(on_umock_c_error);
+    umocktypes_charptr_register_types();
+    umocktypes_stdint_register_types();
+
+    REGISTER_GLOBAL_MOCK_FAIL_RETURN(Lock_Init, NULL);
+    REGISTER_GLOBAL_MOCK_FAIL_RETURN(Lock, LOCK_ERROR);
+    REGISTER_GLOBAL_MOCK_FAIL_RETURN(Unlock, LOCK_ERROR);
+    REGISTER_GLOBAL_MOCK_FAIL_RETURN(Condition_Init, NULL);
+    REGISTER_GLOBAL_MOCK_FAIL_RETURN(Condition_Post, COND_ERROR);
+    REGISTER_GLOBAL_MOCK_FAIL_RETURN(ThreadAPI_Create, THREADAPI_ERROR);
+    REGISTER_GLOBAL_MOCK_FAIL_RETURN(Message_ToByteArray, -1);
+
+    REGISTER_GLOBAL_MOCK_HOOK(gballoc_malloc, my_gballoc_malloc);
+    REGISTER_GLOBAL_MOCK_HOOK(gballoc_free, my_gballoc_free);
+
+    //Lock Hooks
+    REGISTER_GLOBAL_MOCK_HOOK(Lock_Init, my_Lock_Init);
+    REGISTER_GLOBAL_MOCK_HOOK(Lock, my_Lock);
+    REGISTER_GLOBAL_MOCK_HOOK(Unlock, my_Unlock);
+    REGISTER_GLOBAL_MOCK_HOOK(Lock_Deinit, my_Lock_Deinit);
+
+    //Condition Hooks
+    REGISTER_GLOBAL_MOCK_HOOK(Condition_Init, my_Condition_Init);
+    REGISTER_GLOBAL_MOCK_HOOK(Condition_Deinit, my_Condition_Deinit);
+    REGISTER_GLOBAL_MOCK_RETURN(Condition_Post, COND_OK);
+    REGISTER_GLOBAL_MOCK_RETURN(Condition_Wait, COND_OK);
+
+    //Thread Hooks
+    REGISTER_GLOBAL_MOCK_HOOK(ThreadAPI_Create, my_ThreadAPI_Create);
+    REGISTER_GLOBAL_MOCK_HOOK(ThreadAPI_Join, my_ThreadAPI_Join);
+
+    //Message Hooks
+    REGISTER_GLOBAL_MOCK_HOOK(Message_CreateFromByteArray, my_Message_CreateFromByteArray);
+    REGISTER_GLOBAL_MOCK_HOOK(Message_ToByteArray, my_Message_ToByteArray);
+    REGISTER_GLOBAL_MOCK_HOOK(Message_Destroy, my_Message_Destroy);
+
+    //Broker Hooks
+    REGISTER_GLOBAL_MOCK_HOOK(Broker_Publish, my_Broker_Publish);
+
+    REGISTER_UMOCK_ALIAS_TYPE(LOCK_HANDLE, void*);
+    REGISTER_UMOCK_ALIAS_TYPE(COND_HANDLE, void*);
+    REGISTER_UMOCK_ALIAS_TYPE(THREAD_HANDLE, void*);
+    REGISTER_UMOCK_ALIAS_TYPE(THREAD_HANDLE*, void*);
+    REGISTER_UMOCK_ALIAS_TYPE(THREAD_START_FUNC, void*);
+    REGISTER_UMOCK_ALIAS_TYPE(MODULE_HANDLE, void*);
+    REGISTER_UMOCK_ALIAS_TYPE(MESSAGE_HANDLE, void*);
+    REGISTER_UMOCK_ALIAS_TYPE(BROKER_HANDLE, void*);
+    REGISTER_UMOCK_ALIAS_TYPE(const unsigned char*, void*);
+    REGISTER_UMOCK_ALIAS_TYPE(unsigned char*, void*);
+    REGISTER_UMOCK_ALIAS_TYPE(int*, void*);
+
+    REGISTER_TYPE(LOCK_RESULT, LOCK_RESULT);
+    REGISTER_TYPE(COND_RESULT, COND_RESULT);
+    REGISTER_TYPE(THREADAPI_RESULT, THREADAPI_RESULT);
+    REGISTER_TYPE(BROKER_RESULT, BROKER_RESULT);
+
+    (void)sprintf(socket_path, "/tmp/java_module_host_remote_ut_%d.sock", (int)getpid());
+}
+
+TEST_SUITE_CLEANUP(TestClassCleanup)
+{
+    umock_c_deinit();
+
+    TEST_MUTEX_DESTROY(g_testByTest);
+    TEST_DEINITIALIZE_MEMORY_DEBUG(g_dllByDll);
+}
+
+TEST_FUNCTION_INITIALIZE(TestMethodInitialize)
+{
+    if (TEST_MUTEX_ACQUIRE(g_testByTest) != 0)
+    {
+        ASSERT_FAIL("our mutex is ABANDONED. Failure in test framework");
+    }
+
+    listener = open_listener();
+    ASSERT_IS_TRUE(listener >= 0);
+
+    umock_c_reset_all_calls();
+    malloc_will_fail = false;
+    test_thread_count = 0;
+    test_message_size = (int32_t)sizeof(test_message_bytes);
+    publish_count = 0;
+    published_from = NULL;
+}
+
+TEST_FUNCTION_CLEANUP(TestMethodCleanup)
+{
+    (void)close(listener);
+    (void)unlink(socket_path);
+    TEST_MUTEX_RELEASE(g_testByTest);
+}
+
+//=============================================================================
+//JavaModuleHostRemote_Create tests
+//=============================================================================
+
+/*Tests_SRS_JAVA_MODULE_HOST_REMOTE_14_001: [ This function shall return NULL if broker, module, config, config->class_name or config->remote_address is NULL. ]*/
+TEST_FUNCTION(JavaModuleHostRemote_Create_with_NULL_broker_fails)
+{
+    //Act
+    JAVA_MODULE_HOST_REMOTE_HANDLE result = JavaModuleHostRemote_Create(NULL, (MODULE_HANDLE)0x43, &config);
+
+    //Assert
+    ASSERT_IS_NULL(result);
+    ASSERT_ARE_EQUAL(char_ptr, umock_c_get_expected_calls(), umock_c_get_actual_calls());
+}
+
+/*Tests_SRS_JAVA_MODULE_HOST_REMOTE_14_001: [ This function shall return NULL if broker, module, config, config->class_name or config->remote_address is NULL. ]*/
+TEST_FUNCTION(JavaModuleHostRemote_Create_with_NULL_module_fails)
+{
+    //Act
+    JAVA_MODULE_HOST_REMOTE_HANDLE result = JavaModuleHostRemote_Create((BROKER_HANDLE)0x42, NULL, &config);
+
+    //Assert
+    ASSERT_IS_NULL(result);
+    ASSERT_ARE_EQUAL(char_ptr, umock_c_get_expected_calls(), umock_c_get_actual_calls());
+}
+
+/*Tests_SRS_JAVA_MODULE_HOST_REMOTE_14_001: [ This function shall return NULL if broker, module, config, config->class_name or config->remote_address is NULL. ]*/
+TEST_FUNCTION(JavaModuleHostRemote_Create_with_NULL_config_fails)
+{
+    //Act
+    JAVA_MODULE_HOST_REMOTE_HANDLE result = JavaModuleHostRemote_Create((BROKER_HANDLE)0x42, (MODULE_HANDLE)0x43, NULL);
+
+    //Assert
+    ASSERT_IS_NULL(result);
+    ASSERT_ARE_EQUAL(char_ptr, umock_c_get_expected_calls(), umock_c_get_actual_calls());
+}
+
+/*Tests_SRS_JAVA_MODULE_HOST_REMOTE_14_001: [ This function shall return NULL if broker, module, config, config->class_name or config->remote_address is NULL. ]*/
+TEST_FUNCTION(JavaModuleHostRemote_Create_with_NULL_class_name_fails)
+{
+    //Arrange
+    JAVA_MODULE_HOST_CONFIG no_class_name_config =
+    {
+        NULL,
+        "{hello}",
+        NULL,
+        socket_path
+    };
+
+    //Act
+    JAVA_MODULE_HOST_REMOTE_HANDLE result = JavaModuleHostRemote_Create((BROKER_HANDLE)0x42, (MODULE_HANDLE)0x43, &no_class_name_config);
+
+    //Assert
+    ASSERT_IS_NULL(result);
+    ASSERT_ARE_EQUAL(char_ptr, umock_c_get_expected_calls(), umock_c_get_actual_calls());
+}
+
+/*Tests_SRS_JAVA_MODULE_HOST_REMOTE_14_001: [ This function shall return NULL if broker, module, config, config->class_name or config->remote_address is NULL. ]*/
+TEST_FUNCTION(JavaModuleHostRemote_Create_with_NULL_remote_address_fails)
+{
+    //Arrange
+    JAVA_MODULE_HOST_CONFIG no_address_config =
+    {
+        "TestClass",
+        "{hello}",
+        NULL,
+        NULL
+    };
+
+    //Act
+    JAVA_MODULE_HOST_REMOTE_HANDLE result = JavaModuleHostRemote_Create((BROKER_HANDLE)0x42, (MODULE_HANDLE)0x43, &no_address_config);
+
+    //Assert
+    ASSERT_IS_NULL(result);
+    ASSERT_ARE_EQUAL(char_ptr, umock_c_get_expected_calls(), umock_c_get_actual_calls());
+}
+
+/*Tests_SRS_JAVA_MODULE_HOST_REMOTE_14_003: [ This function shall connect to the Unix domain socket at config->remote_address. ]*/
+/*Tests_SRS_JAVA_MODULE_HOST_REMOTE_14_004: [ This function shall write a create control frame holding config->class_name and config->configuration_json. ]*/
+/*Tests_SRS_JAVA_MODULE_HOST_REMOTE_14_005: [ This function shall start a writer thread and a reader thread. ]*/
+/*Tests_SRS_JAVA_MODULE_HOST_REMOTE_14_019: [ This function shall return NULL unless the remote host answers with a created control frame within REMOTE_CREATE_TIMEOUT_MS. ]*/
+TEST_FUNCTION(JavaModuleHostRemote_Create_success)
+{
+    //Arrange
+    TEST_HOST host;
+    size_t class_name_size = strlen(config.class_name) + 1;
+    size_t configuration_size = strlen(config.configuration_json);
+    start_host(&host, REMOTE_CONTROL_CREATED, NULL);
+
+    STRICT_EXPECTED_CALL(gballoc_malloc(IGNORED_NUM_ARG)) /*this is for the structure*/
+        .IgnoreArgument(1);
+    STRICT_EXPECTED_CALL(Lock_Init());
+    STRICT_EXPECTED_CALL(Condition_Init());
+    STRICT_EXPECTED_CALL(gballoc_malloc(IGNORED_NUM_ARG)) /*this is for the frame*/
+        .IgnoreArgument(1);
+    STRICT_EXPECTED_CALL(gballoc_malloc(REMOTE_CONTROL_FRAME_SIZE + class_name_size + configuration_size));
+    STRICT_EXPECTED_CALL(gballoc_free(IGNORED_PTR_ARG)) /*this is for the frame data*/
+        .IgnoreArgument(1);
+    STRICT_EXPECTED_CALL(gballoc_free(IGNORED_PTR_ARG)) /*this is for the frame*/
+        .IgnoreArgument(1);
+    STRICT_EXPECTED_CALL(ThreadAPI_Create(IGNORED_PTR_ARG, IGNORED_PTR_ARG, IGNORED_PTR_ARG))
+        .IgnoreAllArguments();
+    STRICT_EXPECTED_CALL(ThreadAPI_Create(IGNORED_PTR_ARG, IGNORED_PTR_ARG, IGNORED_PTR_ARG))
+        .IgnoreAllArguments();
+
+    //Act
+    JAVA_MODULE_HOST_REMOTE_HANDLE result = JavaModuleHostRemote_Create((BROKER_HANDLE)0x42, (MODULE_HANDLE)0x43, &config);
+    int peer = join_host(&host);
+
+    //Assert
+    ASSERT_IS_NOT_NULL(result);
+    ASSERT_IS_TRUE(peer >= 0);
+    ASSERT_ARE_EQUAL(char_ptr, umock_c_get_expected_calls(), umock_c_get_actual_calls());
+    ASSERT_ARE_EQUAL(int, (int)(REMOTE_CONTROL_FRAME_SIZE + class_name_size + configuration_size), (int)host.create_size);
+    assert_control_frame(host.create_frame, REMOTE_CONTROL_CREATE);
+    ASSERT_ARE_EQUAL(int, (int)host.create_size, frame_size(host.create_frame));
+    ASSERT_ARE_EQUAL(int, 0, memcmp(host.create_frame + REMOTE_CONTROL_FRAME_SIZE, config.class_name, class_name_size));
+    ASSERT_ARE_EQUAL(int, 0, memcmp(host.create_frame + REMOTE_CONTROL_FRAME_SIZE + class_name_size, config.configuration_json, configuration_size));
+
+    //Cleanup
+    JavaModuleHostRemote_Destroy(result);
+    (void)close(peer);
+}
+
+/*Tests_SRS_JAVA_MODULE_HOST_REMOTE_14_002: [ This function shall return NULL upon any underlying API call failure. ]*/
+/*Tests_SRS_JAVA_MODULE_HOST_REMOTE_14_003: [ This function shall connect to the Unix domain socket at config->remote_address. ]*/
+TEST_FUNCTION(JavaModuleHostRemote_Create_without_remote_host_fails)
+{
+    //Arrange
+    (void)close(listener);
+    (void)unlink(socket_path);
+    listener = open_listener();
+    (void)close(listener);
+
+    //Act
+    JAVA_MODULE_HOST_REMOTE_HANDLE result = JavaModuleHostRemote_Create((BROKER_HANDLE)0x42, (MODULE_HANDLE)0x43, &config);
+
+    //Assert
+    ASSERT_IS_NULL(result);
+}
+
+/*Tests_SRS_JAVA_MODULE_HOST_REMOTE_14_019: [ This function shall return NULL unless the remote host answers with a created control frame within REMOTE_CREATE_TIMEOUT_MS. ]*/
+TEST_FUNCTION(JavaModuleHostRemote_Create_fails_when_remote_host_answers_error)
+{
+    //Arrange
+    TEST_HOST host;
+    start_host(&host, REMOTE_CONTROL_ERROR, "Could not create TestClass.");
+
+    //Act
+    JAVA_MODULE_HOST_REMOTE_HANDLE result = JavaModuleHostRemote_Create((BROKER_HANDLE)0x42, (MODULE_HANDLE)0x43, &config);
+    int peer = join_host(&host);
+
+    //Assert
+    ASSERT_IS_NULL(result);
+    ASSERT_IS_TRUE(peer >= 0);
+    ASSERT_ARE_EQUAL(int, 0, (int)read_peer(peer, host.create_frame, sizeof(host.create_frame)));
+
+    //Cleanup
+    (void)close(peer);
+}
+
+/*Tests_SRS_JAVA_MODULE_HOST_REMOTE_14_019: [ This function shall return NULL unless the remote host answers with a created control frame within REMOTE_CREATE_TIMEOUT_MS. ]*/
+TEST_FUNCTION(JavaModuleHostRemote_Create_fails_when_remote_host_does_not_answer)
+{
+    //Arrange
+    TEST_HOST host;
+    start_host(&host, 0, NULL);
+
+    //Act
+    JAVA_MODULE_HOST_REMOTE_HANDLE result = JavaModuleHostRemote_Create((BROKER_HANDLE)0x42, (MODULE_HANDLE)0x43, &config);
+    (void)join_host(&host);
+
+    //Assert
+    ASSERT_IS_NULL(result);
+    assert_control_frame(host.create_frame, REMOTE_CONTROL_CREATE);
+}
+
+/*Tests_SRS_JAVA_MODULE_HOST_REMOTE_14_019: [ This function shall return NULL unless the remote host answers with a created control frame within REMOTE_CREATE_TIMEOUT_MS. ]*/
+TEST_FUNCTION(JavaModuleHostRemote_Create_fails_when_remote_host_answers_another_control_frame)
+{
+    //Arrange
+    TEST_HOST host;
+    start_host(&host, REMOTE_CONTROL_START, NULL);
+
+    //Act
+    JAVA_MODULE_HOST_REMOTE_HANDLE result = JavaModuleHostRemote_Create((BROKER_HANDLE)0x42, (MODULE_HANDLE)0x43, &config);
+    int peer = join_host(&host);
+
+    //Assert
+    ASSERT_IS_NULL(result);
+
+    //Cleanup
+    (void)close(peer);
+}
+
+/*Tests_SRS_JAVA_MODULE_HOST_REMOTE_14_002: [ This function shall return NULL upon any underlying API call failure. ]*/
+TEST_FUNCTION(JavaModuleHostRemote_Create_API_failure_tests)
+{
+    //Arrange
+    int result = 0;
+    result = umock_c_negative_tests_init();
+    ASSERT_ARE_EQUAL(int, 0, result);
+
+    STRICT_EXPECTED_CALL(gballoc_malloc(IGNORED_NUM_ARG)) /*this is for the structure*/
+        .IgnoreArgument(1);
+    STRICT_EXPECTED_CALL(Lock_Init());
+    STRICT_EXPECTED_CALL(Condition_Init());
+    STRICT_EXPECTED_CALL(gballoc_malloc(IGNORED_NUM_ARG)) /*this is for the frame*/
+        .IgnoreArgument(1);
+    STRICT_EXPECTED_CALL(gballoc_malloc(IGNORED_NUM_ARG)) /*this is for the frame data*/
+        .IgnoreArgument(1);
+    STRICT_EXPECTED_CALL(gballoc_free(IGNORED_PTR_ARG)) /*this is for the frame data*/
+        .IgnoreArgument(1);
+    STRICT_EXPECTED_CALL(gballoc_free(IGNORED_PTR_ARG)) /*this is for the frame*/
+        .IgnoreArgument(1);
+    STRICT_EXPECTED_CALL(ThreadAPI_Create(IGNORED_PTR_ARG, IGNORED_PTR_ARG, IGNORED_PTR_ARG))
+        .IgnoreAllArguments();
+    STRICT_EXPECTED_CALL(ThreadAPI_Create(IGNORED_PTR_ARG, IGNORED_PTR_ARG, IGNORED_PTR_ARG))
+        .IgnoreAllArguments();
+
+    umock_c_negative_tests_snapshot();
+
+    //act
+    for (size_t i = 0; i < umock_c_negative_tests_call_count(); i++)
+    {
+        //gballoc_free cannot fail.
+        if (i != 5 && i != 6)
+        {
+            // arrange
+            TEST_HOST host;
+            umock_c_negative_tests_reset();
+            umock_c_negative_tests_fail_call(i);
+            test_thread_count = 0;
+
+            //Every failure after Condition_Init happens once the connection is made.
+            if (i > 2)
+            {
+                start_host(&host, REMOTE_CONTROL_CREATED, NULL);
+            }
+
+            // act
+            JAVA_MODULE_HOST_REMOTE_HANDLE remote = JavaModuleHostRemote_Create((BROKER_HANDLE)0x42, (MODULE_HANDLE)0x43, &config);
+
+            // assert
+            ASSERT_ARE_EQUAL(void_ptr, NULL, remote);
+
+            // cleanup
+            if (i > 2 && join_host(&host) >= 0)
+            {
+                (void)close(host.peer);
+            }
+        }
+    }
+    umock_c_negative_tests_deinit();
+}
+
+//=============================================================================
+//JavaModuleHostRemote_Start tests
+//=============================================================================
+
+/*Tests_SRS_JAVA_MODULE_HOST_REMOTE_14_006: [ This function shall do nothing if remote is NULL. ]*/
+TEST_FUNCTION(JavaModuleHostRemote_Start_with_NULL_remote_does_nothing)
+{
+    //Act
+    JavaModuleHostRemote_Start(NULL);
+
+    //Assert
+    ASSERT_ARE_EQUAL(char_ptr, umock_c_get_expected_calls(), umock_c_get_actual_calls());
+}
+
+/*Tests_SRS_JAVA_MODULE_HOST_REMOTE_14_007: [ This function shall queue a start control frame. ]*/
+TEST_FUNCTION(JavaModuleHostRemote_Start_queues_start_frame)
+{
+    //Arrange
+    int peer;
+    JAVA_MODULE_HOST_REMOTE_HANDLE remote = create_remote(&peer);
+    umock_c_reset_all_calls();
+
+    STRICT_EXPECTED_CALL(gballoc_malloc(IGNORED_NUM_ARG)) /*this is for the frame*/
+        .IgnoreArgument(1);
+    STRICT_EXPECTED_CALL(gballoc_malloc(REMOTE_CONTROL_FRAME_SIZE));
+    STRICT_EXPECTED_CALL(Lock(IGNORED_PTR_ARG))
+        .IgnoreArgument(1);
+    STRICT_EXPECTED_CALL(Condition_Post(IGNORED_PTR_ARG))
+        .IgnoreArgument(1);
+    STRICT_EXPECTED_CALL(Unlock(IGNORED_PTR_ARG))
+        .IgnoreArgument(1);
+
+    //Act
+    JavaModuleHostRemote_Start(remote);
+
+    //Assert
+    ASSERT_ARE_EQUAL(char_ptr, umock_c_get_expected_calls(), umock_c_get_actual_calls());
+
+    //Cleanup
+    JavaModuleHostRemote_Destroy(remote);
+    (void)close(peer);
+}
+
+/*Tests_SRS_JAVA_MODULE_HOST_REMOTE_14_007: [ This function shall queue a start control frame. ]*/
+TEST_FUNCTION(JavaModuleHostRemote_Start_malloc_failure_does_not_queue)
+{
+    //Arrange
+    unsigned char buffer[256];
+    int peer;
+    JAVA_MODULE_HOST_REMOTE_HANDLE remote = create_remote(&peer);
+    size_t read;
+    malloc_will_fail = true;
+
+    //Act
+    JavaModuleHostRemote_Start(remote);
+
+    //Assert
+    malloc_will_fail = false;
+    JavaModuleHostRemote_Destroy(remote);
+    read = read_peer(peer, buffer, sizeof(buffer));
+    ASSERT_ARE_EQUAL(int, REMOTE_CONTROL_FRAME_SIZE, (int)read);
+    assert_control_frame(buffer, REMOTE_CONTROL_DESTROY);
+
+    //Cleanup
+    (void)close(peer);
+}
+
+//=============================================================================
+//JavaModuleHostRemote_Send tests
+//=============================================================================
+
+/*Tests_SRS_JAVA_MODULE_HOST_REMOTE_14_008: [ This function shall return non-zero if remote or message is NULL. ]*/
+TEST_FUNCTION(JavaModuleHostRemote_Send_with_NULL_remote_fails)
+{
+    //Act
+    int result = JavaModuleHostRemote_Send(NULL, (MESSAGE_HANDLE)0x44);
+
+    //Assert
+    ASSERT_ARE_NOT_EQUAL(int, 0, result);
+    ASSERT_ARE_EQUAL(char_ptr, umock_c_get_expected_calls(), umock_c_get_actual_calls());
+}
+
+/*Tests_SRS_JAVA_MODULE_HOST_REMOTE_14_008: [ This function shall return non-zero if remote or message is NULL. ]*/
+TEST_FUNCTION(JavaModuleHostRemote_Send_with_NULL_message_fails)
+{
+    //Arrange
+    int peer;
+    JAVA_MODULE_HOST_REMOTE_HANDLE remote = create_remote(&peer);
+    umock_c_reset_all_calls();
+
+    //Act
+    int result = JavaModuleHostRemote_Send(remote, NULL);
+
+    //Assert
+    ASSERT_ARE_NOT_EQUAL(int, 0, result);
+    ASSERT_ARE_EQUAL(char_ptr, umock_c_get_expected_calls(), umock_c_get_actual_calls());
+
+    //Cleanup
+    JavaModuleHostRemote_Destroy(remote);
+    (void)close(peer);
+}
+
+/*Tests_SRS_JAVA_MODULE_HOST_REMOTE_14_009: [ This function shall serialize message and queue it without waiting for the socket. ]*/
+TEST_FUNCTION(JavaModuleHostRemote_Send_queues_serialized_message)
+{
+    //Arrange
+    int peer;
+    JAVA_MODULE_HOST_REMOTE_HANDLE remote = create_remote(&peer);
+    umock_c_reset_all_calls();
+
+    STRICT_EXPECTED_CALL(Message_ToByteArray((MESSAGE_HANDLE)0x44, NULL, 0));
+    STRICT_EXPECTED_CALL(gballoc_malloc(IGNORED_NUM_ARG)) /*this is for the frame*/
+        .IgnoreArgument(1);
+    STRICT_EXPECTED_CALL(gballoc_malloc(sizeof(test_message_bytes)));
+    STRICT_EXPECTED_CALL(Message_ToByteArray((MESSAGE_HANDLE)0x44, IGNORED_PTR_ARG, (int32_t)sizeof(test_message_bytes)))
+        .IgnoreArgument(2);
+    STRICT_EXPECTED_CALL(Lock(IGNORED_PTR_ARG))
+        .IgnoreArgument(1);
+    STRICT_EXPECTED_CALL(Condition_Post(IGNORED_PTR_ARG))
+        .IgnoreArgument(1);
+    STRICT_EXPECTED_CALL(Unlock(IGNORED_PTR_ARG))
+        .IgnoreArgument(1);
+
+    //Act
+    int result = JavaModuleHostRemote_Send(remote, (MESSAGE_HANDLE)0x44);
+
+    //Assert
+    ASSERT_ARE_EQUAL(int, 0, result);
+    ASSERT_ARE_EQUAL(char_ptr, umock_c_get_expected_calls(), umock_c_get_actual_calls());
+
+    //Cleanup
+    JavaModuleHostRemote_Destroy(remote);
+    (void)close(peer);
+}
+
+/*Tests_SRS_JAVA_MODULE_HOST_REMOTE_14_009: [ This function shall serialize message and queue it without waiting for the socket. ]*/
+TEST_FUNCTION(JavaModuleHostRemote_Send_API_failure_tests)
+{
+    //Arrange
+    int peer;
+    JAVA_MODULE_HOST_REMOTE_HANDLE remote = create_remote(&peer);
+    umock_c_reset_all_calls();
+
+    int result = 0;
+    result = umock_c_negative_tests_init();
+    ASSERT_ARE_EQUAL(int, 0, result);
+
+    STRICT_EXPECTED_CALL(Message_ToByteArray((MESSAGE_HANDLE)0x44, NULL, 0));
+    STRICT_EXPECTED_CALL(gballoc_malloc(IGNORED_NUM_ARG)) /*this is for the frame*/
+        .IgnoreArgument(1);
+    STRICT_EXPECTED_CALL(gballoc_malloc(sizeof(test_message_bytes)));
+    STRICT_EXPECTED_CALL(Message_ToByteArray((MESSAGE_HANDLE)0x44, IGNORED_PTR_ARG, (int32_t)sizeof(test_message_bytes)))
+        .IgnoreArgument(2);
+    STRICT_EXPECTED_CALL(Lock(IGNORED_PTR_ARG))
+        .IgnoreArgument(1);
+
+    umock_c_negative_tests_snapshot();
+
+    //act
+    for (size_t i = 0; i < umock_c_negative_tests_call_count(); i++)
+    {
+        // arrange
+        umock_c_negative_tests_reset();
+        umock_c_negative_tests_fail_call(i);
+
+        // act
+        result = JavaModuleHostRemote_Send(remote, (MESSAGE_HANDLE)0x44);
+
+        // assert
+        ASSERT_ARE_NOT_EQUAL(int, 0, result);
+    }
+    umock_c_negative_tests_deinit();
+
+    //Cleanup
+    JavaModuleHostRemote_Destroy(remote);
+    (void)close(peer);
+}
+
+/*Tests_SRS_JAVA_MODULE_HOST_REMOTE_14_010: [ This function shall drop message and return non-zero if REMOTE_MAX_QUEUED_BYTES are already queued. ]*/
+TEST_FUNCTION(JavaModuleHostRemote_Send_drops_message_when_queue_is_full)
+{
+    //Arrange
+    unsigned char buffer[256];
+    int peer;
+    JAVA_MODULE_HOST_REMOTE_HANDLE remote = create_remote(&peer);
+    size_t read;
+
+    //The writer thread only runs when it is joined, so the first message is still queued and one of REMOTE_MAX_QUEUED_BYTES does not fit.
+    ASSERT_ARE_EQUAL(int, 0, JavaModuleHostRemote_Send(remote, (MESSAGE_HANDLE)0x44));
+    test_message_size = REMOTE_MAX_QUEUED_BYTES;
+
+    //Act
+    int result = JavaModuleHostRemote_Send(remote, (MESSAGE_HANDLE)0x44);
+
+    //Assert
+    ASSERT_ARE_NOT_EQUAL(int, 0, result);
+    JavaModuleHostRemote_Destroy(remote);
+    read = read_peer(peer, buffer, sizeof(buffer));
+    ASSERT_ARE_EQUAL(int, (int)sizeof(test_message_bytes) + REMOTE_CONTROL_FRAME_SIZE, (int)read);
+    assert_control_frame(buffer + sizeof(test_message_bytes), REMOTE_CONTROL_DESTROY);
+
+    //Cleanup
+    (void)close(peer);
+}
+
+//=============================================================================
+//JavaModuleHostRemote_Destroy tests
+//=============================================================================
+
+/*Tests_SRS_JAVA_MODULE_HOST_REMOTE_14_011: [ This function shall do nothing if remote is NULL. ]*/
+TEST_FUNCTION(JavaModuleHostRemote_Destroy_with_NULL_remote_does_nothing)
+{
+    //Act
+    JavaModuleHostRemote_Destroy(NULL);
+
+    //Assert
+    ASSERT_ARE_EQUAL(char_ptr, umock_c_get_expected_calls(), umock_c_get_actual_calls());
+}
+
+/*Tests_SRS_JAVA_MODULE_HOST_REMOTE_14_012: [ This function shall queue a destroy control frame and wait for the writer thread to write all queued frames, giving up once a write makes no progress for REMOTE_SEND_TIMEOUT_MS. ]*/
+/*Tests_SRS_JAVA_MODULE_HOST_REMOTE_14_013: [ This function shall shut the socket down, wait for the reader thread and free all resources. ]*/
+/*Tests_SRS_JAVA_MODULE_HOST_REMOTE_14_014: [ The writer thread shall take every queued frame at once and write them with as few system calls as possible. ]*/
+TEST_FUNCTION(JavaModuleHostRemote_Destroy_writes_all_queued_frames_in_order)
+{
+    //Arrange
+    unsigned char buffer[256];
+    int peer;
+    JAVA_MODULE_HOST_REMOTE_HANDLE remote = create_remote(&peer);
+    size_t read;
+    unsigned char* frame;
+
+    JavaModuleHostRemote_Start(remote);
+    (void)JavaModuleHostRemote_Send(remote, (MESSAGE_HANDLE)0x44);
+
+    //Act
+    JavaModuleHostRemote_Destroy(remote);
+    read = read_peer(peer, buffer, sizeof(buffer));
+
+    //Assert
+    ASSERT_ARE_EQUAL(int, 2 * REMOTE_CONTROL_FRAME_SIZE + (int)sizeof(test_message_bytes), (int)read);
+
+    frame = buffer;
+    assert_control_frame(frame, REMOTE_CONTROL_START);
+    ASSERT_ARE_EQUAL(int, REMOTE_CONTROL_FRAME_SIZE, frame_size(frame));
+
+    frame += REMOTE_CONTROL_FRAME_SIZE;
+    ASSERT_ARE_EQUAL(int, 0, memcmp(frame, test_message_bytes, sizeof(test_message_bytes)));
+
+    frame += sizeof(test_message_bytes);
+    assert_control_frame(frame, REMOTE_CONTROL_DESTROY);
+    ASSERT_ARE_EQUAL(int, REMOTE_CONTROL_FRAME_SIZE, frame_size(frame));
+
+    //Cleanup
+    (void)close(peer);
+}
+
+/*Tests_SRS_JAVA_MODULE_HOST_REMOTE_14_015: [ If the socket cannot be written, the writer thread shall drop all further frames. ]*/
+TEST_FUNCTION(JavaModuleHostRemote_Destroy_after_remote_host_closed_drops_frames)
+{
+    //Arrange
+    int peer;
+    JAVA_MODULE_HOST_REMOTE_HANDLE remote = create_remote(&peer);
+    (void)close(peer);
+
+    JavaModuleHostRemote_Start(remote);
+    (void)JavaModuleHostRemote_Send(remote, (MESSAGE_HANDLE)0x44);
+
+    //Act
+    JavaModuleHostRemote_Destroy(remote);
+
+    //Assert
+    ASSERT_ARE_EQUAL(int, 0, (int)publish_count);
+}
+
+/*Tests_SRS_JAVA_MODULE_HOST_REMOTE_14_012: [ This function shall queue a destroy control frame and wait for the writer thread to write all queued frames, giving up once a write makes no progress for REMOTE_SEND_TIMEOUT_MS. ]*/
+/*Tests_SRS_JAVA_MODULE_HOST_REMOTE_14_020: [ A write that makes no progress for REMOTE_SEND_TIMEOUT_MS shall be retried, unless the module is being destroyed. ]*/
+TEST_FUNCTION(JavaModuleHostRemote_Destroy_gives_up_when_remote_host_does_not_read)
+{
+    //Arrange
+    int peer;
+    JAVA_MODULE_HOST_REMOTE_HANDLE remote = create_remote(&peer);
+
+    //Far more than the socket buffers hold, and the remote host never reads.
+    test_message_size = 16 * 1024 * 1024;
+    (void)JavaModuleHostRemote_Send(remote, (MESSAGE_HANDLE)0x44);
+
+    //Act
+    JavaModuleHostRemote_Destroy(remote);
+
+    //Assert
+    ASSERT_ARE_EQUAL(int, 0, (int)publish_count);
+
+    //Cleanup
+    (void)close(peer);
+}
+
+//=============================================================================
+//Reader thread tests
+//=============================================================================
+
+/*Tests_SRS_JAVA_MODULE_HOST_REMOTE_14_016: [ The reader thread shall read frames until the socket is closed. ]*/
+/*Tests_SRS_JAVA_MODULE_HOST_REMOTE_14_018: [ The reader thread shall publish every frame to the broker as a message from module. ]*/
+TEST_FUNCTION(JavaModuleHostRemote_reader_publishes_every_message_frame)
+{
+    //Arrange
+    int peer;
+    JAVA_MODULE_HOST_REMOTE_HANDLE remote = create_remote(&peer);
+    write_peer(peer, test_message_bytes, sizeof(test_message_bytes));
+    write_peer(peer, test_message_bytes, sizeof(test_message_bytes));
+    (void)shutdown(peer, SHUT_WR);
+
+    //Act
+    JavaModuleHostRemote_Destroy(remote);
+
+    //Assert
+    ASSERT_ARE_EQUAL(int, 2, (int)publish_count);
+    ASSERT_ARE_EQUAL(void_ptr, (MODULE_HANDLE)0x43, published_from);
+
+    //Cleanup
+    (void)close(peer);
+}
+
+/*Tests_SRS_JAVA_MODULE_HOST_REMOTE_14_017: [ The reader thread shall close the connection if a frame is not a message frame starting with 0xA1 0x60 or its size is out of range. ]*/
+TEST_FUNCTION(JavaModuleHostRemote_reader_closes_connection_on_control_frame)
+{
+    //Arrange
+    const unsigned char control_frame[] = { REMOTE_FRAME_MAGIC, REMOTE_CONTROL_FRAME, 0x00, 0x00, 0x00, REMOTE_CONTROL_FRAME_SIZE, REMOTE_CONTROL_DESTROY };
+    int peer;
+    JAVA_MODULE_HOST_REMOTE_HANDLE remote = create_remote(&peer);
+    write_peer(peer, control_frame, sizeof(control_frame));
+    write_peer(peer, test_message_bytes, sizeof(test_message_bytes));
+    (void)shutdown(peer, SHUT_WR);
+
+    //Act
+    JavaModuleHostRemote_Destroy(remote);
+
+    //Assert
+    ASSERT_ARE_EQUAL(int, 0, (int)publish_count);
+
+    //Cleanup
+    (void)close(peer);
+}
+
+/*Tests_SRS_JAVA_MODULE_HOST_REMOTE_14_017: [ The reader thread shall close the connection if a frame is not a message frame starting with 0xA1 0x60 or its size is out of range. ]*/
+TEST_FUNCTION(JavaModuleHostRemote_reader_closes_connection_on_frame_size_out_of_range)
+{
+    //Arrange
+    const unsigned char small_frame[] = { REMOTE_FRAME_MAGIC, REMOTE_MESSAGE_FRAME, 0x00, 0x00, 0x00, REMOTE_MIN_FRAME_SIZE - 1, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00 };
+    int peer;
+    JAVA_MODULE_HOST_REMOTE_HANDLE remote = create_remote(&peer);
+    write_peer(peer, small_frame, sizeof(small_frame));
+    write_peer(peer, test_message_bytes, sizeof(test_message_bytes));
+    (void)shutdown(peer, SHUT_WR);
+
+    //Act
+    JavaModuleHostRemote_Destroy(remote);
+
+    //Assert
+    ASSERT_ARE_EQUAL(int, 0, (int)publish_count);
+
+    //Cleanup
+    (void)close(peer);
+}
+
+/*Tests_SRS_JAVA_MODULE_HOST_REMOTE_14_018: [ The reader thread shall publish every frame to the broker as a message from module. ]*/
+TEST_FUNCTION(JavaModuleHostRemote_reader_skips_frame_that_cannot_be_deserialized)
+{
+    //Arrange
+    int peer;
+    JAVA_MODULE_HOST_REMOTE_HANDLE remote = create_remote(&peer);
+    write_peer(peer, test_message_bytes, sizeof(test_message_bytes));
+    write_peer(peer, test_message_bytes, sizeof(test_message_bytes));
+    (void)shutdown(peer, SHUT_WR);
+    umock_c_reset_all_calls();
+
+    STRICT_EXPECTED_CALL(Message_CreateFromByteArray(IGNORED_PTR_ARG, (int32_t)sizeof(test_message_bytes)))
+        .IgnoreArgument(1)
+        .SetReturn(NULL);
+
+    //Act
+    JavaModuleHostRemote_Destroy(remote);
+
+    //Assert
+    ASSERT_ARE_EQUAL(int, 1, (int)publish_count);
+
+    //Cleanup
+    (void)close(peer);
+}
+
+END_TEST_SUITE(JavaModuleHostRemote_UnitTests);
@@ -61,6 +61,7 @@ extern "C"
 
 #define ENTRYPOINT_CLASSNAME        "class.name"
 #define ENTRYPOINT_CLASSPATH        "class.path"
+#define ENTRYPOINT_REMOTE_ADDRESS   "remote.address"
 #define JVM_OPTIONS_KEY             "jvm.options"
 
 typedef struct JAVA_LOADER_CONFIGURATION_TAG
@@ -73,6 +74,7 @@ typedef struct JAVA_LOADER_ENTRYPOINT_TAG
 {
     STRING_HANDLE className;
     STRING_HANDLE classPath;
+    STRING_HANDLE remoteAddress;
 } JAVA_LOADER_ENTRYPOINT;
 
 MOCKABLE_FUNCTION(, GATEWAY_EXPORT const MODULE_LOADER*, JavaLoader_Get);
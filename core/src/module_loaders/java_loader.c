@@ -265,6 +265,9 @@ static void* JavaModuleLoader_ParseEntrypointFromJson(const MODULE_LOADER* loade
                             }
                             else
                             {
+                                /*Codes_SRS_JAVA_MODULE_LOADER_14_062: [JavaModuleLoader_ParseEntrypointFromJson shall retreive the optional address of a remote Java module host by reading the value of the attribute remote.address.]*/
+                                const char* remoteAddress = json_object_get_string(entrypoint_json, ENTRYPOINT_REMOTE_ADDRESS);
+
                                 /*Codes_SRS_JAVA_MODULE_LOADER_14_023: [JavaModuleLoader_ParseEntrypointFromJson shall return a non - NULL pointer to the parsed representation of the entrypoint when successful.]*/
                                 entrypoint = (JAVA_LOADER_ENTRYPOINT*)malloc(sizeof(JAVA_LOADER_ENTRYPOINT));
                                 if (entrypoint == NULL)
@@ -349,6 +352,19 @@ static void* JavaModuleLoader_ParseEntrypointFromJson(const MODULE_LOADER* loade
                                                                 entrypoint = NULL;
                                                                 LogError("Failed to allocate class.path");
                                                             }
+                                                            else
+                                                            {
+                                                                /*Codes_SRS_JAVA_MODULE_LOADER_14_063: [JavaModuleLoader_ParseEntrypointFromJson shall set remoteAddress to NULL if remote.address is non-existent.]*/
+                                                                entrypoint->remoteAddress = NULL;
+                                                                if (remoteAddress != NULL && (entrypoint->remoteAddress = STRING_construct(remoteAddress)) == NULL)
+                                                                {
+                                                                    STRING_delete(entrypoint->className);
+                                                                    STRING_delete(entrypoint->classPath);
+                                                                    free(entrypoint);
+                                                                    entrypoint = NULL;
+                                                                    LogError("STRING_construct for %s failed.", remoteAddress);
+                                                                }
+                                                            }
                                                         }
                                                     }
                                                 }
@@ -383,6 +399,10 @@ static void JavaModuleLoader_FreeEntrypoint(const MODULE_LOADER* loader, void* e
         JAVA_LOADER_ENTRYPOINT* ep = (JAVA_LOADER_ENTRYPOINT*)entrypoint;
         STRING_delete(ep->className);
         STRING_delete(ep->classPath);
+        if (ep->remoteAddress != NULL)
+        {
+            STRING_delete(ep->remoteAddress);
+        }
         free(ep);
     }
 }
@@ -432,6 +452,7 @@ static MODULE_LOADER_BASE_CONFIGURATION* JavaModuleLoader_ParseConfigurationFrom
                     /*Codes_SRS_JAVA_MODULE_LOADER_14_033: [JavaModuleLoader_ParseConfigurationFromJson shall parse the jvm.options.debug.]*/
                     /*Codes_SRS_JAVA_MODULE_LOADER_14_034: [JavaModuleLoader_ParseConfigurationFromJson shall parse the jvm.options.debug.port.]*/
                     /*Codes_SRS_JAVA_MODULE_LOADER_14_035: [JavaModuleLoader_ParseConfigurationFromJson shall parse the jvm.options.additional.options object and create a new STRING_HANDLE for each.]*/
+                    /*Codes_SRS_JAVA_MODULE_LOADER_14_061: [JavaModuleLoader_ParseConfigurationFromJson shall parse the jvm.options.appcds.archive and jvm.options.appcds.dump.]*/
                     JVM_OPTIONS* jvm_options = parse_jvm_config(options_object);
                     if (jvm_options == NULL)
                     {
@@ -542,6 +563,23 @@ static void* JavaModuleLoader_BuildModuleConfiguration(const MODULE_LOADER* load
                     else
                     {
                         result->options = CONFIGURATION->options;
+
+                        /*Codes_SRS_JAVA_MODULE_LOADER_14_064: [JavaModuleLoader_BuildModuleConfiguration shall copy entrypoint->remoteAddress to remote_address, or set it to NULL if entrypoint->remoteAddress is NULL.]*/
+                        if (((JAVA_LOADER_ENTRYPOINT*)entrypoint)->remoteAddress == NULL)
+                        {
+                            result->remote_address = NULL;
+                        }
+                        else if (mallocAndStrcpy_s((char**)(&(result->remote_address)), STRING_c_str(((JAVA_LOADER_ENTRYPOINT*)entrypoint)->remoteAddress)) != 0)
+                        {
+                            if (module_configuration != NULL)
+                            {
+                                free((char*)(result->configuration_json));
+                            }
+                            free((char*)(result->class_name));
+                            free(result);
+                            result = NULL;
+                            LogError("failed to allocate remote_address.");
+                        }
                     }
                 }
             }
@@ -566,6 +604,10 @@ static void JavaModuleLoader_FreeModuleConfiguration(const MODULE_LOADER* loader
         /*Codes_SRS_JAVA_MODULE_LOADER_14_052: [JavaModuleLoader_FreeModuleConfiguration shall free the JAVA_MODULE_HOST_CONFIG object.]*/
         free((char*)(config->class_name));
         free((char*)(config->configuration_json));
+        if (config->remote_address != NULL)
+        {
+            free((char*)(config->remote_address));
+        }
         free(config);
     }
 }
@@ -648,6 +690,8 @@ static JAVA_LOADER_CONFIGURATION* create_default_config()
             default_options->debug_port = 0;
             default_options->verbose = false;
             default_options->additional_options = NULL;
+            default_options->appcds_archive = NULL;
+            default_options->appcds_dump = false;
 
             
             result = (JAVA_LOADER_CONFIGURATION*)malloc(sizeof(JAVA_LOADER_CONFIGURATION));
@@ -777,6 +821,7 @@ static void free_jvm_config(JVM_OPTIONS* options)
         VECTOR_destroy(options->additional_options);
         free((char*)(options->class_path));
         free((char*)(options->library_path));
+        free((char*)(options->appcds_archive));
         free(options);
     }
 }
@@ -792,6 +837,9 @@ static JVM_OPTIONS* parse_jvm_config(JSON_Object* object)
     }
     else
     {
+        options->appcds_archive = NULL;
+        options->appcds_dump = false;
+
         int status = set_default_paths(options);
 
         if (status != 0)
@@ -880,6 +928,27 @@ static JVM_OPTIONS* parse_jvm_config(JSON_Object* object)
                             options = NULL;
                             LogError("Failed to properly create vector of additional options.");
                         }
+                        else
+                        {
+                            temp = json_object_get_string(object, JAVA_MODULE_JVM_OPTIONS_APPCDS_ARCHIVE_KEY);
+
+                            if (temp != NULL)
+                            {
+                                status = mallocAndStrcpy_s((char**)(&options->appcds_archive), temp);
+                            }
+
+                            if (status != 0)
+                            {
+                                options->appcds_archive = NULL;
+                                free_jvm_config(options);
+                                options = NULL;
+                                LogError("Failed to allocate appcds.archive");
+                            }
+                            else
+                            {
+                                options->appcds_dump = json_object_get_boolean(object, JAVA_MODULE_JVM_OPTIONS_APPCDS_DUMP_KEY) == 1 ? true : false;
+                            }
+                        }
                     }
                 }
             }
@@ -1107,6 +1107,8 @@ TEST_FUNCTION(JavaModuleLoader_ParseEntrypointFromJson_failure_tests)
     STRICT_EXPECTED_CALL(json_object_get_string((const JSON_Object*)0x43, ENTRYPOINT_CLASSPATH))
         .SetReturn(ENTRYPOINT_CLASSPATH)
         .SetFailReturn(NULL);
+    STRICT_EXPECTED_CALL(json_object_get_string((const JSON_Object*)0x43, ENTRYPOINT_REMOTE_ADDRESS))
+        .SetReturn(NULL);
     STRICT_EXPECTED_CALL(gballoc_malloc(IGNORED_NUM_ARG))
         .IgnoreArgument(1)
         .SetFailReturn(NULL);
@@ -1141,7 +1143,7 @@ TEST_FUNCTION(JavaModuleLoader_ParseEntrypointFromJson_failure_tests)
 
     for (size_t i = 0; i < umock_c_negative_tests_call_count(); i++)
     {
-        if (i != 11)
+        if (i != 4 && i != 12)
         {
             //arrange
             umock_c_negative_tests_reset();
@@ -1217,6 +1219,8 @@ TEST_FUNCTION(JavaModuleLoader_ParseEntrypointFromJson_gets_class_name)
         .SetReturn(ENTRYPOINT_CLASSNAME);
     STRICT_EXPECTED_CALL(json_object_get_string((const JSON_Object*)0x43, ENTRYPOINT_CLASSPATH))
         .SetReturn(ENTRYPOINT_CLASSPATH);
+    STRICT_EXPECTED_CALL(json_object_get_string((const JSON_Object*)0x43, ENTRYPOINT_REMOTE_ADDRESS))
+        .SetReturn(NULL);
     STRICT_EXPECTED_CALL(gballoc_malloc(IGNORED_NUM_ARG))
         .IgnoreArgument(1);
     STRICT_EXPECTED_CALL(STRING_construct(IGNORED_PTR_ARG))
@@ -1317,6 +1321,8 @@ TEST_FUNCTION(JavaModuleLoader_FreeEntrypoint_frees_resources)
         .SetReturn(ENTRYPOINT_CLASSNAME);
     STRICT_EXPECTED_CALL(json_object_get_string((const JSON_Object*)0x43, ENTRYPOINT_CLASSPATH))
         .SetReturn(ENTRYPOINT_CLASSPATH);
+    STRICT_EXPECTED_CALL(json_object_get_string((const JSON_Object*)0x43, ENTRYPOINT_REMOTE_ADDRESS))
+        .SetReturn(NULL);
 
     void* entrypoint = JavaModuleLoader_ParseEntrypointFromJson(&loader, (const JSON_Value*)0x42);
     ASSERT_IS_NOT_NULL(entrypoint);
@@ -1477,6 +1483,13 @@ TEST_FUNCTION(JavaModuleLoader_ParseConfigurationFromJson_failure_tests)
         .IgnoreArgument(1)
         .IgnoreArgument(2)
         .SetFailReturn(-1);
+    STRICT_EXPECTED_CALL(json_object_get_string((const JSON_Object*)0x42, JAVA_MODULE_JVM_OPTIONS_APPCDS_ARCHIVE_KEY))
+        .SetFailReturn(NULL);
+    STRICT_EXPECTED_CALL(mallocAndStrcpy_s(IGNORED_PTR_ARG, IGNORED_PTR_ARG))
+        .IgnoreArgument(1)
+        .IgnoreArgument(2)
+        .SetFailReturn(-1);
+    STRICT_EXPECTED_CALL(json_object_get_boolean((const JSON_Object*)0x42, JAVA_MODULE_JVM_OPTIONS_APPCDS_DUMP_KEY));
     STRICT_EXPECTED_CALL(ModuleLoader_ParseBaseConfigurationFromJson(IGNORED_PTR_ARG, IGNORED_PTR_ARG))
         .IgnoreArgument(1)
         .IgnoreArgument(2)
@@ -1500,7 +1513,9 @@ TEST_FUNCTION(JavaModuleLoader_ParseConfigurationFromJson_failure_tests)
             i != 24 && 
             i != 25 && 
             i != 26 && 
-            i != 27 )
+            i != 27 &&
+            i != 35 &&
+            i != 37 )
         {
             //arrange
             umock_c_negative_tests_reset();
@@ -1633,6 +1648,10 @@ TEST_FUNCTION(JavaModuleLoader_ParseConfigurationFromJson_sets_missing_fields)
         .SetReturn(NULL);
     STRICT_EXPECTED_CALL(json_array_get_count(IGNORED_PTR_ARG))
         .IgnoreArgument(1);
+    STRICT_EXPECTED_CALL(json_object_get_string((const JSON_Object*)0x42, JAVA_MODULE_JVM_OPTIONS_APPCDS_ARCHIVE_KEY))
+        .SetReturn(NULL);
+    STRICT_EXPECTED_CALL(json_object_get_boolean((const JSON_Object*)0x42, JAVA_MODULE_JVM_OPTIONS_APPCDS_DUMP_KEY))
+        .SetReturn(-1);
     STRICT_EXPECTED_CALL(ModuleLoader_ParseBaseConfigurationFromJson(IGNORED_PTR_ARG, IGNORED_PTR_ARG))
         .IgnoreArgument(1)
         .IgnoreArgument(2)
@@ -1662,6 +1681,8 @@ TEST_FUNCTION(JavaModuleLoader_ParseConfigurationFromJson_sets_missing_fields)
     ASSERT_IS_TRUE(options->debug == false);
     ASSERT_ARE_EQUAL(int, 0, options->debug_port);
     ASSERT_IS_TRUE(options->verbose == false);
+    ASSERT_IS_NULL(options->appcds_archive);
+    ASSERT_IS_TRUE(options->appcds_dump == false);
 
     //Cleanup
     JavaModuleLoader_FreeConfiguration(IGNORED_PTR_ARG, result);
@@ -1673,6 +1694,7 @@ TEST_FUNCTION(JavaModuleLoader_ParseConfigurationFromJson_sets_missing_fields)
 /*Tests_SRS_JAVA_MODULE_LOADER_14_033: [JavaModuleLoader_ParseConfigurationFromJson shall parse the jvm.options.debug.]*/
 /*Tests_SRS_JAVA_MODULE_LOADER_14_034: [JavaModuleLoader_ParseConfigurationFromJson shall parse the jvm.options.debug.port.]*/
 /*Tests_SRS_JAVA_MODULE_LOADER_14_035: [JavaModuleLoader_ParseConfigurationFromJson shall parse the jvm.options.additional.options object and create a new STRING_HANDLE for each.]*/
+/*Tests_SRS_JAVA_MODULE_LOADER_14_061: [JavaModuleLoader_ParseConfigurationFromJson shall parse the jvm.options.appcds.archive and jvm.options.appcds.dump.]*/
 /*Tests_SRS_JAVA_MODULE_LOADER_14_037: [JavaModuleLoader_ParseConfigurationFromJson shall return a non - NULL JAVA_LOADER_CONFIGURATION containing all user - specified values.]*/
 /*Tests_SRS_JAVA_MODULE_LOADER_14_038: [JavaModuleLoader_ParseConfigurationFromJson shall set the options member of the JAVA_LOADER_CONFIGURATION to the parsed JVM_OPTIONS structure.]*/
 /*Tests_SRS_JAVA_MODULE_LOADER_14_039: [JavaModuleLoader_ParseConfigurationFromJson shall set the base member of the JAVA_LOADER_CONFIGURATION by calling to the base module loader.]*/
@@ -1762,6 +1784,13 @@ TEST_FUNCTION(JavaModuleLoader_ParseConfigurationFromJson_success)
     STRICT_EXPECTED_CALL(VECTOR_push_back(IGNORED_PTR_ARG, IGNORED_PTR_ARG, 1))
         .IgnoreArgument(1)
         .IgnoreArgument(2);
+    STRICT_EXPECTED_CALL(json_object_get_string((const JSON_Object*)0x42, JAVA_MODULE_JVM_OPTIONS_APPCDS_ARCHIVE_KEY))
+        .SetReturn(JAVA_MODULE_JVM_OPTIONS_APPCDS_ARCHIVE_KEY);
+    STRICT_EXPECTED_CALL(mallocAndStrcpy_s(IGNORED_PTR_ARG, IGNORED_PTR_ARG))
+        .IgnoreArgument(1)
+        .IgnoreArgument(2);
+    STRICT_EXPECTED_CALL(json_object_get_boolean((const JSON_Object*)0x42, JAVA_MODULE_JVM_OPTIONS_APPCDS_DUMP_KEY))
+        .SetReturn(true);
     STRICT_EXPECTED_CALL(ModuleLoader_ParseBaseConfigurationFromJson(IGNORED_PTR_ARG, IGNORED_PTR_ARG))
         .IgnoreArgument(1)
         .IgnoreArgument(2)
@@ -1781,6 +1810,8 @@ TEST_FUNCTION(JavaModuleLoader_ParseConfigurationFromJson_success)
     ASSERT_IS_TRUE(options->debug == true);
     ASSERT_ARE_EQUAL(int, 99, options->debug_port);
     ASSERT_IS_TRUE(options->verbose == true);
+    ASSERT_ARE_EQUAL(char_ptr, JAVA_MODULE_JVM_OPTIONS_APPCDS_ARCHIVE_KEY, options->appcds_archive);
+    ASSERT_IS_TRUE(options->appcds_dump == true);
 
     //Cleanup
     JavaModuleLoader_FreeConfiguration(IGNORED_PTR_ARG, result);
@@ -1884,6 +1915,10 @@ TEST_FUNCTION(JavaModuleLoader_FreeConfiguration_frees_resources)
     STRICT_EXPECTED_CALL(VECTOR_push_back(IGNORED_PTR_ARG, IGNORED_PTR_ARG, 1))
         .IgnoreArgument(1)
         .IgnoreArgument(2);
+    STRICT_EXPECTED_CALL(json_object_get_string((const JSON_Object*)0x42, JAVA_MODULE_JVM_OPTIONS_APPCDS_ARCHIVE_KEY))
+        .SetReturn(NULL);
+    STRICT_EXPECTED_CALL(json_object_get_boolean((const JSON_Object*)0x42, JAVA_MODULE_JVM_OPTIONS_APPCDS_DUMP_KEY))
+        .SetReturn(false);
     STRICT_EXPECTED_CALL(ModuleLoader_ParseBaseConfigurationFromJson(IGNORED_PTR_ARG, IGNORED_PTR_ARG))
         .IgnoreArgument(1)
         .IgnoreArgument(2)
@@ -1916,6 +1951,8 @@ TEST_FUNCTION(JavaModuleLoader_FreeConfiguration_frees_resources)
         .IgnoreArgument(1);
     STRICT_EXPECTED_CALL(gballoc_free(IGNORED_PTR_ARG))
         .IgnoreArgument(1);
+    STRICT_EXPECTED_CALL(gballoc_free(IGNORED_PTR_ARG))
+        .IgnoreArgument(1);
     STRICT_EXPECTED_CALL(gballoc_free(config));
 
     // act
@@ -2126,6 +2163,76 @@ TEST_FUNCTION(JavaModuleLoader_BuildModuleConfiguration_copys_information_succes
     STRING_delete(classPath);
 }
 
+/*Tests_SRS_JAVA_MODULE_LOADER_14_064: [JavaModuleLoader_BuildModuleConfiguration shall copy entrypoint->remoteAddress to remote_address, or set it to NULL if entrypoint->remoteAddress is NULL.]*/
+TEST_FUNCTION(JavaModuleLoader_BuildModuleConfiguration_copys_remote_address_success)
+{
+    //Arrange
+    STRING_HANDLE className = STRING_construct("class.name");
+    STRING_HANDLE classPath = STRING_construct("class.path");
+    STRING_HANDLE remoteAddress = STRING_construct("/tmp/gateway.sock");
+    JAVA_LOADER_ENTRYPOINT entrypoint =
+    {
+        className,
+        classPath,
+        remoteAddress
+    };
+
+    JVM_OPTIONS options =
+    {
+        NULL,
+        NULL,
+        0,
+        false,
+        0,
+        false,
+        NULL
+    };
+
+    JAVA_LOADER_CONFIGURATION config =
+    {
+        NULL,
+        &options
+    };
+
+    MODULE_LOADER loader =
+    {
+        JAVA,
+        NULL,
+        (MODULE_LOADER_BASE_CONFIGURATION*)(&config),
+        NULL
+    };
+
+    umock_c_reset_all_calls();
+
+    STRICT_EXPECTED_CALL(gballoc_malloc(sizeof(JAVA_MODULE_HOST_CONFIG)));
+    STRICT_EXPECTED_CALL(STRING_c_str(IGNORED_PTR_ARG))
+        .IgnoreArgument(1);
+    STRICT_EXPECTED_CALL(mallocAndStrcpy_s(IGNORED_PTR_ARG, IGNORED_PTR_ARG))
+        .IgnoreArgument(1)
+        .IgnoreArgument(2);
+    STRICT_EXPECTED_CALL(mallocAndStrcpy_s(IGNORED_PTR_ARG, IGNORED_PTR_ARG))
+        .IgnoreArgument(1)
+        .IgnoreArgument(2);
+    STRICT_EXPECTED_CALL(STRING_c_str(remoteAddress));
+    STRICT_EXPECTED_CALL(mallocAndStrcpy_s(IGNORED_PTR_ARG, IGNORED_PTR_ARG))
+        .IgnoreArgument(1)
+        .IgnoreArgument(2);
+
+    //Act
+    void* result = JavaModuleLoader_BuildModuleConfiguration(&loader, &entrypoint, "{config}");
+
+    //Assert
+    ASSERT_IS_NOT_NULL(result);
+    ASSERT_ARE_EQUAL(char_ptr, umock_c_get_expected_calls(), umock_c_get_actual_calls());
+    ASSERT_ARE_EQUAL(char_ptr, "/tmp/gateway.sock", ((JAVA_MODULE_HOST_CONFIG*)result)->remote_address);
+
+    //Cleanup
+    JavaModuleLoader_FreeModuleConfiguration(IGNORED_PTR_ARG, result);
+    STRING_delete(className);
+    STRING_delete(classPath);
+    STRING_delete(remoteAddress);
+}
+
 /*Tests_SRS_JAVA_MODULE_LOADER_14_051: [JavaModuleLoader_FreeModuleConfiguration shall do nothing if module_configuration is NULL.]*/
 TEST_FUNCTION(JavaModuleLoader_FreeModuleConfiguration_does_nothing_if_configuration_is_NULL)
 {
@@ -0,0 +1,314 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.microsoft.azure.gateway.core.GatewayModule;
+import com.microsoft.azure.gateway.core.Broker;
+import com.microsoft.azure.gateway.messaging.Message;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Publishes synthetic messages at a fixed target rate to benchmark a gateway pipeline, together with {@code LoadSink}.
+ *
+ * The schedule is open-loop: the n-th message is due at a time computed from the start time and the rate alone, never
+ * from when the previous publish returned. If a publish blocks, the messages that fell due in the meantime are sent as
+ * soon as it returns, each stamped with the time it was due. A sink measuring from that time sees the whole delay a
+ * client sending at this rate would have seen, instead of the generator quietly slowing down to what the pipeline can
+ * take (coordinated omission).
+ *
+ * The configuration is a JSON object, or null; every field is optional:
+ * <pre>
+ * {
+ *   "rate": 10000,                  messages per second once ramped up (default 1000)
+ *   "ramp.seconds": 5,              seconds to grow linearly from 0 to rate (default 0, no ramp)
+ *   "duration.seconds": 60,         seconds to run for (default 0, run until destroyed)
+ *   "payload.distribution": "uniform", "fixed", "uniform" or "exponential" (default "fixed")
+ *   "payload.size": 256,            size of fixed payloads, mean of exponential payloads (default 256)
+ *   "payload.min": 64,              smallest uniform payload (default 0)
+ *   "payload.max": 1024,            largest uniform or exponential payload (default the larger of payload.size and 1024)
+ *   "properties": 4,                extra properties per message, besides the ones below (default 4)
+ *   "sources": 8,                   logical sources messages are spread over round-robin (default 1)
+ *   "seed": 1                       seed of the payload size sequence (default 1)
+ * }
+ * </pre>
+ *
+ * Every message carries {@link #SOURCE_PROPERTY}, {@link #SEQUENCE_PROPERTY}, {@link #SCHEDULED_PROPERTY} and
+ * {@link #SENT_PROPERTY}. Both times are {@link System#nanoTime()} values, so the sink must run in the same JVM.
+ */
+public class LoadGenerator extends GatewayModule {
+
+    /** The logical source of a message, {@code source-0} to {@code source-(sources - 1)}. */
+    public static final String SOURCE_PROPERTY = "loadgen.source";
+
+    /** The number of the message among those of its source, counting from 0. */
+    public static final String SEQUENCE_PROPERTY = "loadgen.sequence";
+
+    /** The {@link System#nanoTime()} the message was due to be published at. */
+    public static final String SCHEDULED_PROPERTY = "loadgen.scheduled";
+
+    /** The {@link System#nanoTime()} the message was actually published at. */
+    public static final String SENT_PROPERTY = "loadgen.sent";
+
+    private static final long NANOS_PER_SECOND = 1000000000L;
+
+    /** Waits shorter than this are spun rather than parked, since parking overshoots by about as much. */
+    private static final long SPIN_NANOS = 50000;
+
+    private final double rate;
+    private final double rampSeconds;
+    private final long durationNanos;
+    private final String distribution;
+    private final int payloadSize;
+    private final int payloadMin;
+    private final int payloadMax;
+    private final int propertyCount;
+    private final int sources;
+    private final long seed;
+
+    private volatile boolean threadStop;
+    private Thread thread;
+
+    private long published;
+    private long failed;
+    private long maxLagNanos;
+
+    /**
+     * Constructs a {@link GatewayModule} from the provided address and {@link Broker}. A {@link GatewayModule} should always call this super
+     * constructor before any module-specific constructor code.
+     *
+     * @param address       The address of the native module pointer
+     * @param broker        The {@link Broker} to which this module belongs
+     * @param configuration The module-specific configuration
+     */
+    public LoadGenerator(long address, Broker broker, String configuration) {
+        super(address, broker, configuration);
+        JsonObject fields = parseConfiguration(configuration);
+        this.rate = getNumber(fields, "rate", 1000);
+        this.rampSeconds = getNumber(fields, "ramp.seconds", 0);
+        this.durationNanos = (long) (getNumber(fields, "duration.seconds", 0) * NANOS_PER_SECOND);
+        this.distribution = getString(fields, "payload.distribution", "fixed");
+        this.payloadSize = (int) getNumber(fields, "payload.size", 256);
+        this.payloadMin = (int) getNumber(fields, "payload.min", 0);
+        this.payloadMax = (int) getNumber(fields, "payload.max", Math.max(this.payloadSize, 1024));
+        this.propertyCount = (int) getNumber(fields, "properties", 4);
+        this.sources = (int) getNumber(fields, "sources", 1);
+        this.seed = (long) getNumber(fields, "seed", 1);
+
+        if (this.rate <= 0 || this.rampSeconds < 0 || this.sources < 1 || this.propertyCount < 0
+                || this.payloadSize < 0 || this.payloadMin < 0 || this.payloadMax < this.payloadMin) {
+            throw new IllegalArgumentException("Invalid load generator configuration: " + configuration);
+        }
+        if (!"fixed".equals(this.distribution) && !"uniform".equals(this.distribution) && !"exponential".equals(this.distribution)) {
+            throw new IllegalArgumentException("Unknown payload distribution: " + this.distribution);
+        }
+    }
+
+    @Override
+    public void start() {
+        this.thread = new Thread(this::run, "load-generator");
+        this.thread.start();
+    }
+
+    @Override
+    public void receive(Message message) {
+        //Ignores incoming messages
+    }
+
+    @Override
+    public void destroy() {
+        //Stops the publishing thread and reports what it did
+        this.threadStop = true;
+        if (this.thread != null) {
+            try {
+                this.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        System.out.println(String.format("Load generator: %d messages published, %d failed, at most %.3f ms behind schedule",
+                this.published, this.failed, this.maxLagNanos / 1e6));
+    }
+
+    private void run() {
+        Random random = new Random(this.seed);
+        PayloadChannel payload = new PayloadChannel(Math.max(this.payloadMax, this.payloadSize), random);
+
+        // The properties of each source are reused: publish() serializes the message before it returns.
+        List<Map<String, String>> properties = sourceProperties();
+        long[] sequences = new long[this.sources];
+
+        long start = System.nanoTime();
+        for (long n = 0; !this.threadStop; n++) {
+            long offset = offsetNanos(n);
+            if (this.durationNanos > 0 && offset >= this.durationNanos) {
+                break;
+            }
+
+            long scheduled = start + offset;
+            waitUntil(scheduled);
+
+            int source = (int) (n % this.sources);
+            Map<String, String> map = properties.get(source);
+            map.put(SEQUENCE_PROPERTY, Long.toString(sequences[source]++));
+            map.put(SCHEDULED_PROPERTY, Long.toString(scheduled));
+
+            long sent = System.nanoTime();
+            map.put(SENT_PROPERTY, Long.toString(sent));
+            this.maxLagNanos = Math.max(this.maxLagNanos, sent - scheduled);
+
+            int size = nextPayloadSize(random);
+            payload.reset(size);
+            try {
+                if (this.publish(payload, size, map) == 0) {
+                    this.published++;
+                } else {
+                    this.failed++;
+                }
+            } catch (IOException e) {
+                this.failed++;
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private List<Map<String, String>> sourceProperties() {
+        List<Map<String, String>> properties = new ArrayList<>(this.sources);
+        for (int source = 0; source < this.sources; source++) {
+            Map<String, String> map = new HashMap<>();
+            map.put(SOURCE_PROPERTY, "source-" + source);
+            for (int property = 0; property < this.propertyCount; property++) {
+                map.put("property" + property, "value" + property);
+            }
+            properties.add(map);
+        }
+        return properties;
+    }
+
+    /**
+     * Returns when message {@code n} is due, relative to the start. The rate grows linearly from 0 to {@link #rate}
+     * over the ramp, so the first {@code rate * ramp / 2} messages are due at {@code sqrt(2 * ramp * n / rate)} and every
+     * later one {@code 1 / rate} seconds after the one before.
+     */
+    private long offsetNanos(long n) {
+        double rampMessages = this.rate * this.rampSeconds / 2;
+        double seconds = n < rampMessages
+                ? Math.sqrt(2 * this.rampSeconds * n / this.rate)
+                : this.rampSeconds + (n - rampMessages) / this.rate;
+        return (long) (seconds * NANOS_PER_SECOND);
+    }
+
+    private int nextPayloadSize(Random random) {
+        if ("uniform".equals(this.distribution)) {
+            return this.payloadMin + random.nextInt(this.payloadMax - this.payloadMin + 1);
+        } else if ("exponential".equals(this.distribution)) {
+            return (int) Math.min(this.payloadMax, -this.payloadSize * Math.log(1 - random.nextDouble()));
+        } else {
+            return this.payloadSize;
+        }
+    }
+
+    private void waitUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0 && !this.threadStop) {
+            if (remaining > SPIN_NANOS) {
+                LockSupport.parkNanos(remaining - SPIN_NANOS);
+            }
+        }
+    }
+
+    private static JsonObject parseConfiguration(String configuration) {
+        if (configuration == null || configuration.trim().isEmpty()) {
+            return new JsonObject();
+        }
+        try {
+            JsonElement parsed = JsonParser.parseString(configuration);
+            if (parsed.isJsonNull()) {
+                return new JsonObject();
+            }
+            if (!parsed.isJsonObject()) {
+                throw new IllegalArgumentException("The configuration is not a JSON object: " + configuration);
+            }
+            return parsed.getAsJsonObject();
+        } catch (JsonParseException e) {
+            throw new IllegalArgumentException("The configuration is not a JSON object: " + configuration, e);
+        }
+    }
+
+    private static double getNumber(JsonObject fields, String name, double defaultValue) {
+        JsonElement value = fields.get(name);
+        if (value == null || value.isJsonNull()) {
+            return defaultValue;
+        }
+        if (!value.isJsonPrimitive() || !value.getAsJsonPrimitive().isNumber()) {
+            throw new IllegalArgumentException("\"" + name + "\" is not a number.");
+        }
+        return value.getAsDouble();
+    }
+
+    private static String getString(JsonObject fields, String name, String defaultValue) {
+        JsonElement value = fields.get(name);
+        if (value == null || value.isJsonNull()) {
+            return defaultValue;
+        }
+        if (!value.isJsonPrimitive() || !value.getAsJsonPrimitive().isString()) {
+            throw new IllegalArgumentException("\"" + name + "\" is not a string.");
+        }
+        return value.getAsString();
+    }
+
+    /**
+     * Serves the first {@code size} bytes of one random buffer as the content of every message, so that payloads are
+     * read straight into the serialized message without allocating a content array per message.
+     */
+    private static class PayloadChannel implements ReadableByteChannel {
+
+        private final ByteBuffer buffer;
+
+        PayloadChannel(int capacity, Random random) {
+            byte[] bytes = new byte[capacity];
+            random.nextBytes(bytes);
+            this.buffer = ByteBuffer.wrap(bytes);
+        }
+
+        void reset(int size) {
+            this.buffer.clear();
+            this.buffer.limit(size);
+        }
+
+        @Override
+        public int read(ByteBuffer dst) {
+            if (!this.buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(dst.remaining(), this.buffer.remaining());
+            int limit = this.buffer.limit();
+            this.buffer.limit(this.buffer.position() + count);
+            dst.put(this.buffer);
+            this.buffer.limit(limit);
+            return count;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.microsoft.azure.gateway.core.GatewayModule;
+import com.microsoft.azure.gateway.core.Broker;
+import com.microsoft.azure.gateway.messaging.Message;
+import com.microsoft.azure.gateway.tracing.LatencyHistogram;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Receives the messages of {@code LoadGenerator} and reports throughput and latency percentiles.
+ *
+ * Two latencies are recorded for every message. The corrected latency runs from the time the generator's open-loop
+ * schedule said the message was due, so time the generator spent blocked in publish counts against the pipeline; this
+ * is the latency a client sending at the configured rate would see. The uncorrected latency runs from the time the
+ * message was actually published and, like a closed-loop benchmark, hides that time (coordinated omission). A large gap
+ * between the two means the pipeline cannot keep up with the rate.
+ *
+ * The sink also counts messages missing from, or out of order in, the sequence of each logical source. Both times come
+ * from {@link System#nanoTime()}, so the generator must run in the same JVM.
+ *
+ * The configuration is a JSON object, or null; every field is optional:
+ * <pre>
+ * {
+ *   "report.seconds": 5             seconds between reports, 0 to report only when destroyed (default 5)
+ * }
+ * </pre>
+ */
+public class LoadSink extends GatewayModule {
+
+    // The property names written by LoadGenerator.
+    private static final String SOURCE_PROPERTY = "loadgen.source";
+    private static final String SEQUENCE_PROPERTY = "loadgen.sequence";
+    private static final String SCHEDULED_PROPERTY = "loadgen.scheduled";
+    private static final String SENT_PROPERTY = "loadgen.sent";
+
+    private final LatencyHistogram corrected = new LatencyHistogram();
+    private final LatencyHistogram uncorrected = new LatencyHistogram();
+    private final AtomicLong bytes = new AtomicLong();
+
+    /** The next expected sequence number of every source. */
+    private final Map<String, long[]> sequences = new HashMap<>();
+    private long missing;
+    private long reordered;
+
+    private final long reportNanos;
+    private ScheduledExecutorService reporter;
+    private long firstNanos;
+    private long lastReportNanos;
+    private long lastReportCount;
+    private long lastReportBytes;
+
+    /**
+     * Constructs a {@link GatewayModule} from the provided address and {@link Broker}. A {@link GatewayModule} should always call this super
+     * constructor before any module-specific constructor code.
+     *
+     * @param address       The address of the native module pointer
+     * @param broker        The {@link Broker} to which this module belongs
+     * @param configuration The module-specific configuration
+     */
+    public LoadSink(long address, Broker broker, String configuration) {
+        super(address, broker, configuration);
+        this.reportNanos = (long) (getNumber(parseConfiguration(configuration), "report.seconds", 5) * 1e9);
+        if (this.reportNanos < 0) {
+            throw new IllegalArgumentException("Invalid load sink configuration: " + configuration);
+        }
+    }
+
+    @Override
+    public void start() {
+        this.firstNanos = System.nanoTime();
+        this.lastReportNanos = this.firstNanos;
+        if (this.reportNanos > 0) {
+            this.reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "load-sink-reporter");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.reporter.scheduleAtFixedRate(() -> report("interval"), this.reportNanos, this.reportNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public void receive(Message message) {
+        long now = System.nanoTime();
+        String scheduled = message.getProperty(SCHEDULED_PROPERTY);
+        String sent = message.getProperty(SENT_PROPERTY);
+        if (scheduled == null || sent == null) {
+            //Ignores messages that do not come from a LoadGenerator
+            return;
+        }
+
+        this.corrected.record((now - Long.parseLong(scheduled)) / 1000);
+        this.uncorrected.record((now - Long.parseLong(sent)) / 1000);
+        this.bytes.addAndGet(message.getContentLength());
+
+        String source = message.getProperty(SOURCE_PROPERTY);
+        String sequence = message.getProperty(SEQUENCE_PROPERTY);
+        if (source != null && sequence != null) {
+            checkSequence(source, Long.parseLong(sequence));
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (this.reporter != null) {
+            this.reporter.shutdownNow();
+        }
+        report("total");
+    }
+
+    private synchronized void checkSequence(String source, long sequence) {
+        long[] expected = this.sequences.get(source);
+        if (expected == null) {
+            expected = new long[1];
+            this.sequences.put(source, expected);
+        }
+
+        if (sequence < expected[0]) {
+            this.reordered++;
+            this.missing--;
+        } else {
+            this.missing += sequence - expected[0];
+            expected[0] = sequence + 1;
+        }
+    }
+
+    private synchronized void report(String label) {
+        long now = System.nanoTime();
+        long count = this.corrected.getCount();
+        long totalBytes = this.bytes.get();
+
+        boolean total = "total".equals(label);
+        double seconds = (now - (total ? this.firstNanos : this.lastReportNanos)) / 1e9;
+        long messages = count - (total ? 0 : this.lastReportCount);
+        long messageBytes = totalBytes - (total ? 0 : this.lastReportBytes);
+        this.lastReportNanos = now;
+        this.lastReportCount = count;
+        this.lastReportBytes = totalBytes;
+
+        System.out.println(String.format(
+                "Load sink %s: %d messages in %.1f s, %.0f msg/s, %.2f MB/s, %d missing, %d out of order",
+                label, messages, seconds, seconds > 0 ? messages / seconds : 0, seconds > 0 ? messageBytes / seconds / 1e6 : 0,
+                this.missing, this.reordered));
+        System.out.println("  corrected latency since start (from schedule) " + percentiles(this.corrected));
+        System.out.println("  uncorrected latency since start (from publish) " + percentiles(this.uncorrected));
+    }
+
+    private static String percentiles(LatencyHistogram histogram) {
+        return String.format("us: p50 %d, p90 %d, p99 %d, p99.9 %d, max %d",
+                histogram.getP50(), histogram.getP90(), histogram.getP99(), histogram.getP999(), histogram.getMax());
+    }
+
+    private static JsonObject parseConfiguration(String configuration) {
+        if (configuration == null || configuration.trim().isEmpty()) {
+            return new JsonObject();
+        }
+        try {
+            JsonElement parsed = JsonParser.parseString(configuration);
+            if (parsed.isJsonNull()) {
+                return new JsonObject();
+            }
+            if (!parsed.isJsonObject()) {
+                throw new IllegalArgumentException("The configuration is not a JSON object: " + configuration);
+            }
+            return parsed.getAsJsonObject();
+        } catch (JsonParseException e) {
+            throw new IllegalArgumentException("The configuration is not a JSON object: " + configuration, e);
+        }
+    }
+
+    private static double getNumber(JsonObject fields, String name, double defaultValue) {
+        JsonElement value = fields.get(name);
+        if (value == null || value.isJsonNull()) {
+            return defaultValue;
+        }
+        if (!value.isJsonPrimitive() || !value.getAsJsonPrimitive().isNumber()) {
+            throw new IllegalArgumentException("\"" + name + "\" is not a number.");
+        }
+        return value.getAsDouble();
+    }
+}